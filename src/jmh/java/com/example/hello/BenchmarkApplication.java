@@ -0,0 +1,29 @@
+package com.example.hello;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/** Boots the application for benchmarks: test profile, random port, quiet logging. */
+public final class BenchmarkApplication {
+
+  private BenchmarkApplication() {}
+
+  /**
+   * Starts the application on its own in-memory H2 database named {@code database}, with extra
+   * {@code key=value} properties.
+   */
+  public static ConfigurableApplicationContext start(String database, String... properties) {
+    List<String> all = new ArrayList<>();
+    all.add("server.port=0");
+    all.add("logging.level.root=WARN");
+    all.add(
+        "spring.datasource.url=jdbc:h2:mem:" + database + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+    all.addAll(Arrays.asList(properties));
+    return new SpringApplicationBuilder(Application.class)
+        .properties(all.toArray(String[]::new))
+        .run();
+  }
+}
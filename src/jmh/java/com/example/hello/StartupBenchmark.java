@@ -0,0 +1,142 @@
+package com.example.hello;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Time-to-ready and resident memory of the packaged application in its own JVM: the plain
+ * executable jar vs the fast-start artifact ({@code mvn -Pfast-start}: AOT-processed, extracted,
+ * with the AppCDS archive from the training run). Ready is the first {@code UP} from {@code
+ * /actuator/health}, measured from process start; RSS is read from {@code /proc} at that point
+ * (Linux only). Both run the production configuration with the settings in {@code
+ * src/fast-start/offline.yml}; runs alternate between the two and the median is reported.
+ *
+ * <p>Run by {@code mvn -B -Pfast-start verify -DskipTests}; {@code -Dstartup.runs} sets the runs
+ * per variant (default 5).
+ */
+public final class StartupBenchmark {
+
+  private static final Duration TIMEOUT = Duration.ofMinutes(2);
+
+  private final HttpClient http =
+      HttpClient.newBuilder().connectTimeout(Duration.ofMillis(200)).build();
+  private final String java =
+      Path.of(System.getProperty("java.home"), "bin", "java").toAbsolutePath().toString();
+
+  private record Sample(long readyMillis, long rssKib) {}
+
+  public static void main(String[] args) throws Exception {
+    Path jar = Path.of(args[0]).toAbsolutePath();
+    Path fastStart = Path.of(args[1]).toAbsolutePath();
+    String offline = "--spring.config.additional-location=file:" + Path.of(args[2]).toAbsolutePath();
+    int runs = Integer.parseInt(args[3]);
+
+    StartupBenchmark benchmark = new StartupBenchmark();
+    List<Sample> standard = new ArrayList<>();
+    List<Sample> fast = new ArrayList<>();
+    for (int i = 0; i < runs; i++) {
+      standard.add(benchmark.run("standard", jar.getParent(), offline, "-jar", jar.toString()));
+      fast.add(
+          benchmark.run(
+              "fast-start",
+              fastStart,
+              offline,
+              "-XX:SharedArchiveFile=application.jsa",
+              "-Dspring.aot.enabled=true",
+              "-jar",
+              jar.getFileName().toString()));
+    }
+    report("standard jar", standard);
+    report("fast-start (AOT + AppCDS)", fast);
+  }
+
+  /** Starts the application, waits until it reports UP, samples it, and stops it. */
+  private Sample run(String name, Path directory, String offline, String... javaArgs)
+      throws Exception {
+    int port = freePort();
+    int managementPort = freePort();
+    List<String> command = new ArrayList<>();
+    command.add(java);
+    command.addAll(Arrays.asList(javaArgs));
+    command.add(offline);
+    command.add("--server.port=" + port);
+    command.add("--management.server.port=" + managementPort);
+    File log = directory.resolve("startup-" + name + ".log").toFile();
+    long start = System.nanoTime();
+    Process process =
+        new ProcessBuilder(command)
+            .directory(directory.toFile())
+            .redirectErrorStream(true)
+            .redirectOutput(log)
+            .start();
+    try {
+      HttpRequest health =
+          HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + managementPort + "/actuator/health"))
+              .timeout(Duration.ofSeconds(1))
+              .build();
+      while (!up(health)) {
+        if (!process.isAlive() || System.nanoTime() - start > TIMEOUT.toNanos()) {
+          throw new IllegalStateException(name + " did not become ready, see " + log);
+        }
+        Thread.sleep(5);
+      }
+      long ready = (System.nanoTime() - start) / 1_000_000;
+      return new Sample(ready, rssKib(process.pid()));
+    } finally {
+      process.destroy();
+      process.waitFor();
+    }
+  }
+
+  private boolean up(HttpRequest health) throws InterruptedException {
+    try {
+      HttpResponse<String> response = http.send(health, HttpResponse.BodyHandlers.ofString());
+      return response.statusCode() == 200 && response.body().contains("\"UP\"");
+    } catch (IOException e) {
+      return false;
+    }
+  }
+
+  private static long rssKib(long pid) {
+    try {
+      for (String line : Files.readAllLines(Path.of("/proc", String.valueOf(pid), "status"))) {
+        if (line.startsWith("VmRSS:")) {
+          return Long.parseLong(line.replaceAll("\\D", ""));
+        }
+      }
+    } catch (IOException e) {
+      // not Linux
+    }
+    return -1;
+  }
+
+  private static int freePort() throws IOException {
+    try (ServerSocket socket = new ServerSocket(0)) {
+      return socket.getLocalPort();
+    }
+  }
+
+  private static void report(String label, List<Sample> samples) {
+    long[] ready = samples.stream().mapToLong(Sample::readyMillis).sorted().toArray();
+    long[] rss = samples.stream().mapToLong(Sample::rssKib).sorted().toArray();
+    System.out.printf(
+        "%n[startup] %-26s ready p50=%dms min=%dms max=%dms, RSS p50=%s (%d runs)%n",
+        label,
+        ready[ready.length / 2],
+        ready[0],
+        ready[ready.length - 1],
+        rss[0] < 0 ? "n/a" : (rss[rss.length / 2] / 1024) + "MiB",
+        samples.size());
+  }
+}
@@ -0,0 +1,115 @@
+package com.example.hello.domain;
+
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * Insert throughput into a UUID primary key seeded with {@code seedRows} rows, random v4 vs
+ * time-ordered v7 keys. The primary-key index size is printed at the end of each trial.
+ *
+ * <p>Defaults to a file-based H2 database under {@code target/}; point it at PostgreSQL with e.g.
+ * {@code -Djmh.args="-p jdbcUrl=jdbc:postgresql://localhost:5432/app -p user=app -p password=..."}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UuidPrimaryKeyBenchmark {
+
+  private static final int BATCH = 100;
+
+  @Param({"v4", "v7"})
+  public String idType;
+
+  @Param({"200000"})
+  public int seedRows;
+
+  @Param({"jdbc:h2:file:./target/uuid-bench/db;MODE=PostgreSQL"})
+  public String jdbcUrl;
+
+  @Param({"sa"})
+  public String user;
+
+  @Param({""})
+  public String password;
+
+  private Connection connection;
+  private PreparedStatement insert;
+  private boolean postgres;
+
+  @Setup(Level.Trial)
+  public void seed() throws SQLException {
+    connection = DriverManager.getConnection(jdbcUrl, user, password);
+    postgres = connection.getMetaData().getDatabaseProductName().toLowerCase().contains("postgres");
+    try (Statement st = connection.createStatement()) {
+      st.execute("DROP TABLE IF EXISTS uuid_bench");
+      st.execute("CREATE TABLE uuid_bench (id UUID PRIMARY KEY, payload VARCHAR(64) NOT NULL)");
+    }
+    insert = connection.prepareStatement("INSERT INTO uuid_bench (id, payload) VALUES (?, ?)");
+    for (int i = 0; i < seedRows; i += BATCH) {
+      insertBatch();
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void report() throws SQLException {
+    try (Statement st = connection.createStatement()) {
+      long rows;
+      try (ResultSet rs = st.executeQuery("SELECT COUNT(*) FROM uuid_bench")) {
+        rs.next();
+        rows = rs.getLong(1);
+      }
+      String sizeQuery =
+          postgres
+              ? "SELECT pg_relation_size(indexrelid) FROM pg_index"
+                  + " WHERE indrelid = 'uuid_bench'::regclass AND indisprimary"
+              : "SELECT DISK_SPACE_USED('UUID_BENCH')"; // H2 reports table and indexes together
+      try (ResultSet rs = st.executeQuery(sizeQuery)) {
+        rs.next();
+        long bytes = rs.getLong(1);
+        System.out.printf(
+            "%n[uuid-pk] %s: %d rows, %s %.1f MiB (%.1f bytes/row)%n",
+            idType,
+            rows,
+            postgres ? "primary key index" : "table+indexes",
+            bytes / (1024.0 * 1024.0),
+            (double) bytes / rows);
+      }
+      st.execute("DROP TABLE uuid_bench");
+    } finally {
+      connection.close();
+    }
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(BATCH)
+  public void insertRows() throws SQLException {
+    insertBatch();
+  }
+
+  private void insertBatch() throws SQLException {
+    for (int i = 0; i < BATCH; i++) {
+      UUID id = "v7".equals(idType) ? UuidV7Generator.next() : UUID.randomUUID();
+      insert.setObject(1, id);
+      insert.setString(2, "payload");
+      insert.addBatch();
+    }
+    insert.executeBatch();
+  }
+}
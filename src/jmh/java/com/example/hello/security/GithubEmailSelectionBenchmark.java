@@ -0,0 +1,73 @@
+package com.example.hello.security;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+/**
+ * Parsing a GitHub {@code /user/emails} body and selecting the primary verified address, for
+ * accounts with {@code emails} addresses where the primary one is listed last. {@code tree} is the
+ * previous implementation (body decoded to a String, then a full {@code JsonNode} tree) kept as a
+ * baseline; {@code streaming} is {@link GithubEmailClient#selectEmail}. Both start from the raw
+ * response bytes. Compare allocation rates with {@code -prof gc} (see {@code
+ * gc.alloc.rate.norm}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class GithubEmailSelectionBenchmark {
+
+  @Param({"1", "5", "25"})
+  public int emails;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+  private byte[] body;
+
+  @Setup
+  public void payload() {
+    body = GithubEmailsPayload.json(emails).getBytes(StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public String tree() throws IOException {
+    return selectFromTree(objectMapper.readTree(new String(body, StandardCharsets.UTF_8)));
+  }
+
+  @Benchmark
+  public String streaming() throws IOException {
+    return GithubEmailClient.selectEmail(new ByteArrayInputStream(body));
+  }
+
+  private static String selectFromTree(JsonNode arr) {
+    String primaryVerified = null;
+    String anyVerified = null;
+    String first = null;
+    if (arr.isArray()) {
+      for (JsonNode n : arr) {
+        String email = n.path("email").asText(null);
+        boolean primary = n.path("primary").asBoolean(false);
+        boolean verified = n.path("verified").asBoolean(false);
+        if (first == null) first = email;
+        if (verified && anyVerified == null) anyVerified = email;
+        if (primary && verified) {
+          primaryVerified = email;
+          break;
+        }
+      }
+    }
+    if (primaryVerified != null) return primaryVerified;
+    if (anyVerified != null) return anyVerified;
+    return first;
+  }
+}
@@ -0,0 +1,26 @@
+package com.example.hello.security;
+
+/** Builds GitHub {@code /user/emails} response bodies for benchmarks. */
+final class GithubEmailsPayload {
+
+  private GithubEmailsPayload() {}
+
+  /** {@code count} addresses, all verified except the first, with the primary one listed last. */
+  static String json(int count) {
+    StringBuilder sb = new StringBuilder("[");
+    for (int i = 0; i < count; i++) {
+      if (i > 0) sb.append(',');
+      boolean primary = i == count - 1;
+      sb.append("{\"email\":\"user")
+          .append(i)
+          .append("@example.com\",\"primary\":")
+          .append(primary)
+          .append(",\"verified\":")
+          .append(i > 0 || count == 1)
+          .append(",\"visibility\":")
+          .append(primary ? "\"private\"" : "null")
+          .append('}');
+    }
+    return sb.append(']').toString();
+  }
+}
@@ -0,0 +1,102 @@
+package com.example.hello.security;
+
+import static org.mockito.Mockito.mock;
+
+import com.example.hello.service.LoginAnalytics;
+import com.example.hello.service.UserOnboarding;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.infra.Blackhole;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+/**
+ * {@code loadUser} latency for a GitHub login without a public email, against a local stub that
+ * delays {@code /user} and {@code /user/emails} by {@code delayMs} each: serial lookup vs
+ * concurrent lookup ({@code app.github-emails.concurrent}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class GithubLoginLatencyBenchmark {
+
+  @Param({"false", "true"})
+  public boolean concurrent;
+
+  @Param({"50"})
+  public int delayMs;
+
+  private GithubStub github;
+  private GithubEmailClient emailClient;
+  private CustomOAuth2UserService service;
+  private OAuth2UserRequest request;
+
+  @Setup
+  public void start() throws IOException {
+    github = new GithubStub(Duration.ofMillis(delayMs));
+    GithubEmailProperties properties =
+        new GithubEmailProperties(github.baseUrl(), 100, Duration.ofHours(1), concurrent, 20);
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    emailClient =
+        new GithubEmailClient(
+            requestFactory,
+            properties,
+            new SimpleMeterRegistry(),
+            new GithubApiGuard(GithubApiGuardTest.defaults(), new SimpleMeterRegistry()),
+            false);
+    service =
+        new CustomOAuth2UserService(
+            mock(UserOnboarding.class),
+            mock(LoginAnalytics.class),
+            emailClient,
+            properties,
+            requestFactory,
+            new LoginMetrics(new SimpleMeterRegistry(), new LoginMetricsProperties(false)));
+    ClientRegistration registration =
+        ClientRegistration.withRegistrationId("github")
+            .clientId("bench")
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+            .authorizationUri(github.baseUrl() + "/login/oauth/authorize")
+            .tokenUri(github.baseUrl() + "/login/oauth/access_token")
+            .userInfoUri(github.baseUrl() + "/user")
+            .userNameAttributeName("id")
+            .build();
+    request =
+        new OAuth2UserRequest(
+            registration,
+            new OAuth2AccessToken(
+                OAuth2AccessToken.TokenType.BEARER,
+                "token",
+                Instant.now(),
+                Instant.now().plus(Duration.ofDays(1)),
+                Set.of("read:user", "user:email")));
+  }
+
+  @TearDown
+  public void stop() {
+    emailClient.close();
+    github.close();
+  }
+
+  @Benchmark
+  public void loadUser(Blackhole bh) {
+    bh.consume(service.loadUser(request));
+  }
+}
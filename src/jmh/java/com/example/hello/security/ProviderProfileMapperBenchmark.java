@@ -0,0 +1,51 @@
+package com.example.hello.security;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+
+/** Mapping of raw provider attributes to a {@link ProviderProfile}. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ProviderProfileMapperBenchmark {
+
+  private final Map<String, Object> github = new HashMap<>();
+  private final Map<String, Object> azure = new HashMap<>();
+
+  public ProviderProfileMapperBenchmark() {
+    // Shaped like real userinfo responses, including attributes the mapper ignores
+    github.put("id", 583231);
+    github.put("login", "octocat");
+    github.put("name", "The Octocat");
+    github.put("email", null);
+    github.put("avatar_url", "https://avatars.githubusercontent.com/u/583231?v=4");
+    github.put("html_url", "https://github.com/octocat");
+    github.put("company", "@github");
+    github.put("public_repos", 8);
+    github.put("followers", 9000);
+
+    azure.put("sub", "AAAAAAAAAAAAAAAAAAAAAIkzqFVrSaSaFHy782bbtaQ");
+    azure.put("oid", "00000000-0000-0000-66f3-3332eca7ea81");
+    azure.put("preferred_username", "user@contoso.com");
+    azure.put("name", "Contoso User");
+    azure.put("email", "user@contoso.com");
+    azure.put("tid", "9122040d-6c67-4c5b-b112-36a304b66dad");
+  }
+
+  @Benchmark
+  public ProviderProfile fromGithub() {
+    return ProviderProfileMapper.fromGithub(github);
+  }
+
+  @Benchmark
+  public ProviderProfile fromAzure() {
+    return ProviderProfileMapper.fromAzure(azure);
+  }
+}
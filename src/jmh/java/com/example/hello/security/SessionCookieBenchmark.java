@@ -0,0 +1,203 @@
+package com.example.hello.security;
+
+import static org.mockito.Mockito.mock;
+
+import com.example.hello.service.UserService;
+import jakarta.servlet.http.Cookie;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.Reference;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.InMemoryOAuth2AuthorizedClientService;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+
+/**
+ * Per-request cost of restoring the logged-in user: {@code cookieDecode} opens and parses the
+ * {@code app.session.mode=cookie} cookie, {@code servletSessionLookup} reads the context from an
+ * {@code HttpSession} (the default mode; excludes the container's session-id lookup).
+ * {@code cookieEncode} is the one-off cost at login.
+ *
+ * <p>Setup also prints the heap retained by {@code sessions} servlet-mode logins: a session
+ * holding the GitHub {@code OAuth2AuthenticationToken} with all {@code /user} attributes, plus the
+ * authorized client (access token) that {@code oauth2Login} keeps in memory per user. Cookie mode
+ * keeps neither; its cost is the cookie sent with every request (size printed too).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SessionCookieBenchmark {
+
+  private static final int SESSIONS = 100_000;
+
+  private final SessionProperties properties =
+      new SessionProperties(
+          SessionProperties.Mode.COOKIE, "APP_SESSION", "", Duration.ofHours(8), true);
+  private CookieSecurityContextRepository cookieRepository;
+  private HttpSessionSecurityContextRepository sessionRepository;
+  private SecurityContext login;
+  private MockHttpServletRequest cookieRequest;
+  private MockHttpServletRequest sessionRequest;
+
+  @Setup(Level.Trial)
+  public void setUp() throws Exception {
+    cookieRepository =
+        new CookieSecurityContextRepository(
+            new SessionCookieCodec(new byte[32]), properties, mock(UserService.class));
+    sessionRepository = new HttpSessionSecurityContextRepository();
+    login = githubLogin(1);
+
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    cookieRepository.saveContext(login, new MockHttpServletRequest(), response);
+    String header = response.getHeader(HttpHeaders.SET_COOKIE);
+    String value = header.substring(header.indexOf('=') + 1, header.indexOf(';'));
+    cookieRequest = new MockHttpServletRequest();
+    cookieRequest.setCookies(new Cookie("APP_SESSION", value));
+
+    sessionRequest = new MockHttpServletRequest();
+    MockHttpSession session = new MockHttpSession();
+    session.setAttribute(
+        HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, githubLogin(2));
+    sessionRequest.setSession(session);
+
+    reportHeap(value.length());
+  }
+
+  @Benchmark
+  public SecurityContext cookieDecode() {
+    return cookieRepository.loadDeferredContext(cookieRequest).get();
+  }
+
+  @Benchmark
+  public SecurityContext servletSessionLookup() {
+    return sessionRepository.loadDeferredContext(sessionRequest).get();
+  }
+
+  @Benchmark
+  public MockHttpServletResponse cookieEncode() {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    cookieRepository.saveContext(login, cookieRequest, response);
+    return response;
+  }
+
+  private static void reportHeap(int cookieChars) {
+    ClientRegistration registration =
+        ClientRegistration.withRegistrationId("github")
+            .clientId("bench")
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+            .authorizationUri("https://github.com/login/oauth/authorize")
+            .tokenUri("https://github.com/login/oauth/access_token")
+            .build();
+    long before = usedHeapAfterGc();
+    List<MockHttpSession> sessions = new ArrayList<>(SESSIONS);
+    InMemoryOAuth2AuthorizedClientService authorizedClients =
+        new InMemoryOAuth2AuthorizedClientService(
+            new InMemoryClientRegistrationRepository(registration));
+    for (int i = 0; i < SESSIONS; i++) {
+      SecurityContext context = githubLogin(i);
+      MockHttpSession session = new MockHttpSession();
+      session.setAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY, context);
+      sessions.add(session);
+      OAuth2AccessToken token =
+          new OAuth2AccessToken(
+              OAuth2AccessToken.TokenType.BEARER,
+              "gho_" + Long.toHexString(Double.doubleToLongBits(Math.random())) + i,
+              Instant.now(),
+              Instant.now().plusSeconds(28_800));
+      authorizedClients.saveAuthorizedClient(
+          new OAuth2AuthorizedClient(registration, String.valueOf(i), token),
+          context.getAuthentication());
+    }
+    long retained = usedHeapAfterGc() - before;
+    System.out.printf(
+        "%n[session-heap] servlet mode: %.1f MiB per %,d sessions (%d bytes each);"
+            + " cookie mode: 0 bytes server-side, %d-byte cookie per request%n",
+        retained / (1024.0 * 1024.0),
+        SESSIONS,
+        retained / SESSIONS,
+        "APP_SESSION=".length() + cookieChars);
+    Reference.reachabilityFence(sessions);
+    Reference.reachabilityFence(authorizedClients);
+  }
+
+  private static long usedHeapAfterGc() {
+    for (int i = 0; i < 3; i++) System.gc();
+    return ManagementFactory.getMemoryMXBean().getHeapMemoryUsage().getUsed();
+  }
+
+  /** A GitHub login as {@code oauth2Login} stores it: every {@code /user} attribute. */
+  private static SecurityContext githubLogin(int id) {
+    String login = "user-" + id;
+    String api = "https://api.github.com/users/" + login;
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("login", login);
+    attributes.put("id", 1_000_000 + id);
+    attributes.put("node_id", "MDQ6VXNlcj" + id);
+    attributes.put("avatar_url", "https://avatars.githubusercontent.com/u/" + id + "?v=4");
+    attributes.put("gravatar_id", "");
+    attributes.put("url", api);
+    attributes.put("html_url", "https://github.com/" + login);
+    attributes.put("followers_url", api + "/followers");
+    attributes.put("following_url", api + "/following{/other_user}");
+    attributes.put("gists_url", api + "/gists{/gist_id}");
+    attributes.put("starred_url", api + "/starred{/owner}{/repo}");
+    attributes.put("subscriptions_url", api + "/subscriptions");
+    attributes.put("organizations_url", api + "/orgs");
+    attributes.put("repos_url", api + "/repos");
+    attributes.put("events_url", api + "/events{/privacy}");
+    attributes.put("received_events_url", api + "/received_events");
+    attributes.put("type", "User");
+    attributes.put("site_admin", false);
+    attributes.put("name", "User Number " + id);
+    attributes.put("company", "@example-" + id);
+    attributes.put("blog", "https://example.com/" + login);
+    attributes.put("location", "Copenhagen");
+    attributes.put("email", null);
+    attributes.put("hireable", null);
+    attributes.put("bio", "Writes software, number " + id);
+    attributes.put("twitter_username", null);
+    attributes.put("public_repos", 42);
+    attributes.put("public_gists", 3);
+    attributes.put("followers", 17);
+    attributes.put("following", 5);
+    attributes.put("created_at", "2015-03-0" + (id % 9 + 1) + "T10:00:00Z");
+    attributes.put("updated_at", "2024-05-0" + (id % 9 + 1) + "T10:00:00Z");
+    DefaultOAuth2User user =
+        new DefaultOAuth2User(
+            List.of(
+                new SimpleGrantedAuthority("OAUTH2_USER"),
+                new SimpleGrantedAuthority("SCOPE_read:user"),
+                new SimpleGrantedAuthority("SCOPE_user:email")),
+            attributes,
+            "id");
+    return new SecurityContextImpl(
+        new OAuth2AuthenticationToken(user, user.getAuthorities(), "github"));
+  }
+}
@@ -0,0 +1,108 @@
+package com.example.hello.service;
+
+import com.example.hello.BenchmarkApplication;
+import com.example.hello.security.ProviderProfile;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.IntStream;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Onboarding throughput in profiles per millisecond, {@value #PROFILES} profiles per operation:
+ * {@link UserService#bulkUpsert} in chunks of {@code app.user-upsert.bulk-chunk-size} vs one
+ * {@link UserService#getOrCreateFromProviderProfile} per profile ({@code mode} selects its jpa or
+ * native path), for users that do not exist yet and for a re-run of an unchanged import (H2).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UserBulkUpsertBenchmark {
+
+  private static final int PROFILES = 10_000;
+
+  @Param({"jpa", "native"})
+  public String mode;
+
+  @Param({"1000"})
+  public int chunkSize;
+
+  private ConfigurableApplicationContext context;
+  private UserService userService;
+  private List<ProviderProfile> existing;
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void start() {
+    context =
+        BenchmarkApplication.start(
+            "bulk-bench",
+            "app.user-upsert.mode=" + mode,
+            "app.user-upsert.bulk-chunk-size=" + chunkSize);
+    userService = context.getBean(UserService.class);
+    existing = profiles("seed");
+    userService.bulkUpsert(existing.stream());
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PROFILES)
+  public Object bulkNew() {
+    return userService.bulkUpsert(profiles("new-" + sequence.incrementAndGet()).stream());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PROFILES)
+  public Object singleNew() {
+    Object last = null;
+    for (ProviderProfile profile : profiles("new-" + sequence.incrementAndGet())) {
+      last = userService.getOrCreateFromProviderProfile(profile);
+    }
+    return last;
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PROFILES)
+  public Object bulkUnchanged() {
+    return userService.bulkUpsert(existing.stream());
+  }
+
+  @Benchmark
+  @OperationsPerInvocation(PROFILES)
+  public Object singleUnchanged() {
+    Object last = null;
+    for (ProviderProfile profile : existing) {
+      last = userService.getOrCreateFromProviderProfile(profile);
+    }
+    return last;
+  }
+
+  private static List<ProviderProfile> profiles(String batch) {
+    return IntStream.range(0, PROFILES)
+        .mapToObj(
+            i ->
+                new ProviderProfile(
+                    "GITHUB",
+                    batch + "-" + i,
+                    "user" + i,
+                    "User " + i,
+                    "user" + i + "@example.com",
+                    null))
+        .toList();
+  }
+}
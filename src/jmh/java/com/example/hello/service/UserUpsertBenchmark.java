@@ -0,0 +1,79 @@
+package com.example.hello.service;
+
+import com.example.hello.BenchmarkApplication;
+import com.example.hello.domain.User;
+import com.example.hello.security.ProviderProfile;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Compares the JPA (SELECT then INSERT/UPDATE) and native (single upsert statement) login paths
+ * of {@link UserService#getOrCreateFromProviderProfile} against the test-profile H2 database.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class UserUpsertBenchmark {
+
+  private static final int EXISTING_USERS = 1_000;
+
+  @Param({"jpa", "native"})
+  public String mode;
+
+  private ConfigurableApplicationContext context;
+  private UserService userService;
+  private final AtomicLong sequence = new AtomicLong();
+
+  @Setup(Level.Trial)
+  public void start() {
+    context = BenchmarkApplication.start("upsert-bench", "app.user-upsert.mode=" + mode);
+    userService = context.getBean(UserService.class);
+    for (int i = 0; i < EXISTING_USERS; i++) {
+      userService.getOrCreateFromProviderProfile(existing(i, "seed"));
+    }
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  /** Returning user whose provider profile did not change (the common login). */
+  @Benchmark
+  public User unchangedLogin() {
+    return userService.getOrCreateFromProviderProfile(
+        existing((int) (sequence.incrementAndGet() % EXISTING_USERS), "seed"));
+  }
+
+  /** Returning user whose display name changed since the last login. */
+  @Benchmark
+  public User changedLogin() {
+    long n = sequence.incrementAndGet();
+    return userService.getOrCreateFromProviderProfile(
+        existing((int) (n % EXISTING_USERS), "v" + n));
+  }
+
+  /** First login of a user that does not exist yet. */
+  @Benchmark
+  public User firstLogin() {
+    long n = sequence.incrementAndGet();
+    return userService.getOrCreateFromProviderProfile(
+        new ProviderProfile("GITHUB", "new-" + n, "new" + n, "New " + n, null, null));
+  }
+
+  private static ProviderProfile existing(int i, String version) {
+    return new ProviderProfile(
+        "GITHUB", "bench-" + i, "user" + i, "User " + i + " " + version, null, null);
+  }
+}
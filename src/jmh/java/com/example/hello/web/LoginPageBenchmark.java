@@ -0,0 +1,112 @@
+package com.example.hello.web;
+
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import com.example.hello.BenchmarkApplication;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+import org.springframework.web.servlet.View;
+import org.thymeleaf.spring6.view.ThymeleafViewResolver;
+
+/**
+ * {@code GET /login} throughput: the Thymeleaf view render every request used to pay ({@code
+ * templateRender}) vs the pre-rendered page in {@link LoginController} ({@code cachedPage}), then
+ * the full request through MockMvc and the security filter chain, as a first visit ({@code
+ * fullRequest}), with gzip ({@code fullRequestGzip}) and as a revalidation answered with a 304
+ * ({@code fullRequestNotModified}).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class LoginPageBenchmark {
+
+  private ConfigurableApplicationContext context;
+  private MockMvc mockMvc;
+  private View view;
+  private LoginController controller;
+  private String etag;
+
+  @Setup(Level.Trial)
+  public void start() throws Exception {
+    context = BenchmarkApplication.start("login-bench");
+    mockMvc =
+        MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+            .apply(springSecurity())
+            .build();
+    view = context.getBean(ThymeleafViewResolver.class).resolveViewName("login", Locale.ENGLISH);
+    controller = context.getBean(LoginController.class);
+    MockHttpServletResponse page = mockMvc.perform(get("/login")).andReturn().getResponse();
+    MockHttpServletResponse gzip =
+        mockMvc.perform(get("/login").header("Accept-Encoding", "gzip")).andReturn().getResponse();
+    etag = page.getHeader("ETag");
+    System.out.printf(
+        "%n[login-page] %d bytes, %d gzipped, ETag %s, Cache-Control %s%n",
+        page.getContentAsByteArray().length,
+        gzip.getContentAsByteArray().length,
+        etag,
+        page.getHeader("Cache-Control"));
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public int templateRender() throws Exception {
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    view.render(Map.of("logout", false, "error", false), request(), response);
+    return response.getContentAsByteArray().length;
+  }
+
+  @Benchmark
+  public int cachedPage() {
+    return controller.login(request(), null).getBody().length;
+  }
+
+  @Benchmark
+  public int fullRequest() throws Exception {
+    return mockMvc.perform(get("/login")).andReturn().getResponse().getContentAsByteArray().length;
+  }
+
+  @Benchmark
+  public int fullRequestGzip() throws Exception {
+    return mockMvc
+        .perform(get("/login").header("Accept-Encoding", "gzip"))
+        .andReturn()
+        .getResponse()
+        .getContentAsByteArray()
+        .length;
+  }
+
+  @Benchmark
+  public int fullRequestNotModified() throws Exception {
+    return mockMvc
+        .perform(get("/login").header("If-None-Match", etag))
+        .andReturn()
+        .getResponse()
+        .getStatus();
+  }
+
+  private MockHttpServletRequest request() {
+    return new MockHttpServletRequest(
+        ((WebApplicationContext) context).getServletContext(), "GET", "/login");
+  }
+}
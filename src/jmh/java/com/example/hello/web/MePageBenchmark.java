@@ -0,0 +1,70 @@
+package com.example.hello.web;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.security.test.web.servlet.setup.SecurityMockMvcConfigurers.springSecurity;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+
+import com.example.hello.BenchmarkApplication;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+import org.springframework.test.web.servlet.setup.MockMvcBuilders;
+import org.springframework.web.context.WebApplicationContext;
+
+/**
+ * Full {@code GET /me} handling through MockMvc: security filter chain, user lookup and Thymeleaf
+ * rendering, for an already onboarded GitHub user.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class MePageBenchmark {
+
+  private ConfigurableApplicationContext context;
+  private MockMvc mockMvc;
+  private RequestPostProcessor login;
+
+  @Setup(Level.Trial)
+  public void start() throws Exception {
+    context = BenchmarkApplication.start("me-bench");
+    mockMvc =
+        MockMvcBuilders.webAppContextSetup((WebApplicationContext) context)
+            .apply(springSecurity())
+            .build();
+    login =
+        oauth2Login()
+            .attributes(
+                attrs -> {
+                  attrs.put("sub", "bench-user");
+                  attrs.put("login", "octocat");
+                  attrs.put("name", "The Octocat");
+                  attrs.put("avatar_url", "https://avatars.githubusercontent.com/u/583231?v=4");
+                });
+    render(); // onboard the user outside of the measurement
+  }
+
+  @TearDown(Level.Trial)
+  public void stop() {
+    context.close();
+  }
+
+  @Benchmark
+  public int render() throws Exception {
+    return mockMvc
+        .perform(get("/me").with(login))
+        .andReturn()
+        .getResponse()
+        .getContentAsByteArray()
+        .length;
+  }
+}
@@ -0,0 +1,33 @@
+package com.example.hello.config;
+
+import com.example.hello.security.CookieOAuth2AuthorizationRequestRepository;
+import com.example.hello.security.CookieSecurityContextRepository;
+import com.example.hello.security.SessionCookieCodec;
+import com.example.hello.security.SessionProperties;
+import com.example.hello.service.UserService;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/** Beans of the stateless {@code app.session.mode=cookie}, picked up by {@link SecurityConfig}. */
+@Configuration
+@ConditionalOnProperty(prefix = "app.session", name = "mode", havingValue = "cookie")
+public class CookieSessionConfig {
+
+  @Bean
+  public SessionCookieCodec sessionCookieCodec(SessionProperties properties) {
+    return SessionCookieCodec.fromBase64(properties.key());
+  }
+
+  @Bean
+  public CookieSecurityContextRepository cookieSecurityContextRepository(
+      SessionCookieCodec codec, SessionProperties properties, UserService userService) {
+    return new CookieSecurityContextRepository(codec, properties, userService);
+  }
+
+  @Bean
+  public CookieOAuth2AuthorizationRequestRepository cookieAuthorizationRequestRepository(
+      SessionCookieCodec codec, SessionProperties properties) {
+    return new CookieOAuth2AuthorizationRequestRepository(codec, properties);
+  }
+}
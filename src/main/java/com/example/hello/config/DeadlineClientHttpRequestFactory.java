@@ -0,0 +1,162 @@
+package com.example.hello.config;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.time.Duration;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.apache.hc.client5.http.classic.HttpClient;
+import org.apache.hc.core5.concurrent.Cancellable;
+import org.apache.hc.core5.http.ClassicHttpRequest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
+
+/**
+ * Apache HttpClient request factory that also enforces a total deadline per exchange. Connect and
+ * read timeouts only bound single waits, so a server trickling bytes could otherwise hold the
+ * calling thread indefinitely. When the deadline passes, the underlying request is cancelled, which
+ * aborts the connection and surfaces as an I/O error to the caller.
+ */
+class DeadlineClientHttpRequestFactory extends HttpComponentsClientHttpRequestFactory {
+
+  // Hands the Apache request from createHttpUriRequest to createRequest on the same thread
+  private static final ThreadLocal<Cancellable> CREATED = new ThreadLocal<>();
+
+  private final Duration deadline;
+  private final ScheduledExecutorService timer;
+
+  DeadlineClientHttpRequestFactory(HttpClient httpClient, Duration deadline) {
+    super(httpClient);
+    this.deadline = deadline;
+    ScheduledThreadPoolExecutor timer =
+        new ScheduledThreadPoolExecutor(
+            1,
+            r -> {
+              Thread t = Executors.defaultThreadFactory().newThread(r);
+              t.setName("provider-http-deadline");
+              t.setDaemon(true);
+              return t;
+            });
+    timer.setRemoveOnCancelPolicy(true);
+    this.timer = timer;
+  }
+
+  /** Stops the deadline thread along with the factory, so a context refresh does not leak it. */
+  @Override
+  public void destroy() throws Exception {
+    timer.shutdownNow();
+    super.destroy();
+  }
+
+  @Override
+  public ClientHttpRequest createRequest(URI uri, HttpMethod httpMethod) throws IOException {
+    try {
+      ClientHttpRequest request = super.createRequest(uri, httpMethod);
+      return new DeadlineRequest(request, CREATED.get());
+    } finally {
+      CREATED.remove();
+    }
+  }
+
+  @Override
+  protected ClassicHttpRequest createHttpUriRequest(HttpMethod httpMethod, URI uri) {
+    ClassicHttpRequest request = super.createHttpUriRequest(httpMethod, uri);
+    if (request instanceof Cancellable cancellable) {
+      CREATED.set(cancellable);
+    }
+    return request;
+  }
+
+  private final class DeadlineRequest implements ClientHttpRequest {
+
+    private final ClientHttpRequest delegate;
+    private final Cancellable cancellable;
+
+    DeadlineRequest(ClientHttpRequest delegate, Cancellable cancellable) {
+      this.delegate = delegate;
+      this.cancellable = cancellable;
+    }
+
+    @Override
+    public ClientHttpResponse execute() throws IOException {
+      if (cancellable == null) {
+        return delegate.execute();
+      }
+      ScheduledFuture<?> expiry =
+          timer.schedule(cancellable::cancel, deadline.toNanos(), TimeUnit.NANOSECONDS);
+      try {
+        return new DeadlineResponse(delegate.execute(), expiry);
+      } catch (IOException | RuntimeException e) {
+        expiry.cancel(false);
+        throw e;
+      }
+    }
+
+    @Override
+    public HttpMethod getMethod() {
+      return delegate.getMethod();
+    }
+
+    @Override
+    public URI getURI() {
+      return delegate.getURI();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return delegate.getHeaders();
+    }
+
+    @Override
+    public OutputStream getBody() throws IOException {
+      return delegate.getBody();
+    }
+  }
+
+  /** Keeps the deadline armed while the body is read and disarms it on close. */
+  private static final class DeadlineResponse implements ClientHttpResponse {
+
+    private final ClientHttpResponse delegate;
+    private final ScheduledFuture<?> expiry;
+
+    DeadlineResponse(ClientHttpResponse delegate, ScheduledFuture<?> expiry) {
+      this.delegate = delegate;
+      this.expiry = expiry;
+    }
+
+    @Override
+    public HttpStatusCode getStatusCode() throws IOException {
+      return delegate.getStatusCode();
+    }
+
+    @Override
+    public String getStatusText() throws IOException {
+      return delegate.getStatusText();
+    }
+
+    @Override
+    public HttpHeaders getHeaders() {
+      return delegate.getHeaders();
+    }
+
+    @Override
+    public InputStream getBody() throws IOException {
+      return delegate.getBody();
+    }
+
+    @Override
+    public void close() {
+      expiry.cancel(false);
+      delegate.close();
+    }
+  }
+}
@@ -0,0 +1,54 @@
+package com.example.hello.config;
+
+import com.example.hello.domain.User;
+import com.github.benmanes.caffeine.jcache.configuration.CaffeineConfiguration;
+import com.github.benmanes.caffeine.jcache.spi.CaffeineCachingProvider;
+import java.net.URI;
+import java.util.OptionalLong;
+import java.util.UUID;
+import javax.cache.CacheManager;
+import javax.cache.Caching;
+import org.hibernate.cache.jcache.ConfigSettings;
+import org.springframework.boot.autoconfigure.orm.jpa.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * In-process JCache (Caffeine) regions for Hibernate's second-level cache, one bounded region per
+ * cached entity and natural id. The region factory and statistics are switched on under {@code
+ * spring.jpa.properties}; Hibernate refuses to start if an entity names a region not created here.
+ */
+@Configuration
+public class HibernateCacheConfig {
+
+  @Bean(destroyMethod = "close")
+  public CacheManager hibernateCacheManager(HibernateCacheProperties properties) {
+    // A manager per application context: tests run several contexts in one JVM
+    CacheManager cacheManager =
+        Caching.getCachingProvider(CaffeineCachingProvider.class.getName())
+            .getCacheManager(
+                URI.create("hibernate-" + UUID.randomUUID()), getClass().getClassLoader());
+    for (String region : new String[] {User.CACHE_REGION, User.NATURAL_ID_CACHE_REGION}) {
+      cacheManager.createCache(region, regionConfiguration(properties));
+    }
+    return cacheManager;
+  }
+
+  @Bean
+  public HibernatePropertiesCustomizer hibernateCacheManagerCustomizer(
+      CacheManager hibernateCacheManager) {
+    return hibernateProperties ->
+        hibernateProperties.put(ConfigSettings.CACHE_MANAGER, hibernateCacheManager);
+  }
+
+  private static CaffeineConfiguration<Object, Object> regionConfiguration(
+      HibernateCacheProperties properties) {
+    CaffeineConfiguration<Object, Object> configuration = new CaffeineConfiguration<>();
+    configuration.setMaximumSize(OptionalLong.of(properties.maximumSize()));
+    configuration.setExpireAfterWrite(OptionalLong.of(properties.ttl().toNanos()));
+    // Hibernate caches its own disassembled state; copying it again on every access is waste
+    configuration.setStoreByValue(false);
+    configuration.setStatisticsEnabled(true);
+    return configuration;
+  }
+}
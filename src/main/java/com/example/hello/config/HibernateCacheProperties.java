@@ -0,0 +1,12 @@
+package com.example.hello.config;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Sizing of each Hibernate second-level cache region. */
+@ConfigurationProperties(prefix = "app.hibernate-cache")
+public record HibernateCacheProperties(
+    @DefaultValue("10000") long maximumSize, // upper bound on entries per region
+    @DefaultValue("1h") Duration ttl // time after write before an entry is evicted
+    ) {}
@@ -0,0 +1,54 @@
+package com.example.hello.config;
+
+import com.example.hello.security.CachedClientRegistrationRepository;
+import com.example.hello.security.CachedIdTokenDecoderFactory;
+import com.example.hello.security.OidcProviderCache;
+import com.example.hello.security.OidcProviderCacheProperties;
+import com.example.hello.security.ProviderIdTokenDecoderFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+
+/**
+ * Builds the client registrations from locally cached OIDC discovery metadata and JWKS, so startup
+ * does not wait on (or fail with) the identity providers. With {@code app.oidc-cache.enabled=false}
+ * Spring Boot's own registration repository, which fetches discovery at startup, is used instead.
+ */
+@Configuration
+@ConditionalOnProperty(
+    prefix = "app.oidc-cache",
+    name = "enabled",
+    havingValue = "true",
+    matchIfMissing = true)
+@EnableConfigurationProperties(OAuth2ClientProperties.class)
+public class OidcProviderCacheConfig {
+
+  @Bean
+  public OidcProviderCache oidcProviderCache(
+      ClientHttpRequestFactory providerRequestFactory,
+      OidcProviderCacheProperties properties,
+      MeterRegistry meterRegistry) {
+    return new OidcProviderCache(providerRequestFactory, properties, meterRegistry);
+  }
+
+  @Bean
+  public ClientRegistrationRepository clientRegistrationRepository(
+      OAuth2ClientProperties properties, OidcProviderCache oidcProviderCache) {
+    return new CachedClientRegistrationRepository(properties, oidcProviderCache);
+  }
+
+  /** Picked up by {@code oauth2Login} for verifying OIDC ID tokens. */
+  @Bean
+  public JwtDecoderFactory<ClientRegistration> idTokenDecoderFactory(
+      OidcProviderCache oidcProviderCache, ClientHttpRequestFactory providerRequestFactory) {
+    return new CachedIdTokenDecoderFactory(
+        oidcProviderCache, new ProviderIdTokenDecoderFactory(providerRequestFactory));
+  }
+}
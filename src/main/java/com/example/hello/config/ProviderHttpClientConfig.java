@@ -0,0 +1,102 @@
+package com.example.hello.config;
+
+import com.example.hello.security.ProviderIdTokenDecoderFactory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.httpcomponents.hc5.PoolingHttpClientConnectionManagerMetricsBinder;
+import org.apache.hc.client5.http.HttpRoute;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.DefaultConnectionKeepAliveStrategy;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.http.HttpHost;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+
+/**
+ * Shared, pooled HTTP client for every call a login makes to the OAuth2 providers (token exchange,
+ * userinfo, ID token JWKS, GitHub emails). Pool utilization is published as {@code
+ * httpcomponents.httpclient.pool.*} meters tagged {@code httpclient=provider}.
+ */
+@Configuration
+public class ProviderHttpClientConfig {
+
+  @Bean(destroyMethod = "close")
+  public PoolingHttpClientConnectionManager providerConnectionManager(
+      ProviderHttpClientProperties properties, MeterRegistry meterRegistry) {
+    PoolingHttpClientConnectionManager connectionManager =
+        PoolingHttpClientConnectionManagerBuilder.create()
+            .setMaxConnTotal(properties.maxConnections())
+            .setMaxConnPerRoute(properties.maxConnectionsPerHost())
+            .setDefaultConnectionConfig(
+                ConnectionConfig.custom()
+                    .setConnectTimeout(Timeout.of(properties.connectTimeout()))
+                    .setSocketTimeout(Timeout.of(properties.readTimeout()))
+                    .setTimeToLive(TimeValue.of(properties.connectionTtl()))
+                    .setValidateAfterInactivity(TimeValue.ofSeconds(2))
+                    .build())
+            .build();
+    properties
+        .hostLimits()
+        .forEach(
+            (host, max) ->
+                connectionManager.setMaxPerRoute(
+                    new HttpRoute(new HttpHost("https", host, 443)), max));
+    new PoolingHttpClientConnectionManagerMetricsBinder(connectionManager, "provider")
+        .bindTo(meterRegistry);
+    return connectionManager;
+  }
+
+  @Bean(destroyMethod = "close")
+  public CloseableHttpClient providerHttpClient(
+      PoolingHttpClientConnectionManager providerConnectionManager,
+      ProviderHttpClientProperties properties) {
+    TimeValue maxKeepAlive = TimeValue.of(properties.keepAlive());
+    return HttpClients.custom()
+        .setConnectionManager(providerConnectionManager)
+        .setDefaultRequestConfig(
+            RequestConfig.custom()
+                .setConnectionRequestTimeout(Timeout.of(properties.poolTimeout()))
+                .setResponseTimeout(Timeout.of(properties.readTimeout()))
+                .build())
+        // Honour the server's Keep-Alive hint but never keep a connection longer than configured
+        .setKeepAliveStrategy(
+            (response, context) -> {
+              TimeValue hint =
+                  DefaultConnectionKeepAliveStrategy.INSTANCE.getKeepAliveDuration(
+                      response, context);
+              return TimeValue.isPositive(hint) && hint.compareTo(maxKeepAlive) < 0
+                  ? hint
+                  : maxKeepAlive;
+            })
+        .evictExpiredConnections()
+        .evictIdleConnections(maxKeepAlive)
+        .disableCookieManagement()
+        .build();
+  }
+
+  @Bean
+  public ClientHttpRequestFactory providerRequestFactory(
+      CloseableHttpClient providerHttpClient, ProviderHttpClientProperties properties) {
+    return new DeadlineClientHttpRequestFactory(providerHttpClient, properties.totalTimeout());
+  }
+
+  /**
+   * Picked up by {@code oauth2Login} for verifying OIDC ID tokens when {@code app.oidc-cache} is
+   * off (with it on, {@link OidcProviderCacheConfig} provides the decoders).
+   */
+  @Bean
+  @ConditionalOnProperty(prefix = "app.oidc-cache", name = "enabled", havingValue = "false")
+  public JwtDecoderFactory<ClientRegistration> idTokenDecoderFactory(
+      ClientHttpRequestFactory providerRequestFactory) {
+    return new ProviderIdTokenDecoderFactory(providerRequestFactory);
+  }
+}
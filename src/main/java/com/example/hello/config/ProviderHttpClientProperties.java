@@ -0,0 +1,25 @@
+package com.example.hello.config;
+
+import java.time.Duration;
+import java.util.Map;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Pool sizing and deadlines for outbound calls to the OAuth2 providers. */
+@ConfigurationProperties(prefix = "app.provider-http")
+public record ProviderHttpClientProperties(
+    @DefaultValue("50") int maxConnections, // across all hosts
+    @DefaultValue("20") int maxConnectionsPerHost, // default per host
+    Map<String, Integer> hostLimits, // per-host overrides for https hosts, e.g. api.github.com
+    @DefaultValue("2s") Duration connectTimeout, // TCP + TLS handshake
+    @DefaultValue("5s") Duration readTimeout, // max gap between bytes of the response
+    @DefaultValue("1s") Duration poolTimeout, // wait for a free pooled connection
+    @DefaultValue("10s") Duration totalTimeout, // hard deadline for the whole exchange
+    @DefaultValue("30s") Duration keepAlive, // upper bound for keeping idle connections
+    @DefaultValue("5m") Duration connectionTtl // recycle connections after this long
+    ) {
+
+  public ProviderHttpClientProperties {
+    hostLimits = hostLimits == null ? Map.of() : Map.copyOf(hostLimits);
+  }
+}
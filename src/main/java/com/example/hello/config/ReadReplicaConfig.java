@@ -0,0 +1,49 @@
+package com.example.hello.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import javax.sql.DataSource;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.autoconfigure.jdbc.DataSourceProperties;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+
+/**
+ * Sends read-only transactions to the {@code app.read-replicas} and everything else to the {@code
+ * spring.datasource} primary. The routing happens in a {@link LazyConnectionDataSourceProxy}, which
+ * defers fetching a connection until the first statement, by when the transaction manager has
+ * marked it read-only or not. Read-only transactions joining a read-write one stay on its primary
+ * connection.
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "app.read-replicas", name = "enabled", havingValue = "true")
+public class ReadReplicaConfig {
+
+  /** The pool Spring Boot would have created from {@code spring.datasource}. */
+  @Bean
+  @ConfigurationProperties("spring.datasource.hikari")
+  public HikariDataSource primaryDataSource(DataSourceProperties properties) {
+    return properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+  }
+
+  @Bean
+  public ReplicaRoutingDataSource replicaDataSource(
+      HikariDataSource primaryDataSource,
+      ReadReplicaProperties properties,
+      MeterRegistry meterRegistry) {
+    return new ReplicaRoutingDataSource(primaryDataSource, properties, meterRegistry);
+  }
+
+  @Bean
+  @Primary
+  public DataSource dataSource(
+      HikariDataSource primaryDataSource, ReplicaRoutingDataSource replicaDataSource) {
+    LazyConnectionDataSourceProxy dataSource =
+        new LazyConnectionDataSourceProxy(new ReadYourWritesDataSource(primaryDataSource));
+    dataSource.setReadOnlyDataSource(replicaDataSource);
+    return dataSource;
+  }
+}
@@ -0,0 +1,23 @@
+package com.example.hello.config;
+
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Read replicas that serve {@code @Transactional(readOnly = true)} work. */
+@ConfigurationProperties(prefix = "app.read-replicas")
+public record ReadReplicaProperties(
+    @DefaultValue("false") boolean enabled, // false: everything uses spring.datasource
+    List<Replica> replicas, // tried round-robin; empty or all down: the primary
+    @DefaultValue("5s") Duration healthCheckInterval, // how often replicas are probed
+    @DefaultValue("1s") Duration connectionTimeout, // wait for a replica connection
+    @DefaultValue("10") int maximumPoolSize // connections per replica
+    ) {
+
+  public ReadReplicaProperties {
+    replicas = replicas == null ? List.of() : List.copyOf(replicas);
+  }
+
+  public record Replica(String url, String username, String password) {}
+}
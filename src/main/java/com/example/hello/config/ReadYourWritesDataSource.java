@@ -0,0 +1,59 @@
+package com.example.hello.config;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+import javax.sql.DataSource;
+import org.springframework.jdbc.datasource.DelegatingDataSource;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+
+/**
+ * The primary, as seen by read-write work. Once a read-write transaction has committed during an
+ * HTTP request, the rest of that request reads from the primary too, so it sees its own writes even
+ * when the replicas lag. Read-only work served by the primary does not pin the request.
+ */
+final class ReadYourWritesDataSource extends DelegatingDataSource {
+
+  private static final String PINNED = ReadYourWritesDataSource.class.getName() + ".PINNED";
+
+  ReadYourWritesDataSource(DataSource primary) {
+    super(primary);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    pinAfterCommit();
+    return super.getConnection();
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    pinAfterCommit();
+    return super.getConnection(username, password);
+  }
+
+  /** Whether the current request has committed a read-write transaction. */
+  static boolean isPinned() {
+    RequestAttributes request = RequestContextHolder.getRequestAttributes();
+    return request != null && request.getAttribute(PINNED, RequestAttributes.SCOPE_REQUEST) != null;
+  }
+
+  private static void pinAfterCommit() {
+    RequestAttributes request = RequestContextHolder.getRequestAttributes();
+    if (request == null
+        || !TransactionSynchronizationManager.isSynchronizationActive()
+        // Read-only work that landed here, e.g. without a transaction, wrote nothing
+        || TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+      return;
+    }
+    TransactionSynchronizationManager.registerSynchronization(
+        new TransactionSynchronization() {
+          @Override
+          public void afterCommit() {
+            request.setAttribute(PINNED, Boolean.TRUE, RequestAttributes.SCOPE_REQUEST);
+          }
+        });
+  }
+}
@@ -0,0 +1,150 @@
+package com.example.hello.config;
+
+import com.zaxxer.hikari.HikariDataSource;
+import com.zaxxer.hikari.metrics.micrometer.MicrometerMetricsTrackerFactory;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sql.DataSource;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+
+/**
+ * Connections for read-only work: round-robin over the replicas that are up, falling back to the
+ * primary when none is, or when the current request has written (see {@link
+ * ReadYourWritesDataSource}). A replica is ejected when it fails to hand out a connection or a
+ * background probe every {@code health-check-interval}, and put back once a probe succeeds.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+  private final DataSource primary;
+  private final List<Replica> replicas = new ArrayList<>();
+  private final AtomicInteger next = new AtomicInteger();
+  private final ScheduledExecutorService prober;
+  private final Counter fallbacks;
+
+  public ReplicaRoutingDataSource(
+      DataSource primary, ReadReplicaProperties properties, MeterRegistry meterRegistry) {
+    this.primary = primary;
+    for (ReadReplicaProperties.Replica replica : properties.replicas()) {
+      HikariDataSource pool = new HikariDataSource();
+      pool.setPoolName("replica-" + replicas.size());
+      pool.setJdbcUrl(replica.url());
+      pool.setUsername(replica.username());
+      pool.setPassword(replica.password());
+      pool.setReadOnly(true);
+      pool.setMaximumPoolSize(properties.maximumPoolSize());
+      pool.setConnectionTimeout(properties.connectionTimeout().toMillis());
+      // Start even if the replica is down; the prober ejects it
+      pool.setInitializationFailTimeout(-1);
+      pool.setMetricsTrackerFactory(new MicrometerMetricsTrackerFactory(meterRegistry));
+      replicas.add(new Replica(pool));
+    }
+    this.fallbacks = meterRegistry.counter("app.datasource.replica.fallback");
+    Gauge.builder("app.datasource.replica.healthy", this, ReplicaRoutingDataSource::healthyReplicas)
+        .register(meterRegistry);
+
+    this.prober =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "replica-prober");
+              t.setDaemon(true);
+              return t;
+            });
+    long intervalMs = properties.healthCheckInterval().toMillis();
+    prober.scheduleWithFixedDelay(this::probe, 0, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  @Override
+  public Connection getConnection() throws SQLException {
+    return route(DataSource::getConnection);
+  }
+
+  @Override
+  public Connection getConnection(String username, String password) throws SQLException {
+    return route(target -> target.getConnection(username, password));
+  }
+
+  /** Replicas currently taking reads. */
+  public int healthyReplicas() {
+    return (int) replicas.stream().filter(r -> r.up.get()).count();
+  }
+
+  @Override
+  public void close() {
+    prober.shutdownNow();
+    replicas.forEach(r -> r.pool.close());
+  }
+
+  /** A connection from the next replica that is up, or from the primary. */
+  private Connection route(ConnectionSource source) throws SQLException {
+    if (!ReadYourWritesDataSource.isPinned()) {
+      int size = replicas.size();
+      int start = size == 0 ? 0 : Math.floorMod(next.getAndIncrement(), size);
+      for (int i = 0; i < size; i++) {
+        Replica replica = replicas.get((start + i) % size);
+        if (!replica.up.get()) continue;
+        try {
+          return source.get(replica.pool);
+        } catch (SQLFeatureNotSupportedException e) {
+          // The call, not the replica, is at fault
+          throw e;
+        } catch (SQLException e) {
+          eject(replica, e);
+        }
+      }
+      if (size > 0) {
+        fallbacks.increment();
+      }
+    }
+    return source.get(primary);
+  }
+
+  private void probe() {
+    for (Replica replica : replicas) {
+      try (Connection connection = replica.pool.getConnection()) {
+        if (!connection.isValid(1)) {
+          throw new SQLException("Connection is not valid");
+        }
+        if (replica.up.compareAndSet(false, true)) {
+          log.info("Replica {} is back, routing reads to it", replica.pool.getPoolName());
+        }
+      } catch (SQLException | RuntimeException e) {
+        eject(replica, e);
+      }
+    }
+  }
+
+  private static void eject(Replica replica, Exception cause) {
+    if (replica.up.compareAndSet(true, false)) {
+      log.warn(
+          "Replica {} is down, ejected until a probe succeeds: {}",
+          replica.pool.getPoolName(),
+          cause.toString());
+    }
+  }
+
+  @FunctionalInterface
+  private interface ConnectionSource {
+    Connection get(DataSource target) throws SQLException;
+  }
+
+  private record Replica(HikariDataSource pool, AtomicBoolean up) {
+    Replica(HikariDataSource pool) {
+      this(pool, new AtomicBoolean(true));
+    }
+  }
+}
@@ -1,35 +1,116 @@
 package com.example.hello.config;
 
+import com.example.hello.security.AdminProperties;
+import com.example.hello.security.CookieOAuth2AuthorizationRequestRepository;
+import com.example.hello.security.CookieSecurityContextRepository;
 import com.example.hello.security.CustomOAuth2UserService;
+import com.example.hello.security.CustomOidcUserService;
+import com.example.hello.security.ProviderProfile;
+import com.example.hello.security.ProviderProfileMapper;
+import com.example.hello.security.SessionProperties;
+import com.example.hello.security.SessionUser;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import java.util.Arrays;
+import java.util.List;
 import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
+import org.springframework.boot.actuate.autoconfigure.web.server.ManagementPortType;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.core.env.Environment;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.converter.FormHttpMessageConverter;
+import org.springframework.security.authorization.AuthorizationDecision;
+import org.springframework.security.authorization.AuthorizationManager;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.oauth2.client.OAuth2AuthorizedClient;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.client.endpoint.DefaultAuthorizationCodeTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AccessTokenResponseClient;
+import org.springframework.security.oauth2.client.endpoint.OAuth2AuthorizationCodeGrantRequest;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.web.OAuth2AuthorizedClientRepository;
+import org.springframework.security.oauth2.core.http.converter.OAuth2AccessTokenResponseHttpMessageConverter;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.access.intercept.RequestAuthorizationContext;
+import org.springframework.security.web.authentication.AuthenticationFailureHandler;
+import org.springframework.security.web.authentication.HttpStatusEntryPoint;
 import org.springframework.security.web.authentication.LoginUrlAuthenticationEntryPoint;
+import org.springframework.security.web.authentication.SimpleUrlAuthenticationFailureHandler;
+import org.springframework.security.web.csrf.CookieCsrfTokenRepository;
+import org.springframework.security.web.savedrequest.NullRequestCache;
+import org.springframework.web.client.RestTemplate;
 
 @Configuration
 @EnableWebSecurity
 public class SecurityConfig {
 
+  /**
+   * Actuator endpoints, served on the internal {@code management.server.port}. Probes and the
+   * Prometheus scrape are open there so a scraper needs no login; the other endpoints expose
+   * traffic and user counts and are limited to {@code app.admin.users}. If actuator shares the
+   * application port, the scrape is limited to admins too.
+   */
+  @Bean
+  @Order(1)
+  public SecurityFilterChain actuatorFilterChain(
+      HttpSecurity http,
+      Environment env,
+      AdminProperties adminProperties,
+      ObjectProvider<CookieSecurityContextRepository> cookieContextRepository)
+      throws Exception {
+    boolean internalPort = ManagementPortType.get(env) == ManagementPortType.DIFFERENT;
+    String[] open =
+        internalPort
+            ? new String[] {"health", "info", "prometheus"}
+            : new String[] {"health", "info"};
+    http.securityMatcher(EndpointRequest.toAnyEndpoint())
+        .authorizeHttpRequests(
+            auth ->
+                auth.requestMatchers(EndpointRequest.to(open))
+                    .permitAll()
+                    .anyRequest()
+                    .access(adminOnly(adminProperties)))
+        // There is no login page on the management port
+        .exceptionHandling(
+            ex -> ex.authenticationEntryPoint(new HttpStatusEntryPoint(HttpStatus.UNAUTHORIZED)))
+        .requestCache(c -> c.requestCache(new NullRequestCache()));
+
+    CookieSecurityContextRepository cookieSessions = cookieContextRepository.getIfAvailable();
+    if (cookieSessions != null) {
+      http.securityContext(c -> c.securityContextRepository(cookieSessions))
+          .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS));
+    }
+    return http.build();
+  }
+
   @Bean
   public SecurityFilterChain securityFilterChain(
       HttpSecurity http,
       ObjectProvider<ClientRegistrationRepository> clientRegistrations,
       Environment env,
-      CustomOAuth2UserService customOAuth2UserService)
+      CustomOAuth2UserService customOAuth2UserService,
+      CustomOidcUserService customOidcUserService,
+      ClientHttpRequestFactory providerRequestFactory,
+      SessionProperties sessionProperties,
+      AdminProperties adminProperties,
+      ObjectProvider<CookieSecurityContextRepository> cookieContextRepository,
+      ObjectProvider<CookieOAuth2AuthorizationRequestRepository> cookieAuthorizationRequests)
       throws Exception {
     http.authorizeHttpRequests(
             auth ->
                 auth.requestMatchers(
                         "/", "/login", "/error", "/css/**", "/js/**", "/images/**", "/favicon.ico")
                     .permitAll()
-                    .requestMatchers("/actuator/health", "/actuator/info")
-                    .permitAll()
+                    .requestMatchers("/admin/**")
+                    .access(adminOnly(adminProperties))
                     .anyRequest()
                     .authenticated())
         .exceptionHandling(
@@ -40,7 +121,7 @@ public class SecurityConfig {
                     .contentSecurityPolicy(
                         csp ->
                             csp.policyDirectives(
-                                "default-src 'self'; img-src 'self' https: data:; style-src 'self' 'unsafe-inline'; script-src 'self'; frame-ancestors 'none'"))
+                                "default-src 'self'; img-src 'self'; style-src 'self' 'unsafe-inline'; script-src 'self'; frame-ancestors 'none'"))
                     .referrerPolicy(
                         ref ->
                             ref.policy(
@@ -51,24 +132,44 @@ public class SecurityConfig {
 
     // Enable OAuth2 login only if client registrations are configured (later phases)
     ClientRegistrationRepository repo = clientRegistrations.getIfAvailable();
+    CookieSecurityContextRepository cookieSessions = cookieContextRepository.getIfAvailable();
     if (repo != null) {
+      var tokenResponseClient = tokenResponseClient(providerRequestFactory);
       boolean devProfile = Arrays.asList(env.getActiveProfiles()).contains("dev");
-      if (devProfile) {
-        http.oauth2Login(
-            oauth ->
-                oauth
-                    .redirectionEndpoint(redir -> redir.baseUri("/auth/callback/*"))
-                    .userInfoEndpoint(u -> u.userService(customOAuth2UserService))
-                    .failureUrl("/login?error")
-                    .defaultSuccessUrl("/me", true));
-      } else {
-        http.oauth2Login(
-            oauth ->
-                oauth
-                    .userInfoEndpoint(u -> u.userService(customOAuth2UserService))
-                    .failureUrl("/login?error")
-                    .defaultSuccessUrl("/me", true));
-      }
+      http.oauth2Login(
+          oauth -> {
+            if (devProfile) {
+              oauth.redirectionEndpoint(redir -> redir.baseUri("/auth/callback/*"));
+            }
+            oauth
+                .tokenEndpoint(t -> t.accessTokenResponseClient(tokenResponseClient))
+                .userInfoEndpoint(
+                    u ->
+                        u.userService(customOAuth2UserService)
+                            .oidcUserService(customOidcUserService))
+                .failureUrl("/login?error")
+                .defaultSuccessUrl("/me", true);
+            if (cookieSessions != null) {
+              oauth
+                  .authorizationEndpoint(
+                      a ->
+                          a.authorizationRequestRepository(cookieAuthorizationRequests.getObject()))
+                  // Tokens are not used after login; don't keep them per user
+                  .authorizedClientRepository(new DiscardingAuthorizedClientRepository())
+                  .failureHandler(statelessFailureHandler());
+            }
+          });
+    }
+
+    if (cookieSessions != null) {
+      // Stateless: nothing may create an HttpSession, so any node can serve any request
+      CookieCsrfTokenRepository csrfTokens = new CookieCsrfTokenRepository();
+      csrfTokens.setCookieCustomizer(c -> c.sameSite("Lax").secure(sessionProperties.secure()));
+      http.securityContext(c -> c.securityContextRepository(cookieSessions))
+          .sessionManagement(s -> s.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+          .requestCache(c -> c.requestCache(new NullRequestCache()))
+          .csrf(c -> c.csrfTokenRepository(csrfTokens));
+      http.logout(logout -> logout.deleteCookies(sessionProperties.cookieName()));
     }
 
     // Default CSRF is enabled by Spring Security
@@ -76,4 +177,74 @@ public class SecurityConfig {
 
     return http.build();
   }
+
+  /**
+   * Logged-in users listed in {@code app.admin.users}; anonymous requests get the entry point. The
+   * key is the mapped profile's provider and external id, so it is the same in both session modes
+   * (for Azure the {@code oid}, not the {@code sub}).
+   */
+  private static AuthorizationManager<RequestAuthorizationContext> adminOnly(
+      AdminProperties adminProperties) {
+    return (authentication, context) ->
+        new AuthorizationDecision(
+            authentication.get() instanceof OAuth2AuthenticationToken token
+                && adminProperties.isAdmin(profileOf(token)));
+  }
+
+  private static ProviderProfile profileOf(OAuth2AuthenticationToken token) {
+    if (token.getPrincipal() instanceof SessionUser sessionUser) {
+      return sessionUser.profile();
+    }
+    return ProviderProfileMapper.fromRegistration(
+        token.getAuthorizedClientRegistrationId(), token.getPrincipal().getAttributes());
+  }
+
+  /** Failure redirect that does not stash the exception in a new {@code HttpSession}. */
+  private static AuthenticationFailureHandler statelessFailureHandler() {
+    SimpleUrlAuthenticationFailureHandler handler =
+        new SimpleUrlAuthenticationFailureHandler("/login?error");
+    handler.setAllowSessionCreation(false);
+    return handler;
+  }
+
+  /** Cookie mode keeps no per-user server state, including the login's access token. */
+  private static final class DiscardingAuthorizedClientRepository
+      implements OAuth2AuthorizedClientRepository {
+
+    @Override
+    public <T extends OAuth2AuthorizedClient> T loadAuthorizedClient(
+        String clientRegistrationId, Authentication principal, HttpServletRequest request) {
+      return null;
+    }
+
+    @Override
+    public void saveAuthorizedClient(
+        OAuth2AuthorizedClient authorizedClient,
+        Authentication principal,
+        HttpServletRequest request,
+        HttpServletResponse response) {}
+
+    @Override
+    public void removeAuthorizedClient(
+        String clientRegistrationId,
+        Authentication principal,
+        HttpServletRequest request,
+        HttpServletResponse response) {}
+  }
+
+  /** Authorization-code exchange through the shared, pooled provider HTTP client. */
+  private static OAuth2AccessTokenResponseClient<OAuth2AuthorizationCodeGrantRequest>
+      tokenResponseClient(ClientHttpRequestFactory providerRequestFactory) {
+    RestTemplate restTemplate =
+        new RestTemplate(
+            List.of(
+                new FormHttpMessageConverter(),
+                new OAuth2AccessTokenResponseHttpMessageConverter()));
+    restTemplate.setRequestFactory(providerRequestFactory);
+    restTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+    DefaultAuthorizationCodeTokenResponseClient client =
+        new DefaultAuthorizationCodeTokenResponseClient();
+    client.setRestOperations(restTemplate);
+    return client;
+  }
 }
@@ -1,32 +1,64 @@
 package com.example.hello.config;
 
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.context.annotation.Profile;
 import org.springframework.security.oauth2.client.registration.ClientRegistration;
 import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.client.registration.ClientRegistrations;
 import org.springframework.security.oauth2.client.registration.InMemoryClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
 
 @Configuration
 @Profile("test")
 public class TestClientsConfig {
 
+  private static final String REDIRECT_URI = "{baseUrl}/login/oauth2/code/{registrationId}";
+
+  /**
+   * GitHub and Azure registrations for the test profile. The GitHub endpoints default to github.com
+   * and can be pointed at a local stand-in (e.g. for load tests) with {@code
+   * app.test-clients.github-url} and {@code app.test-clients.github-api-url}. Azure uses static
+   * Microsoft endpoints, or OIDC discovery against {@code app.test-clients.azure-issuer-url} when
+   * that is set.
+   */
   @Bean
-  public ClientRegistrationRepository clientRegistrationRepository() {
+  public ClientRegistrationRepository clientRegistrationRepository(
+      @Value("${app.test-clients.github-url:https://github.com}") String githubUrl,
+      @Value("${app.test-clients.github-api-url:https://api.github.com}") String githubApiUrl,
+      @Value("${app.test-clients.azure-issuer-url:}") String azureIssuerUrl) {
     ClientRegistration github =
         ClientRegistration.withRegistrationId("github")
             .clientId("test-client-id")
             .clientSecret("test-secret")
-            .authorizationGrantType(
-                org.springframework.security.oauth2.core.AuthorizationGrantType.AUTHORIZATION_CODE)
-            .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri(REDIRECT_URI)
             .scope("read:user", "user:email")
-            .authorizationUri("https://github.com/login/oauth/authorize")
-            .tokenUri("https://github.com/login/oauth/access_token")
-            .userInfoUri("https://api.github.com/user")
+            .authorizationUri(githubUrl + "/login/oauth/authorize")
+            .tokenUri(githubUrl + "/login/oauth/access_token")
+            .userInfoUri(githubApiUrl + "/user")
             .userNameAttributeName("id")
             .clientName("GitHub")
             .build();
-    return new InMemoryClientRegistrationRepository(github);
+    ClientRegistration.Builder azure =
+        azureIssuerUrl.isBlank()
+            ? ClientRegistration.withRegistrationId("azure")
+                .authorizationUri("https://login.microsoftonline.com/common/oauth2/v2.0/authorize")
+                .tokenUri("https://login.microsoftonline.com/common/oauth2/v2.0/token")
+                .jwkSetUri("https://login.microsoftonline.com/common/discovery/v2.0/keys")
+                .userInfoUri("https://graph.microsoft.com/oidc/userinfo")
+                .userNameAttributeName("sub")
+            : ClientRegistrations.fromIssuerLocation(azureIssuerUrl).registrationId("azure");
+    return new InMemoryClientRegistrationRepository(
+        github,
+        azure
+            .clientId("test-azure-client-id")
+            .clientSecret("test-azure-secret")
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri(REDIRECT_URI)
+            .scope("openid", "profile", "email")
+            .clientName("Microsoft 365")
+            .build());
   }
 }
@@ -0,0 +1,30 @@
+package com.example.hello.config;
+
+import com.example.hello.security.LoginMetrics;
+import com.example.hello.web.RenderTimingInterceptor;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+public class WebMvcConfig implements WebMvcConfigurer {
+
+  // Absent in @WebMvcTest slices
+  private final ObjectProvider<LoginMetrics> loginMetrics;
+
+  public WebMvcConfig(ObjectProvider<LoginMetrics> loginMetrics) {
+    this.loginMetrics = loginMetrics;
+  }
+
+  @Override
+  public void addInterceptors(InterceptorRegistry registry) {
+    // Disabled metrics add no interceptor to the request path at all
+    loginMetrics.ifAvailable(
+        metrics -> {
+          if (metrics.enabled()) {
+            registry.addInterceptor(new RenderTimingInterceptor(metrics)).addPathPatterns("/me");
+          }
+        });
+  }
+}
@@ -3,8 +3,26 @@ package com.example.hello.domain;
 import jakarta.persistence.*;
 import java.time.Instant;
 import java.util.UUID;
-
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
+import org.hibernate.annotations.DynamicUpdate;
+import org.hibernate.annotations.NaturalId;
+import org.hibernate.annotations.NaturalIdCache;
+
+/**
+ * A local user, identified by the provider's id for it. Loads by id and by (provider, externalId)
+ * are served from the {@value #CACHE_REGION} second-level cache regions (see {@code
+ * HibernateCacheConfig}); updates through JPA refresh them on commit, JDBC writes must evict.
+ * {@code last_login_at} is written behind by JDBC and is not kept current in the cache.
+ *
+ * <p>Concurrent profile updates are detected through {@code version}. Updates write only the
+ * columns that changed; with a version column Hibernate can still write such updates through to the
+ * cache instead of invalidating the entry.
+ */
 @Entity
+@DynamicUpdate
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = User.CACHE_REGION)
+@NaturalIdCache(region = User.NATURAL_ID_CACHE_REGION)
 @Table(
     name = "app_user",
     uniqueConstraints =
@@ -13,11 +31,18 @@ import java.util.UUID;
             columnNames = {"provider", "external_id"}))
 public class User {
 
-  @Id @GeneratedValue private UUID id;
+  public static final String CACHE_REGION = "app_user";
+  public static final String NATURAL_ID_CACHE_REGION = CACHE_REGION + "##NaturalId";
+
+  @Id @UuidV7 private UUID id;
+
+  @Version private long version;
 
+  @NaturalId
   @Column(nullable = false)
   private String provider; // e.g., AZURE or GITHUB
 
+  @NaturalId
   @Column(name = "external_id", nullable = false)
   private String externalId;
 
@@ -38,9 +63,14 @@ public class User {
   @Column(name = "updated_at", nullable = false)
   private Instant updatedAt;
 
-  @Column(name = "last_login_at")
+  // Written on insert only; later logins go through the write-behind LastLoginWriter
+  @Column(name = "last_login_at", updatable = false)
   private Instant lastLoginAt;
 
+  // ProviderProfile.fingerprint() of the stored profile columns; null if never computed
+  @Column(name = "profile_hash")
+  private Long profileHash;
+
   @PrePersist
   public void prePersist() {
     Instant now = Instant.now();
@@ -62,6 +92,15 @@ public class User {
     this.id = id;
   }
 
+  public long getVersion() {
+    return version;
+  }
+
+  /** For rows read over JDBC; JPA manages the version of the entities it loads. */
+  public void setVersion(long version) {
+    this.version = version;
+  }
+
   public String getProvider() {
     return provider;
   }
@@ -133,4 +172,12 @@ public class User {
   public void setLastLoginAt(Instant lastLoginAt) {
     this.lastLoginAt = lastLoginAt;
   }
+
+  public Long getProfileHash() {
+    return profileHash;
+  }
+
+  public void setProfileHash(Long profileHash) {
+    this.profileHash = profileHash;
+  }
 }
@@ -0,0 +1,80 @@
+package com.example.hello.repository;
+
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.Optional;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * {@code login_sketch}: the HyperLogLog registers of one provider's logins on one UTC day. Rows are
+ * read-modify-written under {@link #lockRegisters}, so nodes merging their sketches into the same
+ * row never overwrite each other's users.
+ */
+@Repository
+public class LoginSketchRepository {
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public LoginSketchRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  public record LoginSketch(String provider, LocalDate day, byte[] registers) {}
+
+  /** Sketches of {@code fromDay} onwards written at or after {@code updatedSince}. */
+  public List<LoginSketch> findSince(LocalDate fromDay, Instant updatedSince) {
+    return jdbcTemplate.query(
+        "SELECT provider, bucket_day, registers FROM login_sketch"
+            + " WHERE bucket_day >= ? AND updated_at >= ?",
+        (rs, i) ->
+            new LoginSketch(
+                rs.getString("provider"),
+                rs.getObject("bucket_day", LocalDate.class),
+                rs.getBytes("registers")),
+        fromDay,
+        timestamp(updatedSince));
+  }
+
+  /** The stored registers, locked until the end of the caller's transaction. */
+  public Optional<byte[]> lockRegisters(String provider, LocalDate day) {
+    return jdbcTemplate
+        .query(
+            "SELECT registers FROM login_sketch WHERE provider = ? AND bucket_day = ? FOR UPDATE",
+            (rs, i) -> rs.getBytes(1),
+            provider,
+            day)
+        .stream()
+        .findFirst();
+  }
+
+  /** Throws {@link org.springframework.dao.DuplicateKeyException} if another node got first. */
+  public void insert(String provider, LocalDate day, byte[] registers, Instant now) {
+    jdbcTemplate.update(
+        "INSERT INTO login_sketch (provider, bucket_day, registers, updated_at) VALUES (?, ?, ?, ?)",
+        provider,
+        day,
+        registers,
+        timestamp(now));
+  }
+
+  public void update(String provider, LocalDate day, byte[] registers, Instant now) {
+    jdbcTemplate.update(
+        "UPDATE login_sketch SET registers = ?, updated_at = ? WHERE provider = ? AND bucket_day = ?",
+        registers,
+        timestamp(now),
+        provider,
+        day);
+  }
+
+  public int deleteBefore(LocalDate day) {
+    return jdbcTemplate.update("DELETE FROM login_sketch WHERE bucket_day < ?", day);
+  }
+
+  private static OffsetDateTime timestamp(Instant at) {
+    return at.atOffset(ZoneOffset.UTC);
+  }
+}
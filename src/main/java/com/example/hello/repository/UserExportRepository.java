@@ -0,0 +1,64 @@
+package com.example.hello.repository;
+
+import com.example.hello.domain.User;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Reads {@code app_user} for bulk export through a forward-only, read-only JDBC cursor: rows are
+ * fetched {@code fetchSize} at a time and handed over one by one, so nothing accumulates however
+ * large the table is. PostgreSQL only streams with a fetch size inside a transaction; callers run
+ * this in a read-only one.
+ */
+@Repository
+public class UserExportRepository {
+
+  private static final String SQL =
+      "SELECT id, provider, external_id, username, display_name, email, avatar_url, created_at,"
+          + " updated_at, last_login_at, version FROM app_user"
+          + " WHERE updated_at >= ? AND updated_at < ? ORDER BY updated_at, id";
+
+  private final JdbcTemplate jdbcTemplate;
+
+  public UserExportRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /** A detached user per row; the same row is never handed over twice. */
+  @FunctionalInterface
+  public interface RowHandler {
+    void handle(User user) throws IOException;
+  }
+
+  /**
+   * Users with {@code since <= updated_at < until}, oldest change first. Returns the number of
+   * rows.
+   */
+  public long forEachUpdated(Instant since, Instant until, int fetchSize, RowHandler handler) {
+    long[] rows = {0};
+    jdbcTemplate.query(
+        con -> {
+          PreparedStatement ps =
+              con.prepareStatement(SQL, ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+          ps.setFetchSize(fetchSize);
+          ps.setObject(1, since.atOffset(ZoneOffset.UTC));
+          ps.setObject(2, until.atOffset(ZoneOffset.UTC));
+          return ps;
+        },
+        rs -> {
+          try {
+            handler.handle(UserUpsertRepository.mapUser(rs));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+          rows[0]++;
+        });
+    return rows[0];
+  }
+}
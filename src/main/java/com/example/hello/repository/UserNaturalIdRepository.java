@@ -0,0 +1,13 @@
+package com.example.hello.repository;
+
+import com.example.hello.domain.User;
+import java.util.Optional;
+
+/**
+ * Lookup of a user by its natural id, (provider, externalId), through Hibernate's natural-id API so
+ * it is answered from the second-level cache when possible. A derived query would always go to the
+ * database.
+ */
+public interface UserNaturalIdRepository {
+  Optional<User> findByProviderAndExternalId(String provider, String externalId);
+}
@@ -0,0 +1,24 @@
+package com.example.hello.repository;
+
+import com.example.hello.domain.User;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import java.util.Optional;
+import org.hibernate.Session;
+import org.springframework.transaction.annotation.Transactional;
+
+class UserNaturalIdRepositoryImpl implements UserNaturalIdRepository {
+
+  @PersistenceContext private EntityManager entityManager;
+
+  @Override
+  @Transactional(readOnly = true)
+  public Optional<User> findByProviderAndExternalId(String provider, String externalId) {
+    return entityManager
+        .unwrap(Session.class)
+        .byNaturalId(User.class)
+        .using("provider", provider)
+        .using("externalId", externalId)
+        .loadOptional();
+  }
+}
@@ -1,10 +1,7 @@
 package com.example.hello.repository;
 
 import com.example.hello.domain.User;
-import java.util.Optional;
 import java.util.UUID;
 import org.springframework.data.jpa.repository.JpaRepository;
 
-public interface UserRepository extends JpaRepository<User, UUID> {
-  Optional<User> findByProviderAndExternalId(String provider, String externalId);
-}
+public interface UserRepository extends JpaRepository<User, UUID>, UserNaturalIdRepository {}
@@ -0,0 +1,325 @@
+package com.example.hello.repository;
+
+import com.example.hello.domain.User;
+import com.example.hello.domain.UuidV7Generator;
+import com.example.hello.security.ProviderProfile;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+
+/**
+ * Single-statement upsert of a user keyed by (provider, external_id). On PostgreSQL this is {@code
+ * INSERT ... ON CONFLICT DO UPDATE ... RETURNING}; on H2 (dev/test, PostgreSQL mode) the equivalent
+ * {@code MERGE ... USING} read through a {@code FINAL TABLE}. Existing rows are only updated when
+ * the stored {@code profile_hash} differs from {@link ProviderProfile#fingerprint()}, and the key
+ * columns are never rewritten. {@link #upsertAll} applies the same rules to a chunk of bulk
+ * onboarding as one JDBC batch.
+ *
+ * <p>A changed row gets all of its profile columns, unlike the {@code @DynamicUpdate} JPA path.
+ * This is deliberate: both databases write a whole new row version for any update, and the
+ * always-moving {@code updated_at} is indexed, so per-column {@code CASE} guards would save no I/O,
+ * only lengthen the statement. {@code @DynamicUpdate} pays off for Hibernate, which otherwise binds
+ * every column.
+ */
+@Repository
+public class UserUpsertRepository {
+
+  private static final String COLUMNS =
+      "id, provider, external_id, username, display_name, email, avatar_url, created_at,"
+          + " updated_at, last_login_at, profile_hash";
+  // What the statements return: the written columns plus the version they leave behind
+  private static final String RESULT_COLUMNS = COLUMNS + ", version";
+
+  // An unchanged row is not returned by the upsert itself, so the CTE falls back to reading it
+  // in the same statement. last_login_at is only written on insert (see LastLoginWriter).
+  private static final String POSTGRES_SQL =
+      "WITH upserted AS ("
+          + " INSERT INTO app_user AS u ("
+          + COLUMNS
+          + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+          + " ON CONFLICT (provider, external_id) DO UPDATE SET"
+          + " username = EXCLUDED.username, display_name = EXCLUDED.display_name,"
+          + " email = EXCLUDED.email, avatar_url = EXCLUDED.avatar_url,"
+          + " updated_at = EXCLUDED.updated_at, profile_hash = EXCLUDED.profile_hash,"
+          + " version = u.version + 1"
+          + " WHERE u.profile_hash IS DISTINCT FROM EXCLUDED.profile_hash"
+          + " RETURNING "
+          + prefixed("u")
+          + ", u.version)"
+          + " SELECT "
+          + RESULT_COLUMNS
+          + ", FALSE AS unchanged FROM upserted"
+          + " UNION ALL SELECT "
+          + RESULT_COLUMNS
+          + ", TRUE AS unchanged FROM app_user"
+          + " WHERE provider = ? AND external_id = ? AND NOT EXISTS (SELECT 1 FROM upserted)";
+
+  private static final String H2_SQL =
+      "SELECT "
+          + RESULT_COLUMNS
+          + ", FALSE AS unchanged FROM FINAL TABLE ("
+          + " MERGE INTO app_user u USING (VALUES ("
+          + "CAST(? AS UUID), CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR),"
+          + " CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR),"
+          + " CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS TIMESTAMP WITH TIME ZONE),"
+          + " CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS BIGINT))) AS s("
+          + COLUMNS
+          + ") ON u.provider = s.provider AND u.external_id = s.external_id"
+          + " WHEN MATCHED AND u.profile_hash IS DISTINCT FROM s.profile_hash THEN UPDATE SET"
+          + " username = s.username, display_name = s.display_name, email = s.email,"
+          + " avatar_url = s.avatar_url, updated_at = s.updated_at, profile_hash = s.profile_hash,"
+          + " version = u.version + 1"
+          + " WHEN NOT MATCHED THEN INSERT ("
+          + COLUMNS
+          + ") VALUES ("
+          + prefixed("s")
+          + "))";
+
+  private static final String SELECT_SQL =
+      "SELECT "
+          + RESULT_COLUMNS
+          + ", TRUE AS unchanged FROM app_user WHERE provider = ? AND external_id = ?";
+
+  // Bulk onboarding: batched, without RETURNING, and not a login (no last_login_at)
+  private static final String BATCH_COLUMNS =
+      "id, provider, external_id, username, display_name, email, avatar_url, created_at,"
+          + " updated_at, profile_hash";
+
+  private static final String POSTGRES_BATCH_SQL =
+      "INSERT INTO app_user AS u ("
+          + BATCH_COLUMNS
+          + ") VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)"
+          + " ON CONFLICT (provider, external_id) DO UPDATE SET"
+          + " username = EXCLUDED.username, display_name = EXCLUDED.display_name,"
+          + " email = EXCLUDED.email, avatar_url = EXCLUDED.avatar_url,"
+          + " updated_at = EXCLUDED.updated_at, profile_hash = EXCLUDED.profile_hash,"
+          + " version = u.version + 1"
+          + " WHERE u.profile_hash IS DISTINCT FROM EXCLUDED.profile_hash";
+
+  private static final String H2_BATCH_SQL =
+      "MERGE INTO app_user u USING (VALUES ("
+          + "CAST(? AS UUID), CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR),"
+          + " CAST(? AS VARCHAR), CAST(? AS VARCHAR), CAST(? AS VARCHAR),"
+          + " CAST(? AS TIMESTAMP WITH TIME ZONE), CAST(? AS TIMESTAMP WITH TIME ZONE),"
+          + " CAST(? AS BIGINT))) AS s("
+          + BATCH_COLUMNS
+          + ") ON u.provider = s.provider AND u.external_id = s.external_id"
+          + " WHEN MATCHED AND u.profile_hash IS DISTINCT FROM s.profile_hash THEN UPDATE SET"
+          + " username = s.username, display_name = s.display_name, email = s.email,"
+          + " avatar_url = s.avatar_url, updated_at = s.updated_at, profile_hash = s.profile_hash,"
+          + " version = u.version + 1"
+          + " WHEN NOT MATCHED THEN INSERT ("
+          + BATCH_COLUMNS
+          + ") VALUES ("
+          + "s."
+          + BATCH_COLUMNS.replace(", ", ", s.")
+          + ")";
+
+  private final JdbcTemplate jdbcTemplate;
+  private volatile Boolean postgres;
+
+  public UserUpsertRepository(JdbcTemplate jdbcTemplate) {
+    this.jdbcTemplate = jdbcTemplate;
+  }
+
+  /**
+   * Creates the user or updates its profile columns if they changed, in one round trip (two on H2
+   * when nothing changed). A new row gets {@code lastLoginAt = now}; existing rows keep theirs.
+   */
+  public Result upsert(ProviderProfile profile, Instant now) {
+    UUID newId = UuidV7Generator.next();
+    OffsetDateTime ts = now.atOffset(ZoneOffset.UTC);
+    Object[] values = {
+      newId,
+      profile.provider(),
+      profile.externalId(),
+      profile.username(),
+      profile.displayName(),
+      profile.email(),
+      profile.avatarUrl(),
+      ts,
+      ts,
+      ts,
+      profile.fingerprint()
+    };
+    List<Result> rows;
+    if (isPostgres()) {
+      Object[] args = new Object[values.length + 2];
+      System.arraycopy(values, 0, args, 0, values.length);
+      args[values.length] = profile.provider();
+      args[values.length + 1] = profile.externalId();
+      rows = jdbcTemplate.query(POSTGRES_SQL, resultMapper(newId), args);
+    } else {
+      rows = jdbcTemplate.query(H2_SQL, resultMapper(newId), values);
+      if (rows.isEmpty()) {
+        rows =
+            jdbcTemplate.query(
+                SELECT_SQL, resultMapper(newId), profile.provider(), profile.externalId());
+      }
+    }
+    if (rows.isEmpty()) {
+      // PostgreSQL only: a concurrent insert committed after our snapshot and was unchanged
+      rows =
+          jdbcTemplate.query(
+              SELECT_SQL, resultMapper(newId), profile.provider(), profile.externalId());
+    }
+    return rows.get(0);
+  }
+
+  /**
+   * Upserts a chunk of profiles with distinct (provider, external_id) keys: one SELECT of the
+   * existing rows, then one JDBC batch with the new and changed ones. Unchanged profiles are not
+   * written. Run it in a transaction to make the chunk atomic.
+   */
+  public BatchResult upsertAll(Collection<ProviderProfile> profiles, Instant now) {
+    Map<List<String>, Long> existing = findProfileHashes(profiles);
+    OffsetDateTime ts = now.atOffset(ZoneOffset.UTC);
+    List<ProviderProfile> created = new ArrayList<>();
+    List<ProviderProfile> updated = new ArrayList<>();
+    List<Object[]> rows = new ArrayList<>();
+    for (ProviderProfile profile : profiles) {
+      List<String> key = List.of(profile.provider(), profile.externalId());
+      long fingerprint = profile.fingerprint();
+      if (!existing.containsKey(key)) {
+        created.add(profile);
+      } else if (!Long.valueOf(fingerprint).equals(existing.get(key))) {
+        updated.add(profile);
+      } else {
+        continue;
+      }
+      rows.add(
+          new Object[] {
+            UuidV7Generator.next(),
+            profile.provider(),
+            profile.externalId(),
+            profile.username(),
+            profile.displayName(),
+            profile.email(),
+            profile.avatarUrl(),
+            ts,
+            ts,
+            fingerprint
+          });
+    }
+    if (!rows.isEmpty()) {
+      jdbcTemplate.batchUpdate(isPostgres() ? POSTGRES_BATCH_SQL : H2_BATCH_SQL, rows);
+    }
+    return new BatchResult(created, updated, profiles.size() - rows.size());
+  }
+
+  /**
+   * The stored {@code profile_hash} (null if never computed) of those of {@code profiles} that
+   * exist, by (provider, external_id).
+   */
+  private Map<List<String>, Long> findProfileHashes(Collection<ProviderProfile> profiles) {
+    if (profiles.isEmpty()) return Map.of();
+    // A join on the unique key: row-value IN lists are not matched against the index by H2
+    String sql =
+        "SELECT u.provider, u.external_id, u.profile_hash"
+            + " FROM (VALUES "
+            + String.join(
+                ", ",
+                Collections.nCopies(profiles.size(), "(CAST(? AS VARCHAR), CAST(? AS VARCHAR))"))
+            + ") AS k(provider, external_id)"
+            + " JOIN app_user u ON u.provider = k.provider AND u.external_id = k.external_id";
+    Object[] keys = new Object[profiles.size() * 2];
+    int i = 0;
+    for (ProviderProfile profile : profiles) {
+      keys[i++] = profile.provider();
+      keys[i++] = profile.externalId();
+    }
+    Map<List<String>, Long> found = new HashMap<>();
+    jdbcTemplate.query(
+        sql,
+        rs -> {
+          found.put(
+              List.of(rs.getString("provider"), rs.getString("external_id")),
+              rs.getObject("profile_hash", Long.class));
+        },
+        keys);
+    return found;
+  }
+
+  private boolean isPostgres() {
+    Boolean result = postgres;
+    if (result == null) {
+      try {
+        String product =
+            JdbcUtils.extractDatabaseMetaData(
+                jdbcTemplate.getDataSource(), md -> md.getDatabaseProductName());
+        result = product != null && product.toLowerCase().contains("postgres");
+      } catch (Exception e) {
+        throw new IllegalStateException("Unable to detect database product", e);
+      }
+      postgres = result;
+    }
+    return result;
+  }
+
+  private static RowMapper<Result> resultMapper(UUID newId) {
+    return (rs, rowNum) -> {
+      User user = mapUser(rs);
+      user.setProfileHash(rs.getObject("profile_hash", Long.class));
+      Outcome outcome;
+      if (rs.getBoolean("unchanged")) {
+        outcome = Outcome.UNCHANGED;
+      } else if (newId.equals(user.getId())) {
+        outcome = Outcome.CREATED;
+      } else {
+        outcome = Outcome.UPDATED;
+      }
+      return new Result(user, outcome);
+    };
+  }
+
+  static User mapUser(ResultSet rs) throws SQLException {
+    User u = new User();
+    u.setId(rs.getObject("id", UUID.class));
+    u.setProvider(rs.getString("provider"));
+    u.setExternalId(rs.getString("external_id"));
+    u.setUsername(rs.getString("username"));
+    u.setDisplayName(rs.getString("display_name"));
+    u.setEmail(rs.getString("email"));
+    u.setAvatarUrl(rs.getString("avatar_url"));
+    u.setCreatedAt(instant(rs, "created_at"));
+    u.setUpdatedAt(instant(rs, "updated_at"));
+    u.setLastLoginAt(instant(rs, "last_login_at"));
+    u.setVersion(rs.getLong("version"));
+    return u;
+  }
+
+  private static Instant instant(ResultSet rs, String column) throws SQLException {
+    OffsetDateTime value = rs.getObject(column, OffsetDateTime.class);
+    return value == null ? null : value.toInstant();
+  }
+
+  private static String prefixed(String alias) {
+    return alias + "." + COLUMNS.replace(", ", ", " + alias + ".");
+  }
+
+  public enum Outcome {
+    CREATED,
+    UPDATED,
+    UNCHANGED
+  }
+
+  /** The row as stored after the upsert, detached from any persistence context. */
+  public record Result(User user, Outcome outcome) {}
+
+  /** What {@link #upsertAll} did with each profile of the chunk. */
+  public record BatchResult(
+      List<ProviderProfile> created, List<ProviderProfile> updated, int unchanged) {}
+}
@@ -0,0 +1,66 @@
+package com.example.hello.security;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Latency-based AIMD concurrency limit. A call that fails or takes longer than the latency target
+ * multiplies the limit by the backoff ratio; a fast call adds one while the limit is actually in
+ * use (at least half of it in flight), so an idle client does not grow an unbounded limit. Calls
+ * beyond the limit are refused rather than queued.
+ */
+final class AdaptiveConcurrencyLimit {
+
+  private final int minLimit;
+  private final int maxLimit;
+  private final long latencyTargetNanos;
+  private final double backoffRatio;
+  private final AtomicInteger inFlight = new AtomicInteger();
+  private volatile double limit;
+
+  AdaptiveConcurrencyLimit(
+      int initialLimit, int minLimit, int maxLimit, long latencyTargetNanos, double backoffRatio) {
+    this.limit = initialLimit;
+    this.minLimit = minLimit;
+    this.maxLimit = maxLimit;
+    this.latencyTargetNanos = latencyTargetNanos;
+    this.backoffRatio = backoffRatio;
+  }
+
+  /** Takes a slot, or returns {@code false} if the limit is reached. */
+  boolean tryAcquire() {
+    for (; ; ) {
+      int current = inFlight.get();
+      if (current >= (int) limit) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  /** Returns a slot and adjusts the limit to how the call went. */
+  void release(long rttNanos, boolean dropped) {
+    int before = inFlight.getAndDecrement();
+    synchronized (this) {
+      if (dropped || rttNanos > latencyTargetNanos) {
+        limit = Math.max(minLimit, limit * backoffRatio);
+      } else if (before * 2 >= limit) {
+        limit = Math.min(maxLimit, limit + 1);
+      }
+    }
+  }
+
+  /** Returns a slot without feedback, for calls that said nothing about the server. */
+  void releaseIgnored() {
+    inFlight.decrementAndGet();
+  }
+
+  int limit() {
+    return (int) limit;
+  }
+
+  int inFlight() {
+    return inFlight.get();
+  }
+}
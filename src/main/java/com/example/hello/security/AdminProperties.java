@@ -0,0 +1,31 @@
+package com.example.hello.security;
+
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Logged-in users allowed under {@code /admin/**}. */
+@ConfigurationProperties(prefix = "app.admin")
+public record AdminProperties(
+    @DefaultValue List<String> users // provider and external id, e.g. github:583231 or azure:<oid>
+    ) {
+
+  /**
+   * Whether {@code profile}, as mapped from the login, is listed. The provider part is matched
+   * regardless of case, so {@code github:583231} lists the GitHub user 583231.
+   */
+  public boolean isAdmin(ProviderProfile profile) {
+    if (profile.provider() == null || profile.externalId() == null) {
+      return false;
+    }
+    for (String user : users) {
+      int colon = user.indexOf(':');
+      if (colon > 0
+          && user.substring(0, colon).equalsIgnoreCase(profile.provider())
+          && user.substring(colon + 1).equals(profile.externalId())) {
+        return true;
+      }
+    }
+    return false;
+  }
+}
@@ -0,0 +1,164 @@
+package com.example.hello.security;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
+import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientPropertiesMapper;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.registration.ClientRegistrationRepository;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.ClientAuthenticationMethod;
+import org.springframework.security.oauth2.core.oidc.IdTokenClaimNames;
+import org.springframework.security.oauth2.core.oidc.OidcScopes;
+
+/**
+ * The {@code spring.security.oauth2.client.*} registrations, as Spring Boot would build them,
+ * except that providers configured by {@code issuer-uri} take their endpoints from {@link
+ * OidcProviderCache} instead of a discovery request during startup. Explicitly configured provider
+ * endpoints still win. Registrations are rebuilt whenever the cache refreshes an issuer.
+ */
+public class CachedClientRegistrationRepository
+    implements ClientRegistrationRepository, Iterable<ClientRegistration> {
+
+  private final OAuth2ClientProperties properties;
+  private final OidcProviderCache cache;
+  private volatile Map<String, ClientRegistration> registrations;
+
+  public CachedClientRegistrationRepository(
+      OAuth2ClientProperties properties, OidcProviderCache cache) {
+    this.properties = properties;
+    this.cache = cache;
+    cache.onRefresh(() -> registrations = build());
+    // Loads every issuer (from its cache file, or fetched on a first start) before serving logins
+    this.registrations = build();
+  }
+
+  @Override
+  public ClientRegistration findByRegistrationId(String registrationId) {
+    return registrations.get(registrationId);
+  }
+
+  @Override
+  public Iterator<ClientRegistration> iterator() {
+    return registrations.values().iterator();
+  }
+
+  private Map<String, ClientRegistration> build() {
+    OAuth2ClientProperties resolved = new OAuth2ClientProperties();
+    Map<String, OidcProviderCache.Entry> discovered = new HashMap<>();
+    properties
+        .getProvider()
+        .forEach(
+            (id, provider) -> {
+              if (provider.getIssuerUri() == null) {
+                resolved.getProvider().put(id, provider);
+              } else if (provider.getIssuerUri().isBlank()) {
+                // A blank issuer-uri switches an inherited one off in favour of static endpoints
+                resolved.getProvider().put(id, withEndpoints(provider, null));
+              } else {
+                OidcProviderCache.Entry entry = cache.load(provider.getIssuerUri());
+                discovered.put(id, entry);
+                resolved.getProvider().put(id, withEndpoints(provider, entry));
+              }
+            });
+    properties
+        .getRegistration()
+        .forEach(
+            (id, registration) ->
+                resolved
+                    .getRegistration()
+                    .put(
+                        id,
+                        discovered.containsKey(providerId(id, registration))
+                            ? withDefaultGrantType(registration)
+                            : registration));
+
+    Map<String, ClientRegistration> built = new LinkedHashMap<>();
+    new OAuth2ClientPropertiesMapper(resolved)
+        .asClientRegistrations()
+        .forEach(
+            (registrationId, registration) -> {
+              OAuth2ClientProperties.Registration config =
+                  properties.getRegistration().get(registrationId);
+              OidcProviderCache.Entry entry = discovered.get(providerId(registrationId, config));
+              built.put(
+                  registrationId,
+                  entry == null ? registration : withMetadata(registration, config, entry));
+            });
+    return Collections.unmodifiableMap(built);
+  }
+
+  /** The provider with discovered endpoints (if any) filled in and no issuer left to fetch. */
+  private static OAuth2ClientProperties.Provider withEndpoints(
+      OAuth2ClientProperties.Provider configured, OidcProviderCache.Entry entry) {
+    OAuth2ClientProperties.Provider provider = new OAuth2ClientProperties.Provider();
+    provider.setAuthorizationUri(
+        first(configured.getAuthorizationUri(), metadata(entry, "authorization_endpoint")));
+    provider.setTokenUri(first(configured.getTokenUri(), metadata(entry, "token_endpoint")));
+    provider.setUserInfoUri(
+        first(configured.getUserInfoUri(), metadata(entry, "userinfo_endpoint")));
+    provider.setJwkSetUri(first(configured.getJwkSetUri(), metadata(entry, "jwks_uri")));
+    provider.setUserInfoAuthenticationMethod(configured.getUserInfoAuthenticationMethod());
+    provider.setUserNameAttribute(first(configured.getUserNameAttribute(), IdTokenClaimNames.SUB));
+    return provider;
+  }
+
+  private static String providerId(
+      String registrationId, OAuth2ClientProperties.Registration registration) {
+    return registration.getProvider() != null ? registration.getProvider() : registrationId;
+  }
+
+  /** Discovered registrations default to the authorization code grant, as with discovery. */
+  private static OAuth2ClientProperties.Registration withDefaultGrantType(
+      OAuth2ClientProperties.Registration configured) {
+    if (configured.getAuthorizationGrantType() != null) return configured;
+    OAuth2ClientProperties.Registration registration = new OAuth2ClientProperties.Registration();
+    registration.setProvider(configured.getProvider());
+    registration.setClientId(configured.getClientId());
+    registration.setClientSecret(configured.getClientSecret());
+    registration.setClientAuthenticationMethod(configured.getClientAuthenticationMethod());
+    registration.setAuthorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE.getValue());
+    registration.setRedirectUri(configured.getRedirectUri());
+    registration.setScope(configured.getScope());
+    registration.setClientName(configured.getClientName());
+    return registration;
+  }
+
+  /** Adds what {@code ClientRegistrations.fromIssuerLocation} derives from the metadata. */
+  private static ClientRegistration withMetadata(
+      ClientRegistration registration,
+      OAuth2ClientProperties.Registration config,
+      OidcProviderCache.Entry entry) {
+    ClientRegistration.Builder builder =
+        ClientRegistration.withClientRegistration(registration)
+            .issuerUri(entry.issuer())
+            .providerConfigurationMetadata(entry.configuration());
+    if (config.getClientAuthenticationMethod() == null
+        && entry.configuration().get("token_endpoint_auth_methods_supported")
+            instanceof Collection<?> methods
+        && !methods.contains(ClientAuthenticationMethod.CLIENT_SECRET_BASIC.getValue())
+        && methods.contains(ClientAuthenticationMethod.CLIENT_SECRET_POST.getValue())) {
+      builder.clientAuthenticationMethod(ClientAuthenticationMethod.CLIENT_SECRET_POST);
+    }
+    if (config.getScope() == null) {
+      builder.scope(
+          entry.configuration().get("scopes_supported") instanceof Collection<?> scopes
+              ? scopes.stream().map(String::valueOf).toList()
+              : List.of(OidcScopes.OPENID));
+    }
+    return builder.build();
+  }
+
+  private static String metadata(OidcProviderCache.Entry entry, String name) {
+    return entry == null ? null : entry.metadata(name);
+  }
+
+  private static String first(String configured, String discovered) {
+    return configured != null ? configured : discovered;
+  }
+}
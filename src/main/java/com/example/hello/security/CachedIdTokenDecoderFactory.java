@@ -0,0 +1,60 @@
+package com.example.hello.security;
+
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.proc.JWSVerificationKeySelector;
+import com.nimbusds.jose.proc.SecurityContext;
+import com.nimbusds.jwt.proc.DefaultJWTProcessor;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenValidator;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.converter.ClaimTypeConverter;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+
+/**
+ * ID token decoders that verify signatures against the JWKS held by {@link OidcProviderCache}
+ * rather than downloading it on the first login, refetching it when a token names an unknown key.
+ * Validation and claim conversion are those of Spring's {@link OidcIdTokenDecoderFactory}.
+ * Registrations the cache does not know are served by {@code fallback}.
+ */
+public class CachedIdTokenDecoderFactory implements JwtDecoderFactory<ClientRegistration> {
+
+  private final OidcProviderCache cache;
+  private final JwtDecoderFactory<ClientRegistration> fallback;
+  private final Map<String, JwtDecoder> decoders = new ConcurrentHashMap<>();
+
+  public CachedIdTokenDecoderFactory(
+      OidcProviderCache cache, JwtDecoderFactory<ClientRegistration> fallback) {
+    this.cache = cache;
+    this.fallback = fallback;
+  }
+
+  @Override
+  public JwtDecoder createDecoder(ClientRegistration registration) {
+    if (registration.getProviderDetails().getIssuerUri() == null) {
+      return fallback.createDecoder(registration);
+    }
+    return decoders.computeIfAbsent(registration.getRegistrationId(), id -> decoder(registration));
+  }
+
+  private JwtDecoder decoder(ClientRegistration registration) {
+    DefaultJWTProcessor<SecurityContext> processor = new DefaultJWTProcessor<>();
+    processor.setJWSKeySelector(
+        new JWSVerificationKeySelector<>(
+            JWSAlgorithm.RS256, cache.keySource(registration.getProviderDetails().getIssuerUri())));
+    // Claims are checked by the Spring validators below
+    processor.setJWTClaimsSetVerifier((claims, context) -> {});
+    NimbusJwtDecoder decoder = new NimbusJwtDecoder(processor);
+    decoder.setJwtValidator(
+        new DelegatingOAuth2TokenValidator<>(
+            new JwtTimestampValidator(), new OidcIdTokenValidator(registration)));
+    decoder.setClaimSetConverter(
+        new ClaimTypeConverter(OidcIdTokenDecoderFactory.createDefaultClaimTypeConverters()));
+    return decoder;
+  }
+}
@@ -0,0 +1,115 @@
+package com.example.hello.security;
+
+import java.time.Duration;
+
+/**
+ * Count-based circuit breaker. While closed, it keeps the outcomes of the last {@code windowSize}
+ * calls and opens once at least {@code minimumCalls} of them are recorded and the failure rate
+ * reaches the threshold. An open breaker refuses calls for {@code openDuration}, then lets a single
+ * trial call through (half-open): its success closes the breaker, its failure opens it again.
+ */
+final class CircuitBreaker {
+
+  enum State {
+    CLOSED,
+    OPEN,
+    HALF_OPEN
+  }
+
+  private final boolean[] failures;
+  private final int minimumCalls;
+  private final int failureRateThreshold;
+  private final long openNanos;
+
+  private State state = State.CLOSED;
+  private int next;
+  private int recorded;
+  private int failed;
+  private long openUntil;
+  private boolean trialInFlight;
+
+  CircuitBreaker(
+      int windowSize, int minimumCalls, int failureRateThreshold, Duration openDuration) {
+    this.failures = new boolean[windowSize];
+    this.minimumCalls = minimumCalls;
+    this.failureRateThreshold = failureRateThreshold;
+    this.openNanos = openDuration.toNanos();
+  }
+
+  /** Whether a call may go ahead; in half-open state only the one trial call may. */
+  synchronized boolean tryAcquire() {
+    if (state == State.OPEN && System.nanoTime() - openUntil >= 0) {
+      state = State.HALF_OPEN;
+    }
+    return switch (state) {
+      case CLOSED -> true;
+      case OPEN -> false;
+      case HALF_OPEN -> {
+        if (trialInFlight) yield false;
+        trialInFlight = true;
+        yield true;
+      }
+    };
+  }
+
+  /**
+   * Records the outcome of an acquired call.
+   *
+   * @return the new state if this call changed it, otherwise {@code null}
+   */
+  synchronized State record(boolean success) {
+    if (state == State.HALF_OPEN) {
+      trialInFlight = false;
+      if (success) {
+        reset();
+        state = State.CLOSED;
+      } else {
+        open();
+      }
+      return state;
+    }
+    if (state == State.OPEN) {
+      return null; // acquired before the breaker opened
+    }
+    if (recorded == failures.length && failures[next]) {
+      failed--;
+    }
+    failures[next] = !success;
+    if (!success) failed++;
+    next = (next + 1) % failures.length;
+    recorded = Math.min(recorded + 1, failures.length);
+    if (recorded >= minimumCalls && failed * 100 >= failureRateThreshold * recorded) {
+      open();
+      return state;
+    }
+    return null;
+  }
+
+  /** Frees the half-open trial slot of a call that ended without an outcome. */
+  synchronized void releaseIgnored() {
+    if (state == State.HALF_OPEN) {
+      trialInFlight = false;
+    }
+  }
+
+  synchronized State state() {
+    return state;
+  }
+
+  /** Failed percentage of the recorded calls in the window. */
+  synchronized int failureRate() {
+    return recorded == 0 ? 0 : failed * 100 / recorded;
+  }
+
+  private void open() {
+    state = State.OPEN;
+    openUntil = System.nanoTime() + openNanos;
+    reset();
+  }
+
+  private void reset() {
+    next = 0;
+    recorded = 0;
+    failed = 0;
+  }
+}
@@ -0,0 +1,99 @@
+package com.example.hello.security;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import org.springframework.security.oauth2.client.web.AuthorizationRequestRepository;
+import org.springframework.security.oauth2.core.endpoint.OAuth2AuthorizationRequest;
+import org.springframework.security.oauth2.core.endpoint.OAuth2ParameterNames;
+
+/**
+ * Keeps the in-flight authorization request (state, nonce, redirect URI) in a short-lived sealed
+ * cookie instead of the {@code HttpSession}, so the provider callback may land on any node.
+ */
+public class CookieOAuth2AuthorizationRequestRepository
+    implements AuthorizationRequestRepository<OAuth2AuthorizationRequest> {
+
+  static final String PURPOSE = "authorization-request";
+  private static final Duration MAX_AGE = Duration.ofMinutes(10);
+  // The payload is authenticated, so this only narrows what a leaked key could be used for
+  private static final ObjectInputFilter CLASSES =
+      ObjectInputFilter.Config.createFilter(
+          "org.springframework.security.oauth2.**;java.lang.*;java.util.*;!*");
+
+  private final SessionCookieCodec codec;
+  private final String cookieName;
+  private final boolean secure;
+
+  public CookieOAuth2AuthorizationRequestRepository(
+      SessionCookieCodec codec, SessionProperties properties) {
+    this.codec = codec;
+    this.cookieName = properties.cookieName() + "_LOGIN";
+    this.secure = properties.secure();
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest loadAuthorizationRequest(HttpServletRequest request) {
+    String state = request.getParameter(OAuth2ParameterNames.STATE);
+    if (state == null) return null;
+    OAuth2AuthorizationRequest authorizationRequest = decode(request);
+    return authorizationRequest != null && state.equals(authorizationRequest.getState())
+        ? authorizationRequest
+        : null;
+  }
+
+  @Override
+  public void saveAuthorizationRequest(
+      OAuth2AuthorizationRequest authorizationRequest,
+      HttpServletRequest request,
+      HttpServletResponse response) {
+    if (authorizationRequest == null) {
+      SessionCookies.clear(response, cookieName, secure);
+      return;
+    }
+    SessionCookies.write(
+        response,
+        cookieName,
+        codec.seal(serialize(authorizationRequest), PURPOSE),
+        MAX_AGE,
+        secure);
+  }
+
+  @Override
+  public OAuth2AuthorizationRequest removeAuthorizationRequest(
+      HttpServletRequest request, HttpServletResponse response) {
+    OAuth2AuthorizationRequest authorizationRequest = loadAuthorizationRequest(request);
+    if (authorizationRequest != null) {
+      SessionCookies.clear(response, cookieName, secure);
+    }
+    return authorizationRequest;
+  }
+
+  private OAuth2AuthorizationRequest decode(HttpServletRequest request) {
+    byte[] bytes = codec.open(SessionCookies.read(request, cookieName), PURPOSE);
+    if (bytes == null) return null;
+    try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+      in.setObjectInputFilter(CLASSES);
+      return in.readObject() instanceof OAuth2AuthorizationRequest r ? r : null;
+    } catch (IOException | ClassNotFoundException e) {
+      return null;
+    }
+  }
+
+  private static byte[] serialize(OAuth2AuthorizationRequest authorizationRequest) {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+    try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+      out.writeObject(authorizationRequest);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+}
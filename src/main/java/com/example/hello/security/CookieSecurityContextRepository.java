@@ -0,0 +1,120 @@
+package com.example.hello.security;
+
+import com.example.hello.domain.User;
+import com.example.hello.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Instant;
+import java.util.UUID;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.DeferredSecurityContext;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.web.context.HttpRequestResponseHolder;
+import org.springframework.security.web.context.SecurityContextRepository;
+
+/**
+ * Keeps the authenticated user in a sealed cookie ({@link SessionCookieCodec}) instead of the
+ * {@code HttpSession}. At login the provider attributes are reduced to a {@link SessionUser} (local
+ * user id, provider id and display fields), which every later request decodes without server-side
+ * state, so no sticky routing and no per-session heap. The session ends when the cookie expires
+ * ({@code app.session.max-age}) or on logout; there is no server-side revocation.
+ */
+public class CookieSecurityContextRepository implements SecurityContextRepository {
+
+  static final String PURPOSE = "security-context";
+
+  private final SessionCookieCodec codec;
+  private final SessionProperties properties;
+  private final UserService userService;
+
+  public CookieSecurityContextRepository(
+      SessionCookieCodec codec, SessionProperties properties, UserService userService) {
+    this.codec = codec;
+    this.properties = properties;
+    this.userService = userService;
+  }
+
+  // The cookie is opened only once a filter asks for the context, then kept for the request
+  @Override
+  public DeferredSecurityContext loadDeferredContext(HttpServletRequest request) {
+    return new DeferredSecurityContext() {
+      private SessionUser user;
+      private SecurityContext context;
+
+      @Override
+      public SecurityContext get() {
+        if (context == null) {
+          user = decode(request);
+          context =
+              user == null
+                  ? SecurityContextHolder.createEmptyContext()
+                  : new SecurityContextImpl(
+                      new OAuth2AuthenticationToken(
+                          user, user.getAuthorities(), user.registrationId()));
+        }
+        return context;
+      }
+
+      @Override
+      public boolean isGenerated() {
+        get();
+        return user == null;
+      }
+    };
+  }
+
+  // Still abstract on the interface; Spring Security itself only calls loadDeferredContext
+  @Override
+  @Deprecated
+  public SecurityContext loadContext(HttpRequestResponseHolder holder) {
+    return loadDeferredContext(holder.getRequest()).get();
+  }
+
+  @Override
+  public boolean containsContext(HttpServletRequest request) {
+    return decode(request) != null;
+  }
+
+  @Override
+  public void saveContext(
+      SecurityContext context, HttpServletRequest request, HttpServletResponse response) {
+    Authentication authentication = context.getAuthentication();
+    if (authentication == null) {
+      // Logout or a cleared context
+      if (SessionCookies.read(request, properties.cookieName()) != null) {
+        SessionCookies.clear(response, properties.cookieName(), properties.secure());
+      }
+      return;
+    }
+    if (authentication instanceof OAuth2AuthenticationToken token
+        && !(token.getPrincipal() instanceof SessionUser)) {
+      SessionUser user = toSessionUser(token);
+      SessionCookies.write(
+          response,
+          properties.cookieName(),
+          codec.seal(user.toBytes(), PURPOSE),
+          properties.maxAge(),
+          properties.secure());
+    }
+  }
+
+  private SessionUser toSessionUser(OAuth2AuthenticationToken token) {
+    String registrationId = token.getAuthorizedClientRegistrationId();
+    ProviderProfile profile =
+        ProviderProfileMapper.fromRegistration(
+            registrationId, token.getPrincipal().getAttributes());
+    // Onboarded (and cached) by the login that is being saved; OIDC logins onboard on first /me
+    UUID userId = userService.findCached(profile).map(User::getId).orElse(null);
+    return new SessionUser(
+        registrationId, userId, profile, Instant.now().plus(properties.maxAge()));
+  }
+
+  private SessionUser decode(HttpServletRequest request) {
+    byte[] bytes = codec.open(SessionCookies.read(request, properties.cookieName()), PURPOSE);
+    SessionUser user = bytes == null ? null : SessionUser.fromBytes(bytes);
+    return user == null || user.expiresAt().isBefore(Instant.now()) ? null : user;
+  }
+}
@@ -1,16 +1,16 @@
 package com.example.hello.security;
 
-import com.example.hello.service.UserService;
-import com.fasterxml.jackson.databind.JsonNode;
-import com.fasterxml.jackson.databind.ObjectMapper;
+import com.example.hello.security.LoginMetrics.Stage;
+import com.example.hello.service.LoginAnalytics;
+import com.example.hello.service.UserOnboarding;
 import java.util.Collection;
-import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
 import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
 import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
 import org.springframework.security.oauth2.client.userinfo.OAuth2UserService;
@@ -18,7 +18,6 @@ import org.springframework.security.oauth2.core.OAuth2AccessToken;
 import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
 import org.springframework.security.oauth2.core.user.OAuth2User;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 
 /** Customizes the user loading to normalize profiles and onboard/update a local User. */
@@ -28,25 +27,58 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService
 
   private static final Logger log = LoggerFactory.getLogger(CustomOAuth2UserService.class);
 
-  private final UserService userService;
-  private final RestTemplate restTemplate;
-  private final ObjectMapper objectMapper = new ObjectMapper();
+  private final UserOnboarding userOnboarding;
+  private final LoginAnalytics loginAnalytics;
+  private final GithubEmailClient githubEmailClient;
+  private final GithubEmailProperties githubEmailProperties;
+  private final LoginMetrics metrics;
 
-  public CustomOAuth2UserService(UserService userService) {
-    this.userService = userService;
-    this.restTemplate = new RestTemplate();
+  public CustomOAuth2UserService(
+      UserOnboarding userOnboarding,
+      LoginAnalytics loginAnalytics,
+      GithubEmailClient githubEmailClient,
+      GithubEmailProperties githubEmailProperties,
+      ClientHttpRequestFactory providerRequestFactory,
+      LoginMetrics metrics) {
+    this.userOnboarding = userOnboarding;
+    this.loginAnalytics = loginAnalytics;
+    this.githubEmailClient = githubEmailClient;
+    this.githubEmailProperties = githubEmailProperties;
+    this.metrics = metrics;
+    // The userinfo call made by DefaultOAuth2UserService goes through the same pooled client
+    RestTemplate userInfoRestTemplate = new RestTemplate(providerRequestFactory);
+    userInfoRestTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+    setRestOperations(userInfoRestTemplate);
   }
 
   @Override
   public OAuth2User loadUser(OAuth2UserRequest userRequest) {
-    OAuth2User oauth2User = super.loadUser(userRequest);
-
     String registrationId = userRequest.getClientRegistration().getRegistrationId();
+    return metrics.time(Stage.LOGIN, registrationId, () -> load(userRequest, registrationId));
+  }
+
+  private OAuth2User load(OAuth2UserRequest userRequest, String registrationId) {
+    boolean github = "github".equalsIgnoreCase(registrationId);
+
+    // The token already carries user:email, so /user/emails can run alongside /user
+    CompletableFuture<GithubEmailClient.Entry> emails =
+        github && githubEmailProperties.concurrent() && canReadEmails(userRequest.getAccessToken())
+            ? githubEmailClient.fetchAsync(userRequest.getAccessToken().getTokenValue())
+            : null;
+    OAuth2User oauth2User;
+    try {
+      oauth2User = metrics.time(Stage.USERINFO, registrationId, () -> super.loadUser(userRequest));
+    } catch (RuntimeException e) {
+      if (emails != null) emails.cancel(true);
+      throw e;
+    }
+
     Map<String, Object> attributes = oauth2User.getAttributes();
 
     ProviderProfile profile;
-    if ("github".equalsIgnoreCase(registrationId)) {
-      profile = resolveGithubProfile(attributes, userRequest.getAccessToken());
+    if (github) {
+      profile =
+          resolveGithubProfile(registrationId, attributes, userRequest.getAccessToken(), emails);
     } else if ("azure".equalsIgnoreCase(registrationId)) {
       profile = ProviderProfileMapper.fromAzure(attributes);
     } else {
@@ -63,7 +95,15 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService
     }
 
     // Upsert local user
-    userService.getOrCreateFromProviderProfile(profile);
+    long upsertStart = metrics.start();
+    boolean upserted = false;
+    try {
+      userOnboarding.onboard(profile);
+      upserted = true;
+    } finally {
+      metrics.record(Stage.UPSERT, registrationId, upserted, upsertStart);
+    }
+    loginAnalytics.recordLogin(profile.provider(), profile.externalId());
 
     // Return the original user principal, preserving authorities and name attribute
     String nameAttributeKey =
@@ -79,15 +119,29 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService
     return new DefaultOAuth2User(authorities, attributes, nameAttributeKey);
   }
 
+  /**
+   * Maps the GitHub profile, filling a missing public email from {@code /user/emails}: from the
+   * concurrent lookup when one was started, otherwise through a (conditional) lookup now.
+   */
   private ProviderProfile resolveGithubProfile(
-      Map<String, Object> attributes, OAuth2AccessToken token) {
+      String registrationId,
+      Map<String, Object> attributes,
+      OAuth2AccessToken token,
+      CompletableFuture<GithubEmailClient.Entry> emails) {
     ProviderProfile base = ProviderProfileMapper.fromGithub(attributes);
-    if (base.email() == null
-        && token != null
-        && token.getScopes() != null
-        && token.getScopes().contains("user:email")) {
+    if (base.email() != null && emails != null) {
+      // The public profile has the address; don't wait for or spend a permit on the lookup
+      emails.cancel(true);
+    }
+    if (base.email() == null && canReadEmails(token)) {
+      long start = metrics.start();
+      boolean success = false;
       try {
-        String email = fetchPrimaryVerifiedGithubEmail(token);
+        String email =
+            emails != null
+                ? githubEmailClient.remember(base.externalId(), emails.join())
+                : githubEmailClient.fetchPrimaryEmail(base.externalId(), token.getTokenValue());
+        success = true;
         if (email != null) {
           return new ProviderProfile(
               base.provider(),
@@ -99,47 +153,15 @@ public class CustomOAuth2UserService extends DefaultOAuth2UserService
         }
       } catch (Exception e) {
         log.debug("GitHub emails fetch failed: {}", e.toString());
+      } finally {
+        metrics.record(Stage.EMAILS, registrationId, success, start);
       }
     }
     return base;
   }
 
-  private String fetchPrimaryVerifiedGithubEmail(OAuth2AccessToken token)
-      throws RestClientException {
-    String url = "https://api.github.com/user/emails";
-    var headers = new HttpHeaders();
-    headers.setBearerAuth(token.getTokenValue());
-    headers.setAccept(List.of(MediaType.APPLICATION_JSON));
-    var entity = new org.springframework.http.HttpEntity<Void>(headers);
-    var response =
-        restTemplate.exchange(url, org.springframework.http.HttpMethod.GET, entity, String.class);
-    String body = response.getBody();
-    if (body == null || body.isBlank()) return null;
-    try {
-      JsonNode arr = objectMapper.readTree(body);
-      String primaryVerified = null;
-      String anyVerified = null;
-      String first = null;
-      if (arr.isArray()) {
-        for (JsonNode n : arr) {
-          String email = n.path("email").asText(null);
-          boolean primary = n.path("primary").asBoolean(false);
-          boolean verified = n.path("verified").asBoolean(false);
-          if (first == null) first = email;
-          if (verified && anyVerified == null) anyVerified = email;
-          if (primary && verified) {
-            primaryVerified = email;
-            break;
-          }
-        }
-      }
-      if (primaryVerified != null) return primaryVerified;
-      if (anyVerified != null) return anyVerified;
-      return first;
-    } catch (Exception e) {
-      log.debug("Failed to parse GitHub emails JSON: {}", e.toString());
-      return null;
-    }
+  private static boolean canReadEmails(OAuth2AccessToken token) {
+    return token != null && token.getScopes() != null && token.getScopes().contains("user:email");
   }
 
   private static String string(Object o) {
@@ -0,0 +1,67 @@
+package com.example.hello.security;
+
+import com.example.hello.security.LoginMetrics.Stage;
+import com.example.hello.service.LoginAnalytics;
+import com.example.hello.service.UserOnboarding;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.http.OAuth2ErrorResponseErrorHandler;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserService;
+import org.springframework.security.oauth2.client.userinfo.DefaultOAuth2UserService;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+import org.springframework.stereotype.Service;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * OIDC counterpart of {@link CustomOAuth2UserService} (Azure): after Spring has validated the ID
+ * token and read userinfo, onboards/updates the local User on every login, so profile changes and
+ * {@code last_login_at} are written even though {@code /me} only reads the user cache.
+ */
+@Service
+public class CustomOidcUserService extends OidcUserService {
+
+  private final UserOnboarding userOnboarding;
+  private final LoginAnalytics loginAnalytics;
+  private final LoginMetrics metrics;
+
+  public CustomOidcUserService(
+      UserOnboarding userOnboarding,
+      LoginAnalytics loginAnalytics,
+      ClientHttpRequestFactory providerRequestFactory,
+      LoginMetrics metrics) {
+    this.userOnboarding = userOnboarding;
+    this.loginAnalytics = loginAnalytics;
+    this.metrics = metrics;
+    // The userinfo call goes through the pooled client, as for GitHub
+    RestTemplate userInfoRestTemplate = new RestTemplate(providerRequestFactory);
+    userInfoRestTemplate.setErrorHandler(new OAuth2ErrorResponseErrorHandler());
+    DefaultOAuth2UserService userInfoService = new DefaultOAuth2UserService();
+    userInfoService.setRestOperations(userInfoRestTemplate);
+    setOauth2UserService(userInfoService);
+  }
+
+  @Override
+  public OidcUser loadUser(OidcUserRequest userRequest) {
+    String registrationId = userRequest.getClientRegistration().getRegistrationId();
+    return metrics.time(Stage.LOGIN, registrationId, () -> load(userRequest, registrationId));
+  }
+
+  private OidcUser load(OidcUserRequest userRequest, String registrationId) {
+    OidcUser oidcUser =
+        metrics.time(Stage.USERINFO, registrationId, () -> super.loadUser(userRequest));
+    // ID token claims merged with userinfo, as /me maps them
+    ProviderProfile profile =
+        ProviderProfileMapper.fromRegistration(registrationId, oidcUser.getAttributes());
+
+    long upsertStart = metrics.start();
+    boolean upserted = false;
+    try {
+      userOnboarding.onboard(profile);
+      upserted = true;
+    } finally {
+      metrics.record(Stage.UPSERT, registrationId, upserted, upsertStart);
+    }
+    loginAnalytics.recordLogin(profile.provider(), profile.externalId());
+    return oidcUser;
+  }
+}
@@ -0,0 +1,22 @@
+package com.example.hello.security;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/** {@code /actuator/githubapi}: circuit state, concurrency limit and rate-limit pause. */
+@Component
+@Endpoint(id = "githubapi")
+public class GithubApiEndpoint {
+
+  private final GithubApiGuard guard;
+
+  public GithubApiEndpoint(GithubApiGuard guard) {
+    this.guard = guard;
+  }
+
+  @ReadOperation
+  public GithubApiGuard.Snapshot state() {
+    return guard.snapshot();
+  }
+}
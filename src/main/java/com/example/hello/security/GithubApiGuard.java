@@ -0,0 +1,206 @@
+package com.example.hello.security;
+
+import com.example.hello.security.CircuitBreaker.State;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.stereotype.Component;
+
+/**
+ * Decides whether an optional GitHub API call (the {@code /user/emails} enrichment) is made at all,
+ * so that a degraded GitHub costs logins a skipped lookup instead of a blocked thread. A call is
+ * skipped while GitHub has asked for a pause ({@code Retry-After}, or {@code X-RateLimit-Remaining:
+ * 0} until {@code X-RateLimit-Reset}, capped at {@code max-rate-limit-pause}), while the {@link
+ * CircuitBreaker} is open, or when the {@link AdaptiveConcurrencyLimit} is reached.
+ *
+ * <p>Skips are counted in {@code app.github.api.rejected} tagged {@code reason}; the limit, the
+ * calls in flight and the last {@code X-RateLimit-Remaining} are gauges, and {@link
+ * GithubApiEndpoint} shows the whole state.
+ */
+@Component
+public class GithubApiGuard {
+
+  private static final Logger log = LoggerFactory.getLogger(GithubApiGuard.class);
+
+  static final String REJECTED = "app.github.api.rejected";
+
+  // GitHub asks for at least a minute when a secondary limit response carries no Retry-After
+  private static final long DEFAULT_PAUSE_MILLIS = 60_000;
+
+  private final AdaptiveConcurrencyLimit limit;
+  private final CircuitBreaker breaker;
+  private final GithubApiProperties properties;
+  private final Counter rejectedPaused;
+  private final Counter rejectedOpen;
+  private final Counter rejectedLimit;
+  private volatile long pausedUntilMillis;
+  private volatile int rateLimitRemaining = -1;
+
+  public GithubApiGuard(GithubApiProperties properties, MeterRegistry meterRegistry) {
+    this.properties = properties;
+    this.limit =
+        new AdaptiveConcurrencyLimit(
+            properties.initialLimit(),
+            properties.minLimit(),
+            properties.maxLimit(),
+            properties.latencyTarget().toNanos(),
+            properties.backoffRatio());
+    this.breaker =
+        new CircuitBreaker(
+            properties.slidingWindowSize(),
+            properties.minimumCalls(),
+            properties.failureRateThreshold(),
+            properties.openDuration());
+    this.rejectedPaused = meterRegistry.counter(REJECTED, "reason", "rate-limited");
+    this.rejectedOpen = meterRegistry.counter(REJECTED, "reason", "circuit-open");
+    this.rejectedLimit = meterRegistry.counter(REJECTED, "reason", "limit");
+    Gauge.builder("app.github.api.limit", limit, AdaptiveConcurrencyLimit::limit)
+        .register(meterRegistry);
+    Gauge.builder("app.github.api.in-flight", limit, AdaptiveConcurrencyLimit::inFlight)
+        .register(meterRegistry);
+    Gauge.builder("app.github.api.rate-limit.remaining", this, g -> g.rateLimitRemaining)
+        .register(meterRegistry);
+  }
+
+  /** A permit for one call, or {@code null} if the call should be skipped. */
+  Permit tryAcquire() {
+    if (System.currentTimeMillis() < pausedUntilMillis) {
+      rejectedPaused.increment();
+      return null;
+    }
+    if (!breaker.tryAcquire()) {
+      rejectedOpen.increment();
+      return null;
+    }
+    if (!limit.tryAcquire()) {
+      breaker.releaseIgnored();
+      rejectedLimit.increment();
+      return null;
+    }
+    return new Permit(System.nanoTime());
+  }
+
+  Snapshot snapshot() {
+    long pausedUntil = pausedUntilMillis;
+    return new Snapshot(
+        breaker.state().name(),
+        breaker.failureRate(),
+        limit.limit(),
+        limit.inFlight(),
+        rateLimitRemaining < 0 ? null : rateLimitRemaining,
+        pausedUntil > System.currentTimeMillis() ? Instant.ofEpochMilli(pausedUntil) : null);
+  }
+
+  private void recordBreaker(boolean success) {
+    State changed = breaker.record(success);
+    if (changed == State.OPEN) {
+      log.warn(
+          "GitHub API failing; skipping emails lookups for {} before a trial call",
+          properties.openDuration());
+    } else if (changed == State.CLOSED) {
+      log.info("GitHub API recovered; emails lookups resumed");
+    }
+  }
+
+  /**
+   * Applies GitHub's rate-limit headers and returns whether the response was a rate-limit refusal
+   * (403 or 429).
+   */
+  private boolean observeRateLimit(HttpStatusCode status, HttpHeaders headers) {
+    Long remaining = longHeader(headers, "X-RateLimit-Remaining");
+    if (remaining != null) {
+      rateLimitRemaining = (int) Math.min(remaining, Integer.MAX_VALUE);
+    }
+    boolean refused = status.value() == 403 || status.value() == 429;
+    long now = System.currentTimeMillis();
+    long until;
+    Long retryAfter = longHeader(headers, HttpHeaders.RETRY_AFTER);
+    if (retryAfter != null) {
+      until = now + retryAfter * 1000;
+    } else if (remaining != null && remaining == 0) {
+      Long reset = longHeader(headers, "X-RateLimit-Reset");
+      until = reset != null ? reset * 1000 : now + DEFAULT_PAUSE_MILLIS;
+    } else if (status.value() == 429) {
+      until = now + DEFAULT_PAUSE_MILLIS;
+    } else {
+      return false; // a plain 403 is about the token, not the rate
+    }
+    // Limits are per user or token, so one user's exhausted quota must not stop everyone for long
+    until = Math.min(until, now + properties.maxRateLimitPause().toMillis());
+    if (until > pausedUntilMillis) {
+      pausedUntilMillis = until;
+      log.warn(
+          "GitHub API rate limit reached; skipping emails lookups until {}",
+          Instant.ofEpochMilli(until));
+    }
+    return refused;
+  }
+
+  private static Long longHeader(HttpHeaders headers, String name) {
+    String value = headers == null ? null : headers.getFirst(name);
+    if (value == null) return null;
+    try {
+      return Long.parseLong(value.trim());
+    } catch (NumberFormatException e) {
+      return null; // e.g. an HTTP-date Retry-After, which GitHub does not send
+    }
+  }
+
+  /** One guarded call. Report how it ended exactly once. */
+  final class Permit {
+
+    private final long start;
+    private boolean done;
+
+    private Permit(long start) {
+      this.start = start;
+    }
+
+    /** GitHub answered; 5xx counts as a failure, rate-limit refusals shrink the limit only. */
+    void completed(HttpStatusCode status, HttpHeaders headers) {
+      if (done) return;
+      done = true;
+      long rtt = System.nanoTime() - start;
+      if (observeRateLimit(status, headers)) {
+        limit.release(rtt, true);
+        breaker.releaseIgnored();
+      } else if (status.is5xxServerError()) {
+        limit.release(rtt, true);
+        recordBreaker(false);
+      } else {
+        limit.release(rtt, false);
+        recordBreaker(true);
+      }
+    }
+
+    /** No usable response: connect or read failure, timeout. */
+    void failed() {
+      if (done) return;
+      done = true;
+      limit.release(System.nanoTime() - start, true);
+      recordBreaker(false);
+    }
+
+    /** The call was never sent; neither the limit nor the breaker learns anything from it. */
+    void cancelled() {
+      if (done) return;
+      done = true;
+      limit.releaseIgnored();
+      breaker.releaseIgnored();
+    }
+  }
+
+  /** State shown by {@link GithubApiEndpoint}. */
+  public record Snapshot(
+      String circuit, // CLOSED, OPEN or HALF_OPEN
+      int failureRatePercent,
+      int limit,
+      int inFlight,
+      Integer rateLimitRemaining,
+      Instant pausedUntil) {}
+}
@@ -0,0 +1,38 @@
+package com.example.hello.security;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Outbound guard around GitHub API calls made for the optional emails enrichment. */
+@ConfigurationProperties(prefix = "app.github-api")
+public record GithubApiProperties(
+    @DefaultValue("10") int initialLimit, // concurrent calls allowed before any feedback
+    @DefaultValue("1") int minLimit,
+    @DefaultValue("50") int maxLimit,
+    @DefaultValue("1s") Duration latencyTarget, // a slower call shrinks the limit
+    @DefaultValue("0.9") double backoffRatio, // limit multiplier on a slow or failed call
+    @DefaultValue("20") int slidingWindowSize, // recent calls the failure rate is taken over
+    @DefaultValue("10") int minimumCalls, // calls in the window before the breaker may open
+    @DefaultValue("50") int failureRateThreshold, // percent of failed calls that opens the breaker
+    @DefaultValue("30s") Duration openDuration, // calls skipped before one trial call
+    @DefaultValue("1m") Duration maxRateLimitPause // cap on a pause requested by GitHub
+    ) {
+
+  public GithubApiProperties {
+    if (minLimit < 1 || minLimit > initialLimit || initialLimit > maxLimit) {
+      throw new IllegalArgumentException(
+          "app.github-api limits must satisfy 1 <= min-limit <= initial-limit <= max-limit");
+    }
+    if (backoffRatio <= 0 || backoffRatio >= 1) {
+      throw new IllegalArgumentException("app.github-api.backoff-ratio must be in (0, 1)");
+    }
+    if (minimumCalls < 1 || minimumCalls > slidingWindowSize) {
+      throw new IllegalArgumentException(
+          "app.github-api.minimum-calls must be 1..sliding-window-size");
+    }
+    if (failureRateThreshold < 1 || failureRateThreshold > 100) {
+      throw new IllegalArgumentException("app.github-api.failure-rate-threshold must be 1..100");
+    }
+  }
+}
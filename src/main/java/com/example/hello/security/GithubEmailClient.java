@@ -0,0 +1,296 @@
+package com.example.hello.security;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import jakarta.annotation.PreDestroy;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.SimpleAsyncTaskExecutor;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestClientResponseException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Resolves a GitHub user's email from {@code /user/emails}. The resolved address is cached per
+ * GitHub user id together with the response {@code ETag}; later logins revalidate with {@code
+ * If-None-Match}, and a {@code 304 Not Modified} (which GitHub does not count against the rate
+ * limit) serves the cached address. Cache statistics are published as the {@code cache.*} meters
+ * tagged {@code cache=github-emails}.
+ *
+ * <p>{@link #fetchAsync} serves logins that fetch emails concurrently with {@code /user}: the user
+ * id is not known yet, so that request cannot be conditional, but its result still refreshes the
+ * cache.
+ *
+ * <p>Every lookup first asks {@link GithubApiGuard} for a permit. Without one, the lookup is
+ * skipped and the cached address, if any, is used as it is.
+ */
+@Component
+public class GithubEmailClient {
+
+  private static final Logger log = LoggerFactory.getLogger(GithubEmailClient.class);
+
+  static final String CACHE_NAME = "github-emails";
+
+  // Shared and immutable; only used to create token-level parsers
+  private static final ObjectReader READER =
+      new ObjectMapper().reader().without(JsonParser.Feature.AUTO_CLOSE_SOURCE);
+
+  private final RestTemplate restTemplate;
+  private final String emailsUrl;
+  private final Cache<String, Entry> cache;
+  private final Counter notModified;
+  private final Executor fetchPool;
+  private final GithubApiGuard guard;
+
+  @Autowired
+  public GithubEmailClient(
+      ClientHttpRequestFactory providerRequestFactory,
+      GithubEmailProperties properties,
+      MeterRegistry meterRegistry,
+      GithubApiGuard guard,
+      Environment environment) {
+    this(
+        providerRequestFactory,
+        properties,
+        meterRegistry,
+        guard,
+        Threading.VIRTUAL.isActive(environment));
+  }
+
+  GithubEmailClient(
+      ClientHttpRequestFactory providerRequestFactory,
+      GithubEmailProperties properties,
+      MeterRegistry meterRegistry,
+      GithubApiGuard guard,
+      boolean virtualThreads) {
+    this.guard = guard;
+    this.restTemplate = new RestTemplate(providerRequestFactory);
+    this.emailsUrl = properties.apiBaseUrl().replaceAll("/+$", "") + "/user/emails";
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(properties.maximumSize())
+            .expireAfterWrite(properties.ttl())
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, CACHE_NAME);
+    this.notModified = meterRegistry.counter("app.github.emails.not-modified");
+    this.fetchPool =
+        virtualThreads
+            ? virtualFetchPool(properties.maxConcurrentFetches())
+            : platformFetchPool(properties.maxConcurrentFetches());
+  }
+
+  /**
+   * Returns the primary verified email of the GitHub user, or {@code null} if none could be
+   * determined.
+   *
+   * @param githubUserId stable GitHub account id, the cache key
+   * @param accessToken token carrying the {@code user:email} scope
+   */
+  public String fetchPrimaryEmail(String githubUserId, String accessToken)
+      throws RestClientException {
+    Entry cached = githubUserId == null ? null : cache.getIfPresent(githubUserId);
+    GithubApiGuard.Permit permit = guard.tryAcquire();
+    if (permit == null) {
+      return cached == null ? null : cached.email();
+    }
+    Entry fetched = exchange(accessToken, cached == null ? null : cached.etag(), permit);
+    if (fetched == null) {
+      notModified.increment();
+      return cached.email();
+    }
+    return remember(githubUserId, fetched);
+  }
+
+  /**
+   * Starts an unconditional lookup on the fetch pool, for callers that do not know the GitHub user
+   * id yet. Pass the result to {@link #remember} once the id is known so later conditional lookups
+   * can revalidate it. Completes with {@code null} at once if the guard skips the lookup. Cancel
+   * the result when the email turns out not to be needed; a lookup that has not started yet is then
+   * not sent.
+   */
+  CompletableFuture<Entry> fetchAsync(String accessToken) {
+    GithubApiGuard.Permit permit = guard.tryAcquire();
+    if (permit == null) {
+      return CompletableFuture.completedFuture(null);
+    }
+    CompletableFuture<Entry> result = new CompletableFuture<>();
+    fetchPool.execute(
+        () -> {
+          // Cancelled before it started, e.g. /user already had a public email: send nothing
+          if (result.isDone()) {
+            permit.cancelled();
+            return;
+          }
+          try {
+            result.complete(exchange(accessToken, null, permit));
+          } catch (RuntimeException e) {
+            result.completeExceptionally(e);
+          }
+        });
+    return result;
+  }
+
+  /**
+   * Caches a fetched entry under the GitHub user id and returns its email; for a skipped lookup
+   * ({@code null}) returns the cached email instead.
+   */
+  String remember(String githubUserId, Entry fetched) {
+    if (fetched == null) {
+      Entry cached = githubUserId == null ? null : cache.getIfPresent(githubUserId);
+      return cached == null ? null : cached.email();
+    }
+    if (githubUserId != null && fetched.etag() != null) {
+      cache.put(githubUserId, fetched);
+    }
+    return fetched.email();
+  }
+
+  @PreDestroy
+  public void close() {
+    if (fetchPool instanceof ExecutorService pool) {
+      pool.shutdownNow();
+    } else if (fetchPool instanceof SimpleAsyncTaskExecutor executor) {
+      executor.close();
+    }
+  }
+
+  // When every fetch thread is busy the caller runs the fetch itself, i.e. falls back to serial
+  private static Executor platformFetchPool(int maxThreads) {
+    return new ThreadPoolExecutor(
+        0,
+        maxThreads,
+        60,
+        TimeUnit.SECONDS,
+        new SynchronousQueue<>(),
+        r -> {
+          Thread t = new Thread(r, "github-emails");
+          t.setDaemon(true);
+          return t;
+        },
+        new ThreadPoolExecutor.CallerRunsPolicy());
+  }
+
+  // One virtual thread per fetch; beyond the limit, callers wait for a slot
+  private static Executor virtualFetchPool(int maxConcurrent) {
+    SimpleAsyncTaskExecutor executor = new SimpleAsyncTaskExecutor("github-emails-");
+    executor.setVirtualThreads(true);
+    executor.setConcurrencyLimit(maxConcurrent);
+    return executor;
+  }
+
+  /** Returns the parsed response, or {@code null} if GitHub answered 304 to {@code etag}. */
+  private Entry exchange(String accessToken, String etag, GithubApiGuard.Permit permit) {
+    try {
+      return restTemplate.execute(
+          emailsUrl,
+          HttpMethod.GET,
+          request -> {
+            HttpHeaders headers = request.getHeaders();
+            headers.setBearerAuth(accessToken);
+            headers.setAccept(List.of(MediaType.APPLICATION_JSON));
+            if (etag != null) {
+              headers.setIfNoneMatch(etag);
+            }
+          },
+          response -> {
+            permit.completed(response.getStatusCode(), response.getHeaders());
+            if (etag != null && response.getStatusCode().isSameCodeAs(HttpStatus.NOT_MODIFIED)) {
+              return null;
+            }
+            return new Entry(parse(response.getBody()), response.getHeaders().getETag());
+          });
+    } catch (RestClientResponseException e) {
+      permit.completed(e.getStatusCode(), e.getResponseHeaders());
+      throw e;
+    } catch (RuntimeException e) {
+      permit.failed();
+      throw e;
+    }
+  }
+
+  private static String parse(InputStream body) {
+    try {
+      return selectEmail(body);
+    } catch (IOException e) {
+      log.debug("Failed to parse GitHub emails JSON: {}", e.toString());
+      return null;
+    }
+  }
+
+  /**
+   * Picks the best address from a GitHub {@code /user/emails} array: the primary verified one, else
+   * the first verified one, else the first listed. Reads tokens straight off the stream and stops
+   * at the primary verified entry, without building a body string or tree. The stream is left open;
+   * the caller's response drains and releases it.
+   */
+  static String selectEmail(InputStream body) throws IOException {
+    try (JsonParser p = READER.createParser(body)) {
+      if (p.nextToken() != JsonToken.START_ARRAY) return null;
+      String anyVerified = null;
+      String first = null;
+      boolean seenFirst = false;
+      JsonToken t;
+      while ((t = p.nextToken()) != null && t != JsonToken.END_ARRAY) {
+        String email = null;
+        boolean primary = false;
+        boolean verified = false;
+        if (t == JsonToken.START_OBJECT) {
+          while (p.nextToken() == JsonToken.FIELD_NAME) {
+            String field = p.currentName();
+            JsonToken value = p.nextToken();
+            switch (field) {
+              case "email" -> email = value == JsonToken.VALUE_STRING ? p.getText() : null;
+              case "primary" -> primary = isTrue(p, value);
+              case "verified" -> verified = isTrue(p, value);
+              default -> {}
+            }
+            p.skipChildren(); // no-op unless the value is an object or array
+          }
+        } else {
+          p.skipChildren(); // not an object: counts as an entry without an email
+        }
+        if (!seenFirst) {
+          first = email;
+          seenFirst = true;
+        }
+        if (verified && anyVerified == null) anyVerified = email;
+        if (primary && verified) return email;
+      }
+      return anyVerified != null ? anyVerified : first;
+    }
+  }
+
+  private static boolean isTrue(JsonParser p, JsonToken value) throws IOException {
+    return value == JsonToken.VALUE_TRUE
+        || (value == JsonToken.VALUE_STRING && "true".equalsIgnoreCase(p.getText().trim()));
+  }
+
+  /** Resolved address (may be {@code null}) and the ETag of the response it came from. */
+  record Entry(String email, String etag) {}
+}
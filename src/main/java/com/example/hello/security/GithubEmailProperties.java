@@ -0,0 +1,16 @@
+package com.example.hello.security;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** GitHub {@code /user/emails} lookups and the ETag cache that revalidates them. */
+@ConfigurationProperties(prefix = "app.github-emails")
+public record GithubEmailProperties(
+    @DefaultValue("https://api.github.com") String apiBaseUrl, // overridden by tests and stubs
+    @DefaultValue("10000") long maximumSize, // upper bound on cached GitHub users
+    @DefaultValue("24h") Duration ttl, // time after write before a cached ETag is dropped
+    @DefaultValue("false")
+        boolean concurrent, // fetch alongside /user, unconditionally, instead of after it
+    @DefaultValue("20") int maxConcurrentFetches // beyond this, fetches run on the login thread
+    ) {}
@@ -0,0 +1,102 @@
+package com.example.hello.security;
+
+import io.micrometer.core.instrument.Clock;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+import org.springframework.stereotype.Component;
+
+/**
+ * Times the stages of a login and of the {@code /me} page as the {@code app.login.stage} timer,
+ * tagged {@code stage}, {@code registration} (the client registration id) and {@code outcome}
+ * ({@code success} or {@code error}). Histogram buckets for percentiles are configured under {@code
+ * management.metrics.distribution}.
+ *
+ * <p>Timers are resolved once per tag combination and then reused. With {@code
+ * app.login-metrics.enabled=false} nothing reads the clock or touches the registry.
+ */
+@Component
+public class LoginMetrics {
+
+  static final String TIMER = "app.login.stage";
+
+  /** A timed step; the tag value is {@link #tag}. */
+  public enum Stage {
+    /** Whole {@code loadUser}: provider calls plus the local upsert. */
+    LOGIN("login"),
+    /** Provider userinfo call. */
+    USERINFO("userinfo"),
+    /** GitHub {@code /user/emails}; when fetched concurrently, only the wait after userinfo. */
+    EMAILS("emails"),
+    /** Local user upsert, including its commit. */
+    UPSERT("upsert"),
+    /** User lookup on {@code /me}. */
+    LOOKUP("lookup"),
+    /** View rendering of {@code /me}. */
+    RENDER("render");
+
+    final String tag;
+
+    Stage(String tag) {
+      this.tag = tag;
+    }
+  }
+
+  private record Key(Stage stage, String registrationId, boolean success) {}
+
+  private final MeterRegistry registry;
+  private final Clock clock;
+  private final boolean enabled;
+  private final Map<Key, Timer> timers = new ConcurrentHashMap<>();
+
+  public LoginMetrics(MeterRegistry registry, LoginMetricsProperties properties) {
+    this.registry = registry;
+    this.clock = registry.config().clock();
+    this.enabled = properties.enabled();
+  }
+
+  public boolean enabled() {
+    return enabled;
+  }
+
+  /** Start time for {@link #record}, or 0 when disabled. */
+  public long start() {
+    return enabled ? clock.monotonicTime() : 0L;
+  }
+
+  /** Records the time since {@code start} (from {@link #start}) against the stage. */
+  public void record(Stage stage, String registrationId, boolean success, long start) {
+    if (!enabled) return;
+    timer(stage, registrationId, success)
+        .record(clock.monotonicTime() - start, TimeUnit.NANOSECONDS);
+  }
+
+  /** Runs {@code step} as the stage; exceptions are recorded as {@code outcome=error}. */
+  public <T> T time(Stage stage, String registrationId, Supplier<T> step) {
+    if (!enabled) return step.get();
+    long start = clock.monotonicTime();
+    boolean success = false;
+    try {
+      T result = step.get();
+      success = true;
+      return result;
+    } finally {
+      record(stage, registrationId, success, start);
+    }
+  }
+
+  private Timer timer(Stage stage, String registrationId, boolean success) {
+    return timers.computeIfAbsent(
+        new Key(stage, registrationId == null ? "unknown" : registrationId, success),
+        key ->
+            Timer.builder(TIMER)
+                .description("Duration of a login or /me stage")
+                .tag("stage", key.stage().tag)
+                .tag("registration", key.registrationId())
+                .tag("outcome", key.success() ? "success" : "error")
+                .register(registry));
+  }
+}
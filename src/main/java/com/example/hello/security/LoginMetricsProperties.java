@@ -0,0 +1,10 @@
+package com.example.hello.security;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Per-stage timing of the login pipeline, see {@link LoginMetrics}. */
+@ConfigurationProperties(prefix = "app.login-metrics")
+public record LoginMetricsProperties(
+    @DefaultValue("true") boolean enabled // false: stages are not timed at all
+    ) {}
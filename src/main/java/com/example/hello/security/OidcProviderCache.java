@@ -0,0 +1,286 @@
+package com.example.hello.security;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.jwk.JWK;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.source.JWKSource;
+import com.nimbusds.jose.proc.SecurityContext;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.text.ParseException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * OIDC discovery documents and signing keys (JWKS) per issuer, persisted as one JSON file per
+ * issuer under {@code app.oidc-cache.directory}. At startup a cached file is used as is, whatever
+ * its age, so booting needs no provider round trip; only an issuer seen for the first time is
+ * fetched inline. A background thread refetches each issuer once its copy is {@code ttl} old
+ * (retrying every {@code retry-interval} on failure, while the old copy keeps serving) and notifies
+ * {@link #onRefresh} listeners.
+ *
+ * <p>Key rotation: {@link #keySource} looks keys up in the cached JWKS, and refetches the JWKS when
+ * a token names a key it does not have, at most once per {@code key-refetch-interval} per issuer.
+ * The age of each issuer's copy is published as {@code app.oidc.metadata.age} tagged {@code
+ * issuer}.
+ */
+public class OidcProviderCache implements AutoCloseable {
+
+  private static final Logger log = LoggerFactory.getLogger(OidcProviderCache.class);
+
+  static final String DISCOVERY_PATH = "/.well-known/openid-configuration";
+
+  private static final ObjectMapper MAPPER = new ObjectMapper();
+  private static final TypeReference<Map<String, Object>> JSON_OBJECT = new TypeReference<>() {};
+
+  /** What is known about one issuer; {@code fetchedAt} is when discovery was last fetched. */
+  public record Entry(
+      String issuer, Map<String, Object> configuration, JWKSet jwks, Instant fetchedAt) {
+
+    /** A string member of the discovery document, e.g. {@code token_endpoint}. */
+    public String metadata(String name) {
+      Object value = configuration.get(name);
+      return value == null ? null : value.toString();
+    }
+  }
+
+  private final RestTemplate restTemplate;
+  private final OidcProviderCacheProperties properties;
+  private final MeterRegistry meterRegistry;
+  private final Path directory;
+  private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+  private final Map<String, Instant> keysRefetchedAt = new ConcurrentHashMap<>();
+  private final List<Runnable> listeners = new CopyOnWriteArrayList<>();
+  private final ReentrantLock lock = new ReentrantLock();
+  private final ScheduledExecutorService refresher;
+
+  public OidcProviderCache(
+      ClientHttpRequestFactory providerRequestFactory,
+      OidcProviderCacheProperties properties,
+      MeterRegistry meterRegistry) {
+    this.restTemplate = new RestTemplate(providerRequestFactory);
+    this.properties = properties;
+    this.meterRegistry = meterRegistry;
+    this.directory = properties.directoryPath();
+    this.refresher =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "oidc-metadata-refresh");
+              t.setDaemon(true);
+              return t;
+            });
+  }
+
+  /**
+   * Returns the issuer's metadata: from memory, else from its cache file, else fetched now (and
+   * written to the file). Schedules its background refresh on first use.
+   *
+   * @throws IllegalStateException if nothing is cached and the fetch fails
+   */
+  public Entry load(String issuer) {
+    lock.lock();
+    try {
+      Entry entry = entries.get(issuer);
+      if (entry != null) return entry;
+      entry = read(issuer);
+      if (entry == null) {
+        entry = fetch(issuer);
+        write(entry);
+      } else {
+        log.info("Using OIDC metadata for {} cached at {}", issuer, entry.fetchedAt());
+      }
+      entries.put(issuer, entry);
+      Gauge.builder("app.oidc.metadata.age", () -> age(issuer).toSeconds())
+          .tag("issuer", issuer)
+          .baseUnit("seconds")
+          .register(meterRegistry);
+      schedule(issuer, properties.ttl().minus(age(issuer)));
+      return entry;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Runs {@code listener} after every background refresh that replaced an issuer's metadata. */
+  public void onRefresh(Runnable listener) {
+    listeners.add(listener);
+  }
+
+  /**
+   * Signing keys of a {@linkplain #load loaded} issuer, for verifying its ID tokens. A lookup that
+   * matches no cached key refetches the JWKS first (rate limited), so rotated keys are picked up at
+   * the first token signed with them.
+   */
+  public JWKSource<SecurityContext> keySource(String issuer) {
+    return (selector, context) -> {
+      List<JWK> keys = selector.select(entries.get(issuer).jwks());
+      if (keys.isEmpty()) {
+        refetchKeys(issuer);
+        keys = selector.select(entries.get(issuer).jwks());
+      }
+      return keys;
+    };
+  }
+
+  @Override
+  public void close() {
+    refresher.shutdownNow();
+  }
+
+  void refresh(String issuer) {
+    try {
+      Entry fresh = fetch(issuer);
+      lock.lock();
+      try {
+        entries.put(issuer, fresh);
+        write(fresh);
+      } finally {
+        lock.unlock();
+      }
+      listeners.forEach(Runnable::run);
+      schedule(issuer, properties.ttl());
+    } catch (RuntimeException e) {
+      log.warn(
+          "Refreshing OIDC metadata for {} failed, keeping the cached copy: {}",
+          issuer,
+          e.toString());
+      schedule(issuer, properties.retryInterval());
+    }
+  }
+
+  private void refetchKeys(String issuer) {
+    lock.lock();
+    try {
+      Instant now = Instant.now();
+      Instant last = keysRefetchedAt.get(issuer);
+      if (last != null && now.isBefore(last.plus(properties.keyRefetchInterval()))) return;
+      keysRefetchedAt.put(issuer, now);
+      Entry entry = entries.get(issuer);
+      Entry updated =
+          new Entry(
+              issuer,
+              entry.configuration(),
+              fetchKeys(entry.metadata("jwks_uri")),
+              entry.fetchedAt());
+      entries.put(issuer, updated);
+      write(updated);
+      log.info("Refetched signing keys of {} for an unknown key id", issuer);
+    } catch (RuntimeException e) {
+      log.warn("Refetching signing keys of {} failed: {}", issuer, e.toString());
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  private Entry fetch(String issuer) {
+    Map<String, Object> configuration =
+        parse(
+            restTemplate.getForObject(issuer.replaceAll("/+$", "") + DISCOVERY_PATH, String.class));
+    // Same check as ClientRegistrations.fromIssuerLocation
+    if (!issuer.equals(configuration.get("issuer"))) {
+      throw new IllegalStateException(
+          "The Issuer \""
+              + configuration.get("issuer")
+              + "\" provided in the configuration metadata did not match the requested issuer \""
+              + issuer
+              + "\"");
+    }
+    Object jwksUri = configuration.get("jwks_uri");
+    if (jwksUri == null) {
+      throw new IllegalStateException("No jwks_uri in the configuration metadata of " + issuer);
+    }
+    return new Entry(issuer, configuration, fetchKeys(jwksUri.toString()), Instant.now());
+  }
+
+  private JWKSet fetchKeys(String jwksUri) {
+    try {
+      return JWKSet.parse(restTemplate.getForObject(jwksUri, String.class));
+    } catch (ParseException e) {
+      throw new RestClientException("Invalid JWKS at " + jwksUri, e);
+    }
+  }
+
+  private Entry read(String issuer) {
+    Path file = file(issuer);
+    if (!Files.exists(file)) return null;
+    try {
+      Map<String, Object> json = MAPPER.readValue(file.toFile(), JSON_OBJECT);
+      if (!issuer.equals(json.get("issuer"))) return null;
+      @SuppressWarnings("unchecked")
+      Map<String, Object> configuration = (Map<String, Object>) json.get("configuration");
+      @SuppressWarnings("unchecked")
+      Map<String, Object> jwks = (Map<String, Object>) json.get("jwks");
+      return new Entry(
+          issuer,
+          configuration,
+          JWKSet.parse(jwks),
+          Instant.parse(String.valueOf(json.get("fetchedAt"))));
+    } catch (IOException | ParseException | RuntimeException e) {
+      log.warn("Ignoring unreadable OIDC metadata cache {}: {}", file, e.toString());
+      return null;
+    }
+  }
+
+  /** Replaces the issuer's file atomically; a failed write only costs the next cold start. */
+  private void write(Entry entry) {
+    Map<String, Object> json = new LinkedHashMap<>();
+    json.put("issuer", entry.issuer());
+    json.put("fetchedAt", entry.fetchedAt().toString());
+    json.put("configuration", entry.configuration());
+    json.put("jwks", entry.jwks().toJSONObject(true));
+    Path file = file(entry.issuer());
+    try {
+      Files.createDirectories(directory);
+      Path temp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+      try {
+        MAPPER.writeValue(temp.toFile(), json);
+        Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      } finally {
+        Files.deleteIfExists(temp);
+      }
+    } catch (IOException e) {
+      log.warn("Could not write OIDC metadata cache {}: {}", file, e.toString());
+    }
+  }
+
+  private Path file(String issuer) {
+    return directory.resolve(issuer.replaceAll("[^A-Za-z0-9.-]+", "_") + ".json");
+  }
+
+  private Duration age(String issuer) {
+    Entry entry = entries.get(issuer);
+    return entry == null ? Duration.ZERO : Duration.between(entry.fetchedAt(), Instant.now());
+  }
+
+  private void schedule(String issuer, Duration delay) {
+    if (refresher.isShutdown()) return;
+    refresher.schedule(() -> refresh(issuer), Math.max(0, delay.toMillis()), TimeUnit.MILLISECONDS);
+  }
+
+  private static Map<String, Object> parse(String json) {
+    try {
+      return MAPPER.readValue(json, JSON_OBJECT);
+    } catch (IOException e) {
+      throw new RestClientException("Invalid OIDC configuration metadata", e);
+    }
+  }
+}
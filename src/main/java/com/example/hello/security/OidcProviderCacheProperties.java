@@ -0,0 +1,23 @@
+package com.example.hello.security;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Local copies of OIDC discovery documents and JWKS, see {@link OidcProviderCache}. */
+@ConfigurationProperties(prefix = "app.oidc-cache")
+public record OidcProviderCacheProperties(
+    @DefaultValue("true") boolean enabled, // false: Spring Boot fetches discovery at startup
+    @DefaultValue("") String directory, // blank: <java.io.tmpdir>/hello-sso/oidc
+    @DefaultValue("24h") Duration ttl, // age at which discovery and JWKS are refetched
+    @DefaultValue("1m") Duration retryInterval, // wait before retrying a failed refresh
+    @DefaultValue("30s") Duration keyRefetchInterval // min gap between refetches for unknown kids
+    ) {
+
+  public Path directoryPath() {
+    return directory.isBlank()
+        ? Path.of(System.getProperty("java.io.tmpdir"), "hello-sso", "oidc")
+        : Path.of(directory);
+  }
+}
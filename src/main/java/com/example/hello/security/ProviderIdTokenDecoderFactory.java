@@ -0,0 +1,57 @@
+package com.example.hello.security;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenDecoderFactory;
+import org.springframework.security.oauth2.client.oidc.authentication.OidcIdTokenValidator;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.DelegatingOAuth2TokenValidator;
+import org.springframework.security.oauth2.core.converter.ClaimTypeConverter;
+import org.springframework.security.oauth2.jose.jws.SignatureAlgorithm;
+import org.springframework.security.oauth2.jwt.JwtDecoder;
+import org.springframework.security.oauth2.jwt.JwtDecoderFactory;
+import org.springframework.security.oauth2.jwt.JwtTimestampValidator;
+import org.springframework.security.oauth2.jwt.NimbusJwtDecoder;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * ID token decoders that download the provider's JWKS through the pooled provider HTTP client, so
+ * the fetch is bounded by the {@code app.provider-http} timeouts. Spring's {@link
+ * OidcIdTokenDecoderFactory} uses a plain {@code RestTemplate} without any. Validation and claim
+ * conversion are Spring's; registrations without a JWKS URI are left to Spring's factory.
+ */
+public class ProviderIdTokenDecoderFactory implements JwtDecoderFactory<ClientRegistration> {
+
+  private final RestTemplate restTemplate;
+  private final JwtDecoderFactory<ClientRegistration> fallback = new OidcIdTokenDecoderFactory();
+  private final Map<String, JwtDecoder> decoders = new ConcurrentHashMap<>();
+
+  public ProviderIdTokenDecoderFactory(ClientHttpRequestFactory providerRequestFactory) {
+    this.restTemplate = new RestTemplate(providerRequestFactory);
+  }
+
+  @Override
+  public JwtDecoder createDecoder(ClientRegistration registration) {
+    String jwkSetUri = registration.getProviderDetails().getJwkSetUri();
+    if (jwkSetUri == null || jwkSetUri.isBlank()) {
+      return fallback.createDecoder(registration);
+    }
+    return decoders.computeIfAbsent(
+        registration.getRegistrationId(), id -> decoder(registration, jwkSetUri));
+  }
+
+  private JwtDecoder decoder(ClientRegistration registration, String jwkSetUri) {
+    NimbusJwtDecoder decoder =
+        NimbusJwtDecoder.withJwkSetUri(jwkSetUri)
+            .jwsAlgorithm(SignatureAlgorithm.RS256)
+            .restOperations(restTemplate)
+            .build();
+    decoder.setJwtValidator(
+        new DelegatingOAuth2TokenValidator<>(
+            new JwtTimestampValidator(), new OidcIdTokenValidator(registration)));
+    decoder.setClaimSetConverter(
+        new ClaimTypeConverter(OidcIdTokenDecoderFactory.createDefaultClaimTypeConverters()));
+    return decoder;
+  }
+}
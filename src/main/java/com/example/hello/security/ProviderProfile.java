@@ -1,5 +1,10 @@
 package com.example.hello.security;
 
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
 /** Normalized profile information from an external OAuth2/OIDC provider. */
 public record ProviderProfile(
     String provider, // e.g. "AZURE" or "GITHUB"
@@ -8,4 +13,30 @@ public record ProviderProfile(
     String displayName, // best-effort human name
     String email, // may be null
     String avatarUrl // may be null
-    ) {}
+    ) {
+
+  /**
+   * The first 64 bits of a SHA-256 over the profile columns (everything but the key), stored as
+   * {@code app_user.profile_hash}: equal fingerprints mean the stored profile is current. Null and
+   * empty values hash differently, and so do values that only differ in where one field ends.
+   */
+  public long fingerprint() {
+    MessageDigest sha256;
+    try {
+      sha256 = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+    for (String value : new String[] {username, displayName, email, avatarUrl}) {
+      if (value == null) {
+        sha256.update((byte) 0);
+      } else {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        sha256.update((byte) 1);
+        sha256.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        sha256.update(bytes);
+      }
+    }
+    return ByteBuffer.wrap(sha256.digest()).getLong();
+  }
+}
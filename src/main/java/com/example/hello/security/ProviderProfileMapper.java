@@ -7,6 +7,31 @@ public final class ProviderProfileMapper {
 
   private ProviderProfileMapper() {}
 
+  /**
+   * Maps the attributes of a login through {@code registrationId}: GitHub and Azure by their own
+   * rules, anything else minimally from common claims.
+   */
+  public static ProviderProfile fromRegistration(
+      String registrationId, Map<String, Object> attributes) {
+    if ("github".equalsIgnoreCase(registrationId)) {
+      return fromGithub(attributes);
+    }
+    if ("azure".equalsIgnoreCase(registrationId)) {
+      return fromAzure(attributes);
+    }
+    String provider = registrationId == null ? "UNKNOWN" : registrationId.toUpperCase();
+    String externalId = firstNonBlank(string(attributes.get("sub")), string(attributes.get("id")));
+    String username =
+        firstNonBlank(
+            string(attributes.get("preferred_username")),
+            string(attributes.get("login")),
+            externalId);
+    String displayName = firstNonBlank(string(attributes.get("name")), username);
+    String email = string(attributes.get("email"));
+    String avatarUrl = string(attributes.get("avatar_url"));
+    return new ProviderProfile(provider, externalId, username, displayName, email, avatarUrl);
+  }
+
   public static ProviderProfile fromGithub(Map<String, Object> attributes) {
     String provider = "GITHUB";
     String externalId = string(attributes.get("id"));
@@ -0,0 +1,77 @@
+package com.example.hello.security;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.util.Base64;
+import javax.crypto.Cipher;
+import javax.crypto.SecretKey;
+import javax.crypto.spec.GCMParameterSpec;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Seals cookie values with AES-GCM: the value is encrypted and authenticated with one key, so it
+ * can be neither read nor forged by the client. Each value is bound to a {@code purpose} (the GCM
+ * associated data), so a cookie sealed for one use is rejected for another. Thread-safe.
+ *
+ * <p>Format: base64url of {@code version (1) | iv (12) | ciphertext+tag}.
+ */
+public class SessionCookieCodec {
+
+  private static final byte VERSION = 1;
+  private static final int IV_LENGTH = 12;
+  private static final int TAG_BITS = 128;
+
+  private final SecretKey key;
+  private final SecureRandom random = new SecureRandom();
+
+  public SessionCookieCodec(byte[] key) {
+    if (key.length != 16 && key.length != 24 && key.length != 32) {
+      throw new IllegalArgumentException("AES key must be 16, 24 or 32 bytes, got " + key.length);
+    }
+    this.key = new SecretKeySpec(key, "AES");
+  }
+
+  /** Parses a base64 key as configured in {@code app.session.key}. */
+  public static SessionCookieCodec fromBase64(String key) {
+    if (key == null || key.isBlank()) {
+      throw new IllegalStateException(
+          "app.session.key must be set (base64, 32 bytes) when app.session.mode=cookie");
+    }
+    return new SessionCookieCodec(Base64.getDecoder().decode(key.trim()));
+  }
+
+  public String seal(byte[] plaintext, String purpose) {
+    byte[] iv = new byte[IV_LENGTH];
+    random.nextBytes(iv);
+    try {
+      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      cipher.init(Cipher.ENCRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, iv));
+      cipher.updateAAD(purpose.getBytes(StandardCharsets.UTF_8));
+      byte[] sealed = cipher.doFinal(plaintext);
+      ByteBuffer out = ByteBuffer.allocate(1 + IV_LENGTH + sealed.length);
+      out.put(VERSION).put(iv).put(sealed);
+      return Base64.getUrlEncoder().withoutPadding().encodeToString(out.array());
+    } catch (GeneralSecurityException e) {
+      throw new IllegalStateException("Cannot seal cookie", e);
+    }
+  }
+
+  /**
+   * Returns the plaintext, or {@code null} if the value is malformed, forged or for another use.
+   */
+  public byte[] open(String value, String purpose) {
+    if (value == null || value.isEmpty()) return null;
+    try {
+      byte[] in = Base64.getUrlDecoder().decode(value);
+      if (in.length < 1 + IV_LENGTH + TAG_BITS / 8 || in[0] != VERSION) return null;
+      Cipher cipher = Cipher.getInstance("AES/GCM/NoPadding");
+      cipher.init(Cipher.DECRYPT_MODE, key, new GCMParameterSpec(TAG_BITS, in, 1, IV_LENGTH));
+      cipher.updateAAD(purpose.getBytes(StandardCharsets.UTF_8));
+      return cipher.doFinal(in, 1 + IV_LENGTH, in.length - 1 - IV_LENGTH);
+    } catch (IllegalArgumentException | GeneralSecurityException e) {
+      return null;
+    }
+  }
+}
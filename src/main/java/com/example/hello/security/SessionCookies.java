@@ -0,0 +1,42 @@
+package com.example.hello.security;
+
+import jakarta.servlet.http.Cookie;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.time.Duration;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseCookie;
+
+/** Reads and writes the HttpOnly, SameSite=Lax cookies of the cookie session mode. */
+final class SessionCookies {
+
+  private SessionCookies() {}
+
+  static String read(HttpServletRequest request, String name) {
+    Cookie[] cookies = request.getCookies();
+    if (cookies == null) return null;
+    for (Cookie cookie : cookies) {
+      if (name.equals(cookie.getName())) return cookie.getValue();
+    }
+    return null;
+  }
+
+  static void write(
+      HttpServletResponse response, String name, String value, Duration maxAge, boolean secure) {
+    response.addHeader(
+        HttpHeaders.SET_COOKIE,
+        ResponseCookie.from(name, value)
+            .path("/")
+            .httpOnly(true)
+            .secure(secure)
+            // Lax: sent on the top-level GET back from the provider, not on cross-site POSTs
+            .sameSite("Lax")
+            .maxAge(maxAge)
+            .build()
+            .toString());
+  }
+
+  static void clear(HttpServletResponse response, String name, boolean secure) {
+    write(response, name, "", Duration.ZERO, secure);
+  }
+}
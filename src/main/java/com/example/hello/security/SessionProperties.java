@@ -0,0 +1,25 @@
+package com.example.hello.security;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/**
+ * Where the logged-in state lives between requests, see {@link CookieSecurityContextRepository}.
+ */
+@ConfigurationProperties(prefix = "app.session")
+public record SessionProperties(
+    @DefaultValue("servlet") Mode mode,
+    @DefaultValue("APP_SESSION") String cookieName,
+    @DefaultValue("") String key, // base64 AES key (16/24/32 bytes), required in cookie mode
+    @DefaultValue("8h") Duration maxAge, // absolute lifetime of a cookie session
+    @DefaultValue("true") boolean secure // Secure attribute on the cookies
+    ) {
+
+  public enum Mode {
+    /** Servlet {@code HttpSession} on the node that handled the login (sticky routing). */
+    SERVLET,
+    /** Encrypted cookies only; any node can serve any request. */
+    COOKIE
+  }
+}
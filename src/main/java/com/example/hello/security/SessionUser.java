@@ -0,0 +1,107 @@
+package com.example.hello.security;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.oauth2.core.user.OAuth2User;
+
+/**
+ * The principal of a cookie session: the local user id plus the profile fields needed to render and
+ * look up the user, instead of every attribute the provider returned. Serialized to a compact
+ * binary form for {@link CookieSecurityContextRepository}.
+ */
+public record SessionUser(
+    String registrationId, UUID userId, ProviderProfile profile, Instant expiresAt)
+    implements OAuth2User {
+
+  private static final byte FORMAT = 1;
+  private static final List<GrantedAuthority> AUTHORITIES =
+      List.of(new SimpleGrantedAuthority("OAUTH2_USER"));
+
+  @Override
+  public String getName() {
+    return profile.externalId();
+  }
+
+  @Override
+  public Collection<? extends GrantedAuthority> getAuthorities() {
+    return AUTHORITIES;
+  }
+
+  @Override
+  public Map<String, Object> getAttributes() {
+    Map<String, Object> attributes = new LinkedHashMap<>();
+    attributes.put("provider", profile.provider());
+    attributes.put("externalId", profile.externalId());
+    attributes.put("username", profile.username());
+    attributes.put("name", profile.displayName());
+    attributes.put("email", profile.email());
+    attributes.put("avatar_url", profile.avatarUrl());
+    attributes.values().removeIf(v -> v == null);
+    return attributes;
+  }
+
+  byte[] toBytes() {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+    try (DataOutputStream out = new DataOutputStream(bytes)) {
+      out.writeByte(FORMAT);
+      out.writeLong(expiresAt.getEpochSecond());
+      out.writeUTF(registrationId);
+      out.writeBoolean(userId != null);
+      if (userId != null) {
+        out.writeLong(userId.getMostSignificantBits());
+        out.writeLong(userId.getLeastSignificantBits());
+      }
+      writeNullable(out, profile.provider());
+      writeNullable(out, profile.externalId());
+      writeNullable(out, profile.username());
+      writeNullable(out, profile.displayName());
+      writeNullable(out, profile.email());
+      writeNullable(out, profile.avatarUrl());
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return bytes.toByteArray();
+  }
+
+  /** Parses {@link #toBytes()} output; {@code null} if the format is unknown or truncated. */
+  static SessionUser fromBytes(byte[] bytes) {
+    try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes))) {
+      if (in.readByte() != FORMAT) return null;
+      Instant expiresAt = Instant.ofEpochSecond(in.readLong());
+      String registrationId = in.readUTF();
+      UUID userId = in.readBoolean() ? new UUID(in.readLong(), in.readLong()) : null;
+      ProviderProfile profile =
+          new ProviderProfile(
+              readNullable(in),
+              readNullable(in),
+              readNullable(in),
+              readNullable(in),
+              readNullable(in),
+              readNullable(in));
+      return new SessionUser(registrationId, userId, profile, expiresAt);
+    } catch (IOException e) {
+      return null;
+    }
+  }
+
+  private static void writeNullable(DataOutputStream out, String value) throws IOException {
+    out.writeBoolean(value != null);
+    if (value != null) out.writeUTF(value);
+  }
+
+  private static String readNullable(DataInputStream in) throws IOException {
+    return in.readBoolean() ? in.readUTF() : null;
+  }
+}
@@ -0,0 +1,22 @@
+package com.example.hello.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.stereotype.Component;
+
+/** {@code /actuator/activeusers}: daily, weekly and monthly active users and login rates. */
+@Component
+@Endpoint(id = "activeusers")
+public class ActiveUsersEndpoint {
+
+  private final LoginAnalytics analytics;
+
+  public ActiveUsersEndpoint(LoginAnalytics analytics) {
+    this.analytics = analytics;
+  }
+
+  @ReadOperation
+  public LoginAnalytics.Report activeUsers() {
+    return analytics.activeUsers();
+  }
+}
@@ -0,0 +1,288 @@
+package com.example.hello.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.MediaType;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+/**
+ * Size-bounded on-disk LRU cache of avatar images, one file per avatar URL. A file is named by
+ * {@link #key} of the URL, so a user whose avatar URL changes gets a new file; the old one ages
+ * out. Concurrent misses for one URL share a single fetch. A failed fetch is remembered for {@code
+ * failure-ttl} so a broken avatar does not cost every page view a provider round trip.
+ *
+ * <p>The recency order lives in memory. On startup it is rebuilt from the files in the directory,
+ * oldest fetch first.
+ */
+@Component
+public class AvatarCache {
+
+  private static final Logger log = LoggerFactory.getLogger(AvatarCache.class);
+
+  // SVG is left out: it can carry script
+  private static final Map<String, String> EXTENSIONS =
+      Map.of("image/png", "png", "image/jpeg", "jpg", "image/gif", "gif", "image/webp", "webp");
+  private static final Pattern FILE_NAME = Pattern.compile("([0-9a-f]{32})\\.(png|jpg|gif|webp)");
+
+  private final RestTemplate restTemplate;
+  private final Path directory;
+  private final long maximumSize;
+  private final long maximumImageSize;
+  private final List<String> allowedHosts;
+  private final Map<String, Avatar> index = new LinkedHashMap<>(16, 0.75f, true); // access order
+  private final SingleFlight<String, Avatar> fetches = new SingleFlight<>();
+  private final Cache<String, Boolean> failures;
+  private final Counter hits;
+  private final Counter misses;
+  private final Counter shared;
+  private final Counter evictions;
+  private long totalBytes; // guarded by index
+
+  public AvatarCache(
+      ClientHttpRequestFactory providerRequestFactory,
+      AvatarCacheProperties properties,
+      MeterRegistry meterRegistry) {
+    this.restTemplate = new RestTemplate(providerRequestFactory);
+    this.directory = properties.directoryPath();
+    this.maximumSize = properties.maximumSize().toBytes();
+    this.maximumImageSize = properties.maximumImageSize().toBytes();
+    this.allowedHosts =
+        properties.allowedHosts().stream().map(h -> h.toLowerCase(Locale.ROOT)).toList();
+    this.failures = Caffeine.newBuilder().expireAfterWrite(properties.failureTtl()).build();
+    this.hits = meterRegistry.counter("app.avatar.cache.requests", "result", "hit");
+    this.misses = meterRegistry.counter("app.avatar.cache.requests", "result", "miss");
+    this.shared = meterRegistry.counter("app.avatar.fetch.shared");
+    this.evictions = meterRegistry.counter("app.avatar.cache.evictions");
+    Gauge.builder("app.avatar.cache.size", this, AvatarCache::totalBytes)
+        .baseUnit("bytes")
+        .register(meterRegistry);
+    load();
+  }
+
+  /** Stable file name stem for an avatar URL: hex of the first 128 bits of its SHA-256. */
+  public static String key(String avatarUrl) {
+    try {
+      byte[] digest =
+          MessageDigest.getInstance("SHA-256").digest(avatarUrl.getBytes(StandardCharsets.UTF_8));
+      return HexFormat.of().formatHex(digest, 0, 16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /** Whether {@code avatarUrl} is one this cache would fetch. */
+  public boolean proxies(String avatarUrl) {
+    return avatarUrl != null && allowedUri(avatarUrl) != null;
+  }
+
+  /** The cached image of {@code avatarUrl}, fetched on a miss; empty if it cannot be had. */
+  public Optional<Avatar> get(String avatarUrl) {
+    String key = key(avatarUrl);
+    Avatar cached = lookup(key);
+    if (cached != null) {
+      hits.increment();
+      return Optional.of(cached);
+    }
+    misses.increment();
+    URI uri = allowedUri(avatarUrl);
+    if (uri == null || failures.getIfPresent(key) != null) {
+      return Optional.empty();
+    }
+    try {
+      return Optional.of(fetches.run(key, () -> fetch(key, uri), shared::increment));
+    } catch (RuntimeException e) {
+      failures.put(key, Boolean.TRUE);
+      log.debug("Avatar fetch of {} failed: {}", uri, e.toString());
+      return Optional.empty();
+    }
+  }
+
+  /** Drops an entry whose file has gone missing, so the next request fetches it again. */
+  public void invalidate(Avatar avatar) {
+    synchronized (index) {
+      if (index.remove(avatar.key(), avatar)) {
+        totalBytes -= avatar.size();
+      }
+    }
+  }
+
+  private Avatar lookup(String key) {
+    synchronized (index) {
+      return index.get(key);
+    }
+  }
+
+  private long totalBytes() {
+    synchronized (index) {
+      return totalBytes;
+    }
+  }
+
+  private URI allowedUri(String avatarUrl) {
+    try {
+      URI uri = URI.create(avatarUrl);
+      String scheme = uri.getScheme();
+      boolean web = "https".equalsIgnoreCase(scheme) || "http".equalsIgnoreCase(scheme);
+      return web
+              && uri.getHost() != null
+              && allowedHosts.contains(uri.getHost().toLowerCase(Locale.ROOT))
+          ? uri
+          : null;
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  private Avatar fetch(String key, URI uri) {
+    Avatar cached = lookup(key); // a fetch that finished just before this one started
+    if (cached != null) return cached;
+    return restTemplate.execute(
+        uri,
+        HttpMethod.GET,
+        request -> request.getHeaders().setAccept(List.of(MediaType.parseMediaType("image/*"))),
+        response -> {
+          MediaType type = response.getHeaders().getContentType();
+          String extension =
+              type == null ? null : EXTENSIONS.get(type.getType() + "/" + type.getSubtype());
+          if (extension == null) {
+            throw new RestClientException("Unsupported avatar content type " + type);
+          }
+          if (response.getHeaders().getContentLength() > maximumImageSize) {
+            throw new RestClientException("Avatar larger than " + maximumImageSize + " bytes");
+          }
+          return admit(write(key, extension, response.getBody()));
+        });
+  }
+
+  /** Copies the image into its file via a temporary one, so a file is only ever complete. */
+  private Avatar write(String key, String extension, InputStream body) throws IOException {
+    Files.createDirectories(directory);
+    Path temp = Files.createTempFile(directory, key, ".tmp");
+    try {
+      long size = 0;
+      try (OutputStream out = Files.newOutputStream(temp)) {
+        byte[] buffer = new byte[8192];
+        for (int n; (n = body.read(buffer)) != -1; ) {
+          size += n;
+          if (size > maximumImageSize) {
+            throw new RestClientException("Avatar larger than " + maximumImageSize + " bytes");
+          }
+          out.write(buffer, 0, n);
+        }
+      }
+      Path file = directory.resolve(key + "." + extension);
+      Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+      return new Avatar(key, file, size, mediaType(extension));
+    } finally {
+      Files.deleteIfExists(temp);
+    }
+  }
+
+  /** Adds an entry as the most recent one and evicts the least recent beyond the size bound. */
+  private Avatar admit(Avatar avatar) {
+    List<Path> evicted = new ArrayList<>();
+    synchronized (index) {
+      Avatar replaced = index.put(avatar.key(), avatar);
+      if (replaced != null) totalBytes -= replaced.size();
+      totalBytes += avatar.size();
+      Iterator<Avatar> eldest = index.values().iterator();
+      while (totalBytes > maximumSize && index.size() > 1) {
+        Avatar entry = eldest.next();
+        eldest.remove();
+        totalBytes -= entry.size();
+        evictions.increment();
+        evicted.add(entry.file());
+      }
+    }
+    // File I/O outside the lock, which every lookup takes. A response already handed one of these
+    // files to the container may fail; the browser refetches
+    evicted.forEach(AvatarCache::delete);
+    return avatar;
+  }
+
+  private void load() {
+    if (!Files.isDirectory(directory)) return;
+    try (Stream<Path> files = Files.list(directory)) {
+      files
+          .sorted(Comparator.comparing(AvatarCache::lastModified))
+          .forEach(
+              file -> {
+                Matcher name = FILE_NAME.matcher(file.getFileName().toString());
+                if (name.matches()) {
+                  admit(new Avatar(name.group(1), file, size(file), mediaType(name.group(2))));
+                } else if (file.getFileName().toString().endsWith(".tmp")) {
+                  delete(file); // left over from an interrupted fetch
+                }
+              });
+    } catch (IOException e) {
+      log.warn("Could not read avatar cache {}: {}", directory, e.toString());
+    }
+  }
+
+  private static MediaType mediaType(String extension) {
+    return EXTENSIONS.entrySet().stream()
+        .filter(e -> e.getValue().equals(extension))
+        .map(e -> MediaType.parseMediaType(e.getKey()))
+        .findFirst()
+        .orElseThrow();
+  }
+
+  private static FileTime lastModified(Path file) {
+    try {
+      return Files.getLastModifiedTime(file);
+    } catch (IOException e) {
+      return FileTime.fromMillis(0);
+    }
+  }
+
+  private static long size(Path file) {
+    try {
+      return Files.size(file);
+    } catch (IOException e) {
+      return 0;
+    }
+  }
+
+  private static void delete(Path file) {
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      log.warn("Could not delete cached avatar {}: {}", file, e.toString());
+    }
+  }
+
+  /** A complete image file in the cache. */
+  public record Avatar(String key, Path file, long size, MediaType contentType) {}
+}
@@ -0,0 +1,26 @@
+package com.example.hello.service;
+
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+import org.springframework.util.unit.DataSize;
+
+/** Local copies of user avatars served from {@code /avatars/{userId}}, see {@link AvatarCache}. */
+@ConfigurationProperties(prefix = "app.avatar-cache")
+public record AvatarCacheProperties(
+    @DefaultValue("") String directory, // blank: <java.io.tmpdir>/hello-sso/avatars
+    @DefaultValue("100MB") DataSize maximumSize, // total bytes on disk before LRU eviction
+    @DefaultValue("1MB") DataSize maximumImageSize, // larger images are not proxied
+    @DefaultValue("avatars.githubusercontent.com")
+        List<String> allowedHosts, // only avatar URLs on these hosts are fetched
+    @DefaultValue("1m") Duration failureTtl // a failed fetch is not retried before this
+    ) {
+
+  public Path directoryPath() {
+    return directory.isBlank()
+        ? Path.of(System.getProperty("java.io.tmpdir"), "hello-sso", "avatars")
+        : Path.of(directory);
+  }
+}
@@ -0,0 +1,93 @@
+package com.example.hello.service;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+
+/**
+ * HyperLogLog distinct-count sketch with 2^{@value #PRECISION} one-byte registers (16 KiB, about
+ * 0.8% standard error). Adding is lock-free: a register is raised with a compare-and-set and never
+ * lowered, so concurrent adds and merges cannot lose each other's updates. Sketches are unioned by
+ * taking the register-wise maximum, which is how the database copy and several days are combined.
+ */
+final class HyperLogLog {
+
+  static final int PRECISION = 14;
+  static final int REGISTERS = 1 << PRECISION;
+
+  private static final VarHandle REGISTER = MethodHandles.arrayElementVarHandle(byte[].class);
+  private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+  private final byte[] registers = new byte[REGISTERS];
+
+  /** Adds an element by its 64-bit hash, see {@link #hash}; true if that changed the sketch. */
+  boolean add(long hash) {
+    int index = (int) (hash >>> (64 - PRECISION));
+    // Rank of the first set bit in the remaining bits; the sentinel bit caps it at 64 - p + 1
+    byte rank =
+        (byte) (Long.numberOfLeadingZeros((hash << PRECISION) | (1L << (PRECISION - 1))) + 1);
+    return raise(index, rank);
+  }
+
+  /** Unions {@code other} (registers as from {@link #toBytes}) into this sketch. */
+  void merge(byte[] other) {
+    if (other.length != REGISTERS) {
+      throw new IllegalArgumentException(
+          "Expected " + REGISTERS + " registers, got " + other.length);
+    }
+    for (int i = 0; i < REGISTERS; i++) {
+      if (other[i] != 0) raise(i, other[i]);
+    }
+  }
+
+  /** A copy of the registers; a concurrent add may or may not be included. */
+  byte[] toBytes() {
+    byte[] copy = new byte[REGISTERS];
+    for (int i = 0; i < REGISTERS; i++) {
+      copy[i] = (byte) REGISTER.getOpaque(registers, i);
+    }
+    return copy;
+  }
+
+  /** Estimated number of distinct elements added to any of the sketches. */
+  static long estimate(Iterable<HyperLogLog> sketches) {
+    double sum = 0;
+    int zeros = 0;
+    for (int i = 0; i < REGISTERS; i++) {
+      int max = 0;
+      for (HyperLogLog sketch : sketches) {
+        max = Math.max(max, (byte) REGISTER.getOpaque(sketch.registers, i));
+      }
+      sum += Math.scalb(1.0, -max);
+      if (max == 0) zeros++;
+    }
+    double estimate = ALPHA * REGISTERS * REGISTERS / sum;
+    if (estimate <= 2.5 * REGISTERS && zeros > 0) {
+      estimate = REGISTERS * Math.log((double) REGISTERS / zeros); // linear counting
+    }
+    return Math.round(estimate);
+  }
+
+  /** 64-bit FNV-1a over the characters, finished with MurmurHash3's fmix64 for avalanche. */
+  static long hash(String value) {
+    long h = 0xcbf29ce484222325L;
+    for (int i = 0; i < value.length(); i++) {
+      h = (h ^ value.charAt(i)) * 0x100000001b3L;
+    }
+    h ^= h >>> 33;
+    h *= 0xff51afd7ed558ccdL;
+    h ^= h >>> 33;
+    h *= 0xc4ceb9fe1a85ec53L;
+    h ^= h >>> 33;
+    return h;
+  }
+
+  private boolean raise(int index, byte rank) {
+    byte current = (byte) REGISTER.getOpaque(registers, index);
+    while (rank > current) {
+      byte witness = (byte) REGISTER.compareAndExchange(registers, index, current, rank);
+      if (witness == current) return true;
+      current = witness;
+    }
+    return false;
+  }
+}
@@ -0,0 +1,14 @@
+package com.example.hello.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Tuning for the write-behind batcher of {@code app_user.last_login_at}. */
+@ConfigurationProperties(prefix = "app.last-login")
+public record LastLoginProperties(
+    @DefaultValue("500") int batchSize, // pending users that trigger an early flush
+    @DefaultValue("1s") Duration flushInterval, // periodic flush when the batch is not full
+    @DefaultValue("10000") int capacity, // distinct users held in memory before backpressure
+    @DefaultValue("50ms") Duration offerTimeout // wait for capacity before writing inline
+    ) {}
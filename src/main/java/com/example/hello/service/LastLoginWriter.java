@@ -0,0 +1,199 @@
+package com.example.hello.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+/**
+ * Write-behind batcher for {@code last_login_at}. Logins record a timestamp in memory (coalesced
+ * per user, latest wins) and a background thread flushes them as JDBC batch UPDATEs when either
+ * {@code batchSize} users are pending or {@code flushInterval} elapses. The number of pending users
+ * is bounded by {@code capacity}; when full, callers wait up to {@code offerTimeout} and then write
+ * their own row inline, so a slow database slows logins down instead of growing the heap.
+ */
+@Component
+public class LastLoginWriter {
+
+  private static final Logger log = LoggerFactory.getLogger(LastLoginWriter.class);
+
+  // Never move the timestamp backwards if an older flush races a newer one. updated_at moves to
+  // the write time, so incremental exports (which filter on it) pick up the new last_login_at
+  static final String UPDATE_SQL =
+      "UPDATE app_user SET last_login_at = ?, updated_at = GREATEST(updated_at, ?)"
+          + " WHERE id = ? AND (last_login_at IS NULL OR last_login_at < ?)";
+
+  private final JdbcTemplate jdbcTemplate;
+  private final LastLoginProperties properties;
+  private final ConcurrentHashMap<UUID, Instant> pending = new ConcurrentHashMap<>();
+  private final Semaphore capacity;
+  private final ReentrantLock flushLock = new ReentrantLock();
+  private final AtomicBoolean flushRequested = new AtomicBoolean();
+  private final ScheduledExecutorService flusher;
+
+  private final Timer flushTimer;
+  private final DistributionSummary batchSizes;
+  private final Counter coalesced;
+  private final Counter overflow;
+  private final Counter failures;
+
+  public LastLoginWriter(
+      JdbcTemplate jdbcTemplate, LastLoginProperties properties, MeterRegistry meterRegistry) {
+    this.jdbcTemplate = jdbcTemplate;
+    this.properties = properties;
+    this.capacity = new Semaphore(properties.capacity());
+    this.flushTimer = meterRegistry.timer("app.lastlogin.flush");
+    this.batchSizes = meterRegistry.summary("app.lastlogin.batch.size");
+    this.coalesced = meterRegistry.counter("app.lastlogin.coalesced");
+    this.overflow = meterRegistry.counter("app.lastlogin.overflow");
+    this.failures = meterRegistry.counter("app.lastlogin.flush.failures");
+    Gauge.builder("app.lastlogin.queue.depth", pending, ConcurrentHashMap::size)
+        .register(meterRegistry);
+
+    this.flusher =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "last-login-writer");
+              t.setDaemon(true);
+              return t;
+            });
+    long intervalMs = properties.flushInterval().toMillis();
+    flusher.scheduleWithFixedDelay(
+        this::flushQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  /** Records a login for the user; returns without touching the database in the common case. */
+  public void record(UUID userId, Instant at) {
+    while (true) {
+      if (pending.computeIfPresent(userId, (id, prev) -> later(prev, at)) != null) {
+        coalesced.increment();
+        return;
+      }
+      if (!acquireCapacity()) {
+        overflow.increment();
+        write(List.<Object[]>of(new Object[] {timestamp(at), userId, timestamp(at)}));
+        return;
+      }
+      if (pending.putIfAbsent(userId, at) == null) {
+        if (pending.size() >= properties.batchSize()) {
+          requestFlush();
+        }
+        return;
+      }
+      // Another login for the same user got in first; give the slot back and coalesce
+      capacity.release();
+    }
+  }
+
+  /** Writes all pending timestamps now, in batches of at most {@code batchSize}. */
+  public void flush() {
+    flushLock.lock();
+    try {
+      List<Object[]> batch = new ArrayList<>(Math.min(pending.size(), properties.batchSize()));
+      for (UUID id : pending.keySet()) {
+        Instant at = pending.remove(id);
+        if (at == null) continue;
+        capacity.release();
+        batch.add(new Object[] {timestamp(at), id, timestamp(at)});
+        if (batch.size() >= properties.batchSize()) {
+          write(batch);
+          batch = new ArrayList<>(properties.batchSize());
+        }
+      }
+      if (!batch.isEmpty()) {
+        write(batch);
+      }
+    } finally {
+      flushLock.unlock();
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    flusher.shutdown();
+    try {
+      if (!flusher.awaitTermination(5, TimeUnit.SECONDS)) {
+        log.warn("Last-login flusher did not stop in time");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flushQuietly();
+  }
+
+  private boolean acquireCapacity() {
+    try {
+      return capacity.tryAcquire(properties.offerTimeout().toNanos(), TimeUnit.NANOSECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      return false;
+    }
+  }
+
+  private void requestFlush() {
+    if (flushRequested.compareAndSet(false, true)) {
+      flusher.execute(
+          () -> {
+            flushRequested.set(false);
+            flushQuietly();
+          });
+    }
+  }
+
+  private void flushQuietly() {
+    try {
+      flush();
+    } catch (RuntimeException e) {
+      log.warn("Last-login flush failed: {}", e.toString());
+    }
+  }
+
+  /** Writes {@code {last_login_at, id, last_login_at}} rows. */
+  private void write(List<Object[]> batch) {
+    long start = System.nanoTime();
+    // Timestamps are stored with microsecond precision
+    OffsetDateTime written = timestamp(Instant.now().truncatedTo(ChronoUnit.MICROS));
+    List<Object[]> rows = new ArrayList<>(batch.size());
+    for (Object[] row : batch) {
+      rows.add(new Object[] {row[0], written, row[1], row[2]});
+    }
+    try {
+      jdbcTemplate.batchUpdate(UPDATE_SQL, rows);
+      batchSizes.record(batch.size());
+    } catch (RuntimeException e) {
+      // Last-login timestamps are best effort; drop the batch rather than blocking logins
+      failures.increment();
+      log.warn("Dropping {} last-login updates: {}", batch.size(), e.toString());
+    } finally {
+      flushTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  private static Instant later(Instant a, Instant b) {
+    return a.isAfter(b) ? a : b;
+  }
+
+  private static OffsetDateTime timestamp(Instant at) {
+    return at.atOffset(ZoneOffset.UTC);
+  }
+}
@@ -0,0 +1,282 @@
+package com.example.hello.service;
+
+import com.example.hello.repository.LoginSketchRepository;
+import com.example.hello.repository.LoginSketchRepository.LoginSketch;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Active-user analytics fed by every login, without scanning {@code app_user}. Each provider has
+ * one {@link HyperLogLog} sketch of its users per UTC day, so daily, weekly and monthly actives are
+ * unions of 1, 7 and 30 sketches: the cost of a query depends on neither the number of users nor of
+ * logins. Login rates come from lock-free per-minute counters.
+ *
+ * <p>A background thread merges the sketches that changed into {@code login_sketch} every {@code
+ * snapshotInterval} and reads back what other nodes merged, so after a snapshot every node answers
+ * for the whole cluster, and a restarted node starts from the stored sketches. Login rates are per
+ * node and start from zero.
+ */
+@Component
+public class LoginAnalytics {
+
+  private static final Logger log = LoggerFactory.getLogger(LoginAnalytics.class);
+
+  static final int WAU_DAYS = 7;
+  static final int MAU_DAYS = 30;
+
+  private final LoginSketchRepository repository;
+  private final TransactionTemplate transaction;
+  private final LoginAnalyticsProperties properties;
+  private final Clock clock;
+  private final ConcurrentHashMap<Bucket, HyperLogLog> sketches = new ConcurrentHashMap<>();
+  private final Set<Bucket> dirty = ConcurrentHashMap.newKeySet();
+  private final ConcurrentHashMap<String, LoginRateCounter> rates = new ConcurrentHashMap<>();
+  private final LoginRateCounter allRates = new LoginRateCounter();
+  private final ReentrantLock snapshotLock = new ReentrantLock();
+  private final ScheduledExecutorService snapshotter;
+  private final Timer snapshotTimer;
+  private final Counter failures;
+  private Instant lastPull = Instant.EPOCH; // guarded by snapshotLock
+
+  @Autowired
+  public LoginAnalytics(
+      LoginSketchRepository repository,
+      PlatformTransactionManager transactionManager,
+      LoginAnalyticsProperties properties,
+      MeterRegistry meterRegistry) {
+    this(repository, transactionManager, properties, meterRegistry, Clock.systemUTC());
+  }
+
+  LoginAnalytics(
+      LoginSketchRepository repository,
+      PlatformTransactionManager transactionManager,
+      LoginAnalyticsProperties properties,
+      MeterRegistry meterRegistry,
+      Clock clock) {
+    this.repository = repository;
+    this.transaction = new TransactionTemplate(transactionManager);
+    this.properties = properties;
+    this.clock = clock;
+    this.snapshotTimer = meterRegistry.timer("app.login.analytics.snapshot");
+    this.failures = meterRegistry.counter("app.login.analytics.snapshot.failures");
+
+    // Flyway has migrated by now: Spring Boot makes JdbcTemplate depend on it
+    snapshotLock.lock();
+    try {
+      pull(clock.instant());
+    } catch (RuntimeException e) {
+      log.warn("Could not restore login sketches, starting empty: {}", e.toString());
+    } finally {
+      snapshotLock.unlock();
+    }
+
+    this.snapshotter =
+        Executors.newSingleThreadScheduledExecutor(
+            r -> {
+              Thread t = new Thread(r, "login-analytics-snapshot");
+              t.setDaemon(true);
+              return t;
+            });
+    long intervalMs = properties.snapshotInterval().toMillis();
+    snapshotter.scheduleWithFixedDelay(
+        this::snapshotQuietly, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+  }
+
+  record Bucket(String provider, LocalDate day) {}
+
+  /** Estimated distinct users (about 0.8% standard error) and exact login counts. */
+  public record ActiveUsers(
+      long daily,
+      long weekly,
+      long monthly,
+      long loginsLastMinute,
+      long loginsLastHour,
+      long loginsSinceStart) {}
+
+  public record Report(Instant at, ActiveUsers all, Map<String, ActiveUsers> providers) {}
+
+  /** Counts a successful login; touches memory only. */
+  public void recordLogin(String provider, String externalId) {
+    Instant now = clock.instant();
+    Bucket bucket = new Bucket(provider, day(now));
+    HyperLogLog sketch = sketches.get(bucket);
+    if (sketch == null) {
+      sketch = sketches.computeIfAbsent(bucket, b -> new HyperLogLog());
+    }
+    // Most logins are repeat users whose registers are already set; only changes need a snapshot
+    if (sketch.add(HyperLogLog.hash(provider + ':' + externalId))) {
+      dirty.add(bucket);
+    }
+    long minute = minute(now);
+    LoginRateCounter rate = rates.get(provider);
+    if (rate == null) {
+      rate = rates.computeIfAbsent(provider, p -> new LoginRateCounter());
+    }
+    rate.increment(minute);
+    allRates.increment(minute);
+  }
+
+  /** Active users and login rates per provider and across all of them. */
+  public Report activeUsers() {
+    Instant now = clock.instant();
+    LocalDate today = day(now);
+    long minute = minute(now);
+    Set<String> providers = new TreeSet<>(rates.keySet());
+    for (Bucket bucket : sketches.keySet()) {
+      providers.add(bucket.provider());
+    }
+
+    Map<String, ActiveUsers> byProvider = new TreeMap<>();
+    for (String provider : providers) {
+      byProvider.put(provider, activeUsers(List.of(provider), today, rates.get(provider), minute));
+    }
+    return new Report(
+        now, activeUsers(List.copyOf(providers), today, allRates, minute), byProvider);
+  }
+
+  /** Merges the sketches changed since the last snapshot into the database and reads back. */
+  public void snapshot() {
+    snapshotLock.lock();
+    long start = System.nanoTime();
+    try {
+      Instant now = clock.instant();
+      for (Bucket bucket : dirty) {
+        if (!dirty.remove(bucket)) continue;
+        HyperLogLog sketch = sketches.get(bucket);
+        if (sketch == null) continue;
+        try {
+          sketch.merge(save(bucket, sketch.toBytes(), now));
+        } catch (RuntimeException e) {
+          dirty.add(bucket);
+          throw e;
+        }
+      }
+      pull(now);
+      LocalDate oldest = oldestDay(now);
+      sketches.keySet().removeIf(bucket -> bucket.day().isBefore(oldest));
+      repository.deleteBefore(oldest);
+    } finally {
+      snapshotLock.unlock();
+      snapshotTimer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+    }
+  }
+
+  @PreDestroy
+  public void close() {
+    snapshotter.shutdown();
+    try {
+      if (!snapshotter.awaitTermination(5, TimeUnit.SECONDS)) {
+        log.warn("Login analytics snapshotter did not stop in time");
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    snapshotQuietly();
+  }
+
+  private ActiveUsers activeUsers(
+      List<String> providers, LocalDate today, LoginRateCounter rate, long minute) {
+    List<HyperLogLog> days = new ArrayList<>();
+    long daily = 0;
+    long weekly = 0;
+    for (int age = 0; age < MAU_DAYS; age++) {
+      for (String provider : providers) {
+        HyperLogLog sketch = sketches.get(new Bucket(provider, today.minusDays(age)));
+        if (sketch != null) days.add(sketch);
+      }
+      if (age == 0) daily = HyperLogLog.estimate(days);
+      if (age == WAU_DAYS - 1) weekly = HyperLogLog.estimate(days);
+    }
+    long monthly = HyperLogLog.estimate(days);
+    return rate == null
+        ? new ActiveUsers(daily, weekly, monthly, 0, 0, 0)
+        : new ActiveUsers(
+            daily, weekly, monthly, rate.sum(minute, 1), rate.sum(minute, 60), rate.total());
+  }
+
+  /** Stores the union of {@code registers} and the stored row; returns that union. */
+  private byte[] save(Bucket bucket, byte[] registers, Instant now) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return transaction.execute(
+            status -> {
+              byte[] stored =
+                  repository.lockRegisters(bucket.provider(), bucket.day()).orElse(null);
+              if (stored == null) {
+                repository.insert(bucket.provider(), bucket.day(), registers, now);
+                return registers;
+              }
+              HyperLogLog union = new HyperLogLog();
+              union.merge(stored);
+              union.merge(registers);
+              byte[] merged = union.toBytes();
+              repository.update(bucket.provider(), bucket.day(), merged, now);
+              return merged;
+            });
+      } catch (DuplicateKeyException e) {
+        // Another node inserted the row first; the next attempt locks and merges it
+        if (attempt == 2) throw e;
+      }
+    }
+  }
+
+  /**
+   * Merges rows written since the last pull. The window reaches one interval further back so a row
+   * committed late by another node is not missed; merging a row twice changes nothing.
+   */
+  private void pull(Instant now) {
+    Instant since = lastPull.minus(properties.snapshotInterval());
+    for (LoginSketch row : repository.findSince(oldestDay(now), since)) {
+      sketches
+          .computeIfAbsent(new Bucket(row.provider(), row.day()), b -> new HyperLogLog())
+          .merge(row.registers());
+    }
+    lastPull = now;
+  }
+
+  private void snapshotQuietly() {
+    try {
+      snapshot();
+    } catch (RuntimeException e) {
+      // Changed sketches stay marked and go out with the next snapshot
+      failures.increment();
+      log.warn("Login analytics snapshot failed: {}", e.toString());
+    }
+  }
+
+  private LocalDate oldestDay(Instant now) {
+    return day(now.minus(properties.retention())).plusDays(1);
+  }
+
+  private static LocalDate day(Instant at) {
+    return LocalDate.ofInstant(at, ZoneOffset.UTC);
+  }
+
+  private static long minute(Instant at) {
+    return at.getEpochSecond() / 60;
+  }
+}
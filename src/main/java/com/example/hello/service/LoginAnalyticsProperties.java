@@ -0,0 +1,24 @@
+package com.example.hello.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Snapshotting and retention of the active-user sketches kept by {@link LoginAnalytics}. */
+@ConfigurationProperties(prefix = "app.login-analytics")
+public record LoginAnalyticsProperties(
+    @DefaultValue("5m")
+        Duration snapshotInterval, // how often changed sketches are merged into the DB
+    @DefaultValue("35d") Duration retention // daily sketches kept in memory and in login_sketch
+    ) {
+
+  public LoginAnalyticsProperties {
+    if (snapshotInterval.isNegative() || snapshotInterval.isZero()) {
+      throw new IllegalArgumentException("app.login-analytics.snapshot-interval must be positive");
+    }
+    if (retention.compareTo(Duration.ofDays(LoginAnalytics.MAU_DAYS)) < 0) {
+      // Monthly active users are read from the last 30 daily sketches
+      throw new IllegalArgumentException("app.login-analytics.retention must be at least 30d");
+    }
+  }
+}
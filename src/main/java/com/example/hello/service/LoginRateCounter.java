@@ -0,0 +1,45 @@
+package com.example.hello.service;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free login counts for the last hour, one slot per minute. Each slot holds its minute and
+ * count in one {@code long}, so a login in a new minute resets the slot in the same compare-and-set
+ * that counts it and no increment is lost at a minute boundary.
+ */
+final class LoginRateCounter {
+
+  private static final int SLOTS = 60;
+  private static final int COUNT_BITS = 24; // up to 16M logins per minute per provider
+  private static final long COUNT_MASK = (1L << COUNT_BITS) - 1;
+
+  private final AtomicLongArray slots = new AtomicLongArray(SLOTS);
+  private final LongAdder total = new LongAdder();
+
+  void increment(long epochMinute) {
+    total.increment();
+    slots.updateAndGet(
+        (int) (epochMinute % SLOTS),
+        slot ->
+            (slot >>> COUNT_BITS) == epochMinute
+                ? slot + ((slot & COUNT_MASK) < COUNT_MASK ? 1 : 0)
+                : (epochMinute << COUNT_BITS) | 1);
+  }
+
+  /** Logins in the {@code minutes} minutes up to and including {@code nowMinute} (at most 60). */
+  long sum(long nowMinute, int minutes) {
+    long sum = 0;
+    for (int i = 0; i < SLOTS; i++) {
+      long slot = slots.get(i);
+      long age = nowMinute - (slot >>> COUNT_BITS);
+      if (age >= 0 && age < minutes) sum += slot & COUNT_MASK;
+    }
+    return sum;
+  }
+
+  /** Logins counted since startup. */
+  long total() {
+    return total.sum();
+  }
+}
@@ -0,0 +1,42 @@
+package com.example.hello.service;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls per key: the first caller runs the call, callers arriving while it
+ * runs wait for and share its result or exception. Calls for different keys never wait on each
+ * other; the in-flight map is a {@link ConcurrentHashMap}, which locks per bin.
+ */
+final class SingleFlight<K, V> {
+
+  private final ConcurrentHashMap<K, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+
+  /** The result of {@code call}, run here or by a concurrent caller with an equal key. */
+  V run(K key, Supplier<V> call, Runnable onShared) {
+    CompletableFuture<V> mine = new CompletableFuture<>();
+    CompletableFuture<V> running = inFlight.putIfAbsent(key, mine);
+    if (running != null) {
+      onShared.run();
+      try {
+        return running.join();
+      } catch (CompletionException e) {
+        throw e.getCause() instanceof RuntimeException cause ? cause : e;
+      }
+    }
+    V result;
+    try {
+      result = call.get();
+    } catch (RuntimeException | Error e) {
+      inFlight.remove(key, mine);
+      mine.completeExceptionally(e);
+      throw e;
+    }
+    // Removed first, so a caller woken by this result and calling again starts a new flight
+    inFlight.remove(key, mine);
+    mine.complete(result);
+    return result;
+  }
+}
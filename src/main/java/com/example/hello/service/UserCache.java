@@ -0,0 +1,80 @@
+package com.example.hello.service;
+
+import com.example.hello.domain.User;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import java.util.function.Function;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+/**
+ * Bounded, TTL-evicting cache of local users keyed by (provider, externalId). Entries are detached
+ * entities and must be treated as read-only. Hit/miss/eviction statistics are published as the
+ * {@code cache.*} meters tagged {@code cache=users}.
+ */
+@Component
+public class UserCache {
+
+  static final String NAME = "users";
+
+  private final Cache<Key, User> cache;
+
+  public UserCache(UserCacheProperties properties, MeterRegistry meterRegistry) {
+    this.cache =
+        Caffeine.newBuilder()
+            .maximumSize(properties.maximumSize())
+            .expireAfterWrite(properties.ttl())
+            .recordStats()
+            .build();
+    CaffeineCacheMetrics.monitor(meterRegistry, cache, NAME);
+  }
+
+  /**
+   * Returns the cached user, or computes it with {@code loader}. A {@code null} result from the
+   * loader is not cached. The loader runs outside the cache's internal locks: it does JDBC I/O, and
+   * blocking inside Caffeine's compute (a {@code synchronized} map bin) would pin virtual threads.
+   * Concurrent misses for the same key may therefore each invoke the loader.
+   */
+  public User get(String provider, String externalId, Function<Key, User> loader) {
+    Key key = new Key(provider, externalId);
+    User cached = cache.getIfPresent(key);
+    if (cached != null) {
+      return cached;
+    }
+    User loaded = loader.apply(key);
+    if (loaded == null) {
+      return null;
+    }
+    // Never replace an entry written meanwhile, e.g. by putAfterCommit after a profile update
+    User raced = cache.asMap().putIfAbsent(key, loaded);
+    return raced != null ? raced : loaded;
+  }
+
+  /** Caches the user once the surrounding transaction (if any) has committed. */
+  public void putAfterCommit(User user) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              put(user);
+            }
+          });
+    } else {
+      put(user);
+    }
+  }
+
+  public void put(User user) {
+    cache.put(new Key(user.getProvider(), user.getExternalId()), user);
+  }
+
+  public void evict(String provider, String externalId) {
+    cache.invalidate(new Key(provider, externalId));
+  }
+
+  public record Key(String provider, String externalId) {}
+}
@@ -0,0 +1,12 @@
+package com.example.hello.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Sizing of the in-process user cache that serves /me reads. */
+@ConfigurationProperties(prefix = "app.user-cache")
+public record UserCacheProperties(
+    @DefaultValue("10000") long maximumSize, // upper bound on cached users
+    @DefaultValue("5m") Duration ttl // time after write before an entry is evicted
+    ) {}
@@ -0,0 +1,20 @@
+package com.example.hello.service;
+
+import java.time.Duration;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Streaming of {@code app_user} by {@link UserExportService}. */
+@ConfigurationProperties(prefix = "app.user-export")
+public record UserExportProperties(
+    @DefaultValue("1000") int fetchSize, // rows per cursor fetch, and per flush to the client
+    @DefaultValue("30s")
+        Duration safetyLag // how far behind now an export ends; longer than any write transaction
+    ) {
+
+  public UserExportProperties {
+    if (safetyLag.isNegative()) {
+      throw new IllegalArgumentException("app.user-export.safety-lag must not be negative");
+    }
+  }
+}
@@ -0,0 +1,180 @@
+package com.example.hello.service;
+
+import com.example.hello.domain.User;
+import com.example.hello.repository.UserExportRepository;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+/**
+ * Bulk export of {@code app_user} for directory and analytics syncs, written row by row from the
+ * cursor of {@link UserExportRepository} and flushed every {@code fetch-size} rows. Memory use does
+ * not depend on the number of rows.
+ */
+@Service
+public class UserExportService {
+
+  private static final String[] COLUMNS = {
+    "id",
+    "provider",
+    "external_id",
+    "username",
+    "display_name",
+    "email",
+    "avatar_url",
+    "created_at",
+    "updated_at",
+    "last_login_at"
+  };
+
+  private final UserExportRepository repository;
+  private final UserExportProperties properties;
+  private final JsonFactory jsonFactory = new JsonFactory();
+
+  public UserExportService(UserExportRepository repository, UserExportProperties properties) {
+    this.repository = repository;
+    this.properties = properties;
+  }
+
+  public enum Format {
+    /** One JSON object per line, {@code application/x-ndjson}. */
+    NDJSON("application/x-ndjson"),
+    /** RFC 4180 with a header row, {@code text/csv}. */
+    CSV("text/csv");
+
+    private final String contentType;
+
+    Format(String contentType) {
+      this.contentType = contentType;
+    }
+
+    public String contentType() {
+      return contentType;
+    }
+  }
+
+  /**
+   * The upper bound for an export started now: {@code safety-lag} in the past. {@code updated_at}
+   * is stamped before the write commits, so a row stamped just before now may become visible only
+   * after this export has read past it; ending the export earlier leaves such rows to the next one.
+   */
+  public Instant until() {
+    // Timestamps are stored with microsecond precision
+    return Instant.now().minus(properties.safetyLag()).truncatedTo(ChronoUnit.MICROS);
+  }
+
+  /**
+   * Writes the users with {@code since <= updated_at < until} to {@code out}, oldest change first.
+   * Passing this export's {@code until} as the next {@code since} picks up exactly the later
+   * changes. Returns the number of rows.
+   */
+  @Transactional(readOnly = true)
+  public long export(Format format, Instant since, Instant until, OutputStream out)
+      throws IOException {
+    Writer writer =
+        new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16);
+    RowWriter rows = format == Format.CSV ? new CsvRows(writer) : new NdjsonRows(writer);
+    int flushEvery = properties.fetchSize();
+    long[] pending = {0};
+    long count =
+        repository.forEachUpdated(
+            since,
+            until,
+            properties.fetchSize(),
+            user -> {
+              rows.write(user);
+              if (++pending[0] == flushEvery) {
+                // Hand what was fetched to the client before waiting on the next fetch
+                writer.flush();
+                pending[0] = 0;
+              }
+            });
+    writer.flush();
+    return count;
+  }
+
+  private interface RowWriter {
+    void write(User user) throws IOException;
+  }
+
+  private final class NdjsonRows implements RowWriter {
+
+    private final Writer writer;
+    private final JsonGenerator json;
+
+    NdjsonRows(Writer writer) throws IOException {
+      this.writer = writer;
+      this.json = jsonFactory.createGenerator(writer);
+      json.setRootValueSeparator(null);
+      // Flushing and closing the writer is left to the caller
+      json.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+      json.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+    }
+
+    @Override
+    public void write(User user) throws IOException {
+      Object[] values = values(user);
+      json.writeStartObject();
+      for (int i = 0; i < COLUMNS.length; i++) {
+        json.writeStringField(COLUMNS[i], values[i] == null ? null : values[i].toString());
+      }
+      json.writeEndObject();
+      json.flush();
+      writer.write('\n');
+    }
+  }
+
+  private static final class CsvRows implements RowWriter {
+
+    private final Writer writer;
+
+    CsvRows(Writer writer) throws IOException {
+      this.writer = writer;
+      writer.write(String.join(",", COLUMNS));
+      writer.write("\r\n");
+    }
+
+    @Override
+    public void write(User user) throws IOException {
+      Object[] values = values(user);
+      for (int i = 0; i < values.length; i++) {
+        if (i > 0) writer.write(',');
+        if (values[i] != null) writer.write(quote(values[i].toString()));
+      }
+      writer.write("\r\n");
+    }
+
+    private static String quote(String value) {
+      boolean plain = true;
+      for (int i = 0; i < value.length() && plain; i++) {
+        char c = value.charAt(i);
+        plain = c != ',' && c != '"' && c != '\r' && c != '\n';
+      }
+      return plain ? value : '"' + value.replace("\"", "\"\"") + '"';
+    }
+  }
+
+  private static Object[] values(User user) {
+    return new Object[] {
+      user.getId(),
+      user.getProvider(),
+      user.getExternalId(),
+      user.getUsername(),
+      user.getDisplayName(),
+      user.getEmail(),
+      user.getAvatarUrl(),
+      user.getCreatedAt(),
+      user.getUpdatedAt(),
+      user.getLastLoginAt()
+    };
+  }
+}
@@ -0,0 +1,70 @@
+package com.example.hello.service;
+
+import com.example.hello.domain.User;
+import com.example.hello.security.ProviderProfile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.dao.ConcurrencyFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+
+/**
+ * Login-time onboarding of the local user, safe against simultaneous logins of one identity (tabs,
+ * client retries). Within this node, concurrent calls for one provider user run {@link
+ * UserService#getOrCreateFromProviderProfile} one at a time: callers with the profile being written
+ * share its committed result, callers with a different one wait for it and then write theirs in the
+ * next flight for that user. Races with other nodes surface as a unique-key or optimistic-lock
+ * failure and are retried, up to {@code app.user-upsert.max-attempts} tries in total; the next try
+ * finds the row the winner committed.
+ */
+@Component
+public class UserOnboarding {
+
+  private final UserService userService;
+  private final UserUpsertProperties properties;
+  private final SingleFlight<Identity, Onboarded> flights = new SingleFlight<>();
+  private final Counter shared;
+  private final Counter retries;
+
+  public UserOnboarding(
+      UserService userService, UserUpsertProperties properties, MeterRegistry meterRegistry) {
+    this.userService = userService;
+    this.properties = properties;
+    this.shared = meterRegistry.counter("app.user.upsert.shared");
+    this.retries = meterRegistry.counter("app.user.upsert.retries");
+  }
+
+  private record Identity(String provider, String externalId) {}
+
+  private record Onboarded(ProviderProfile profile, User user) {}
+
+  public User onboard(ProviderProfile profile) {
+    Identity identity = new Identity(profile.provider(), profile.externalId());
+    while (true) {
+      // Outside any transaction: followers only ever see a committed user
+      Onboarded onboarded =
+          flights.run(identity, () -> new Onboarded(profile, upsertWithRetry(profile)), () -> {});
+      if (onboarded.profile() == profile) {
+        return onboarded.user();
+      }
+      if (onboarded.profile().equals(profile)) {
+        shared.increment();
+        return onboarded.user();
+      }
+      // That flight wrote another profile of this user; queue for the next one
+    }
+  }
+
+  private User upsertWithRetry(ProviderProfile profile) {
+    for (int attempt = 1; ; attempt++) {
+      try {
+        return userService.getOrCreateFromProviderProfile(profile);
+      } catch (DataIntegrityViolationException | ConcurrencyFailureException e) {
+        if (attempt >= properties.maxAttempts()) {
+          throw e;
+        }
+        retries.increment();
+      }
+    }
+  }
+}
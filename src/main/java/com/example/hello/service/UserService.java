@@ -2,49 +2,216 @@ package com.example.hello.service;
 
 import com.example.hello.domain.User;
 import com.example.hello.repository.UserRepository;
+import com.example.hello.repository.UserUpsertRepository;
 import com.example.hello.security.ProviderProfile;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
 import java.time.Instant;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.stream.Stream;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 @Service
 public class UserService {
 
   private final UserRepository userRepository;
+  private final UserUpsertRepository userUpsertRepository;
+  private final UserCache userCache;
+  private final LastLoginWriter lastLoginWriter;
+  private final UserUpsertProperties upsertProperties;
+  private final TransactionTemplate chunkTransaction;
+  private final EntityManagerFactory entityManagerFactory;
+  private final Map<UserUpsertRepository.Outcome, Counter> loginUpserts =
+      new EnumMap<>(UserUpsertRepository.Outcome.class);
 
-  public UserService(UserRepository userRepository) {
+  public UserService(
+      UserRepository userRepository,
+      UserUpsertRepository userUpsertRepository,
+      UserCache userCache,
+      LastLoginWriter lastLoginWriter,
+      UserUpsertProperties upsertProperties,
+      PlatformTransactionManager transactionManager,
+      EntityManagerFactory entityManagerFactory,
+      MeterRegistry meterRegistry) {
     this.userRepository = userRepository;
+    this.userUpsertRepository = userUpsertRepository;
+    this.userCache = userCache;
+    this.lastLoginWriter = lastLoginWriter;
+    this.upsertProperties = upsertProperties;
+    this.chunkTransaction = new TransactionTemplate(transactionManager);
+    this.entityManagerFactory = entityManagerFactory;
+    for (UserUpsertRepository.Outcome outcome : UserUpsertRepository.Outcome.values()) {
+      loginUpserts.put(
+          outcome,
+          meterRegistry.counter("app.user.upsert", "outcome", outcome.name().toLowerCase()));
+    }
+  }
+
+  /**
+   * Read-only lookup for page rendering. Served from the user cache and falls back to a single
+   * SELECT on a miss; never writes. Empty if the user has not been onboarded yet.
+   */
+  @Transactional(readOnly = true)
+  public Optional<User> findCached(ProviderProfile profile) {
+    return Optional.ofNullable(
+        userCache.get(
+            profile.provider(),
+            profile.externalId(),
+            key ->
+                userRepository
+                    .findByProviderAndExternalId(key.provider(), key.externalId())
+                    .orElse(null)));
+  }
+
+  /** Read-only lookup by local id; served from the second-level cache once loaded. */
+  @Transactional(readOnly = true)
+  public Optional<User> findById(UUID id) {
+    return userRepository.findById(id);
   }
 
+  /**
+   * Login-time upsert: creates or updates the local user and refreshes the user cache. Whether the
+   * profile changed is decided by comparing {@link ProviderProfile#fingerprint()} with the stored
+   * {@code profile_hash}; each login is counted in {@code app.user.upsert} by outcome.
+   */
   @Transactional
   public User getOrCreateFromProviderProfile(ProviderProfile profile) {
+    User user =
+        upsertProperties.mode() == UserUpsertProperties.Mode.NATIVE
+            ? nativeUpsert(profile)
+            : upsert(profile);
+    userCache.putAfterCommit(user);
+    return user;
+  }
+
+  /**
+   * Bulk onboarding (IdP migrations, pre-provisioning): creates or updates a user per profile
+   * without logging anyone in, so new users have no {@code last_login_at}. Profiles are taken
+   * {@code app.user-upsert.bulk-chunk-size} at a time; within a chunk the last profile of a user
+   * wins, and each chunk is one transaction with one SELECT and one JDBC batch. If a chunk fails,
+   * the chunks before it stay committed; running the same input again is safe.
+   */
+  public BulkUpsertResult bulkUpsert(Stream<ProviderProfile> profiles) {
+    BulkUpsertResult total = new BulkUpsertResult(0, 0, 0, 0, 0);
+    Map<UserCache.Key, ProviderProfile> chunk = new LinkedHashMap<>();
+    long duplicates = 0;
+    Iterator<ProviderProfile> it = profiles.iterator();
+    while (it.hasNext()) {
+      ProviderProfile profile = it.next();
+      if (chunk.put(new UserCache.Key(profile.provider(), profile.externalId()), profile) != null) {
+        duplicates++;
+      }
+      if (chunk.size() == upsertProperties.bulkChunkSize() || !it.hasNext()) {
+        total = total.plus(upsertChunk(chunk.values()));
+        chunk.clear();
+      }
+    }
+    return new BulkUpsertResult(
+        total.created(), total.updated(), total.unchanged(), duplicates, total.chunks());
+  }
+
+  private BulkUpsertResult upsertChunk(Collection<ProviderProfile> chunk) {
+    UserUpsertRepository.BatchResult result =
+        chunkTransaction.execute(tx -> userUpsertRepository.upsertAll(chunk, Instant.now()));
+    // Committed: cached copies of the changed users are stale
+    for (ProviderProfile profile : result.updated()) {
+      userCache.evict(profile.provider(), profile.externalId());
+    }
+    if (!result.updated().isEmpty()) {
+      // The batch does not return ids, and bulk runs are rare enough to drop the whole region
+      entityManagerFactory.getCache().evict(User.class);
+    }
+    return new BulkUpsertResult(
+        result.created().size(), result.updated().size(), result.unchanged(), 0, 1);
+  }
+
+  /**
+   * Totals of a {@link #bulkUpsert}: users created, updated and left unchanged, profiles dropped as
+   * an earlier duplicate of a later one in the same chunk, and chunks committed.
+   */
+  public record BulkUpsertResult(
+      long created, long updated, long unchanged, long duplicates, long chunks) {
+
+    BulkUpsertResult plus(BulkUpsertResult other) {
+      return new BulkUpsertResult(
+          created + other.created,
+          updated + other.updated,
+          unchanged + other.unchanged,
+          duplicates + other.duplicates,
+          chunks + other.chunks);
+    }
+  }
+
+  private User nativeUpsert(ProviderProfile profile) {
     var now = Instant.now();
+    var result = userUpsertRepository.upsert(profile, now);
+    loginUpserts.get(result.outcome()).increment();
+    User u = result.user();
+    if (result.outcome() == UserUpsertRepository.Outcome.UPDATED) {
+      // Written by JDBC behind Hibernate's back
+      evictEntityAfterCommit(u.getId());
+    }
+    if (result.outcome() != UserUpsertRepository.Outcome.CREATED) {
+      u.setLastLoginAt(now);
+      lastLoginWriter.record(u.getId(), now);
+    }
+    return u;
+  }
+
+  /**
+   * Drops the second-level cache entry of a user once the surrounding transaction has committed; an
+   * earlier eviction could be undone by a concurrent load of the old row. The natural id maps to
+   * the same id forever, so its region needs no eviction.
+   */
+  private void evictEntityAfterCommit(UUID id) {
+    if (TransactionSynchronizationManager.isSynchronizationActive()) {
+      TransactionSynchronizationManager.registerSynchronization(
+          new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+              entityManagerFactory.getCache().evict(User.class, id);
+            }
+          });
+    } else {
+      entityManagerFactory.getCache().evict(User.class, id);
+    }
+  }
+
+  private User upsert(ProviderProfile profile) {
+    var now = Instant.now();
+    long fingerprint = profile.fingerprint();
     var existing =
         userRepository.findByProviderAndExternalId(profile.provider(), profile.externalId());
     if (existing.isPresent()) {
+      // Managed: an UPDATE is only flushed on commit if the fingerprint said the profile changed
       User u = existing.get();
-      boolean changed = false;
-      if (!safeEquals(u.getUsername(), profile.username())) {
+      if (Long.valueOf(fingerprint).equals(u.getProfileHash())) {
+        loginUpserts.get(UserUpsertRepository.Outcome.UNCHANGED).increment();
+      } else {
         u.setUsername(profile.username());
-        changed = true;
-      }
-      if (!safeEquals(u.getDisplayName(), profile.displayName())) {
         u.setDisplayName(profile.displayName());
-        changed = true;
-      }
-      if (!safeEquals(u.getEmail(), profile.email())) {
         u.setEmail(profile.email());
-        changed = true;
-      }
-      if (!safeEquals(u.getAvatarUrl(), profile.avatarUrl())) {
         u.setAvatarUrl(profile.avatarUrl());
-        changed = true;
+        u.setProfileHash(fingerprint);
+        loginUpserts.get(UserUpsertRepository.Outcome.UPDATED).increment();
       }
+      // last_login_at is not updatable through JPA: an unchanged profile issues no UPDATE and the
+      // timestamp is flushed in batches by the write-behind writer
       u.setLastLoginAt(now);
-      if (changed) {
-        // preUpdate will handle updatedAt
-      }
-      return userRepository.save(u);
+      lastLoginWriter.record(u.getId(), now);
+      return u;
     }
     // create new
     User u = new User();
@@ -54,11 +221,9 @@ public class UserService {
     u.setDisplayName(profile.displayName());
     u.setEmail(profile.email());
     u.setAvatarUrl(profile.avatarUrl());
+    u.setProfileHash(fingerprint);
     u.setLastLoginAt(now);
+    loginUpserts.get(UserUpsertRepository.Outcome.CREATED).increment();
     return userRepository.save(u);
   }
-
-  private static boolean safeEquals(Object a, Object b) {
-    return a == null ? b == null : a.equals(b);
-  }
 }
@@ -0,0 +1,31 @@
+package com.example.hello.service;
+
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.boot.context.properties.bind.DefaultValue;
+
+/** Selects how logins upsert the local user, and how bulk onboarding batches its writes. */
+@ConfigurationProperties(prefix = "app.user-upsert")
+public record UserUpsertProperties(
+    @DefaultValue("jpa") Mode mode,
+    @DefaultValue("1000")
+        int bulkChunkSize, // profiles per transaction and JDBC batch in bulkUpsert
+    @DefaultValue("3") int maxAttempts // login upsert tries when racing another node on one user
+    ) {
+
+  public UserUpsertProperties {
+    if (bulkChunkSize < 1 || bulkChunkSize > 10_000) {
+      // The chunk's keys are bound in one SELECT; PostgreSQL allows 32767 parameters
+      throw new IllegalArgumentException("app.user-upsert.bulk-chunk-size must be 1..10000");
+    }
+    if (maxAttempts < 1) {
+      throw new IllegalArgumentException("app.user-upsert.max-attempts must be at least 1");
+    }
+  }
+
+  public enum Mode {
+    /** SELECT through the repository, then INSERT or UPDATE via the persistence context. */
+    JPA,
+    /** One native INSERT ... ON CONFLICT / MERGE statement (see UserUpsertRepository). */
+    NATIVE
+  }
+}
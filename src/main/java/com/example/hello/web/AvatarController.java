@@ -0,0 +1,97 @@
+package com.example.hello.web;
+
+import com.example.hello.domain.User;
+import com.example.hello.service.AvatarCache;
+import com.example.hello.service.AvatarCache.Avatar;
+import com.example.hello.service.UserService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardOpenOption;
+import java.util.Optional;
+import java.util.UUID;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.context.request.ServletWebRequest;
+
+/**
+ * {@code GET /avatars/{userId}}: the user's avatar from {@link AvatarCache}, so pages never load
+ * images from a third party. With {@code v} equal to the current version (as linked from {@code
+ * /me}) the response may be cached for a year, since a new avatar gets a new {@code v}; without it
+ * browsers revalidate by {@code ETag}.
+ *
+ * <p>On Tomcat the file is handed to the connector, which sends it with {@code sendfile} after the
+ * handler returns, without copying it through the JVM. Elsewhere (other containers, MockMvc) it is
+ * streamed with {@link FileChannel#transferTo}.
+ */
+@Controller
+public class AvatarController {
+
+  // Tomcat's sendfile contract (see org.apache.coyote.Constants)
+  static final String SENDFILE_SUPPORTED = "org.apache.tomcat.sendfile.support";
+  static final String SENDFILE_FILENAME = "org.apache.tomcat.sendfile.filename";
+  static final String SENDFILE_START = "org.apache.tomcat.sendfile.start";
+  static final String SENDFILE_END = "org.apache.tomcat.sendfile.end";
+
+  private final UserService userService;
+  private final AvatarCache avatarCache;
+
+  public AvatarController(UserService userService, AvatarCache avatarCache) {
+    this.userService = userService;
+    this.avatarCache = avatarCache;
+  }
+
+  @GetMapping("/avatars/{userId}")
+  public void avatar(
+      @PathVariable UUID userId,
+      @RequestParam(required = false) String v,
+      HttpServletRequest request,
+      HttpServletResponse response)
+      throws IOException {
+    Optional<Avatar> found =
+        userService.findById(userId).map(User::getAvatarUrl).flatMap(this::cached);
+    if (found.isEmpty()) {
+      response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+      return;
+    }
+    Avatar avatar = found.get();
+    response.setHeader(
+        HttpHeaders.CACHE_CONTROL,
+        avatar.key().equals(v) ? "private, max-age=31536000, immutable" : "private, no-cache");
+    if (new ServletWebRequest(request, response).checkNotModified("\"" + avatar.key() + "\"")) {
+      return;
+    }
+    response.setContentType(avatar.contentType().toString());
+    response.setContentLengthLong(avatar.size());
+    if (Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED))) {
+      request.setAttribute(SENDFILE_FILENAME, avatar.file().toAbsolutePath().toString());
+      request.setAttribute(SENDFILE_START, 0L);
+      request.setAttribute(SENDFILE_END, avatar.size());
+      return;
+    }
+    try (FileChannel file = FileChannel.open(avatar.file(), StandardOpenOption.READ)) {
+      WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+      for (long sent = 0; sent < avatar.size(); ) {
+        sent += file.transferTo(sent, avatar.size() - sent, out);
+      }
+    } catch (NoSuchFileException e) {
+      // Evicted or removed since the lookup
+      avatarCache.invalidate(avatar);
+      response.reset();
+      response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+      response.sendError(HttpServletResponse.SC_NOT_FOUND);
+    }
+  }
+
+  private Optional<Avatar> cached(String avatarUrl) {
+    return avatarCache.proxies(avatarUrl) ? avatarCache.get(avatarUrl) : Optional.empty();
+  }
+}
@@ -1,13 +1,52 @@
 package com.example.hello.web;
 
+import jakarta.servlet.http.HttpServletRequest;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.thymeleaf.ITemplateEngine;
 
 @Controller
 public class LoginController {
 
+  private static final MediaType HTML = new MediaType(MediaType.TEXT_HTML, StandardCharsets.UTF_8);
+
+  private final LoginPage page;
+
+  public LoginController(ITemplateEngine templateEngine) {
+    this.page = new LoginPage(templateEngine);
+  }
+
+  /**
+   * Serves the pre-rendered page; a matching {@code If-None-Match} gets a 304 from Spring's {@link
+   * ResponseEntity} handling. {@code no-cache} lets browsers and proxies keep the page but
+   * revalidate it on every use.
+   */
   @GetMapping({"/", "/login"})
-  public String login() {
-    return "login";
+  public ResponseEntity<byte[]> login(
+      HttpServletRequest request,
+      @RequestHeader(name = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding) {
+    // A bare flag (?logout) may carry no value at all
+    Map<String, String[]> params = request.getParameterMap();
+    LoginPage.Variant variant =
+        page.variant(params.containsKey("logout"), params.containsKey("error"));
+    ResponseEntity.BodyBuilder response =
+        ResponseEntity.ok()
+            .contentType(HTML)
+            .cacheControl(CacheControl.noCache())
+            .varyBy(HttpHeaders.ACCEPT_ENCODING);
+    if (LoginPage.acceptsGzip(acceptEncoding)) {
+      return response
+          .eTag(variant.gzipEtag())
+          .header(HttpHeaders.CONTENT_ENCODING, "gzip")
+          .body(variant.gzip());
+    }
+    return response.eTag(variant.etag()).body(variant.html());
   }
 }
@@ -0,0 +1,78 @@
+package com.example.hello.web;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+import org.thymeleaf.ITemplateEngine;
+import org.thymeleaf.context.Context;
+
+/**
+ * The {@code login} template rendered once per combination of the {@code logout} and {@code error}
+ * flags, the only inputs the page has. Each variant is kept as plain and gzip bytes with a strong
+ * ETag per encoding, so serving it is a lookup.
+ */
+final class LoginPage {
+
+  record Variant(byte[] html, String etag, byte[] gzip, String gzipEtag) {}
+
+  private final Variant[] variants = new Variant[4];
+
+  LoginPage(ITemplateEngine templateEngine) {
+    for (int i = 0; i < variants.length; i++) {
+      variants[i] = render(templateEngine, (i & 1) != 0, (i & 2) != 0);
+    }
+  }
+
+  Variant variant(boolean logout, boolean error) {
+    return variants[(logout ? 1 : 0) | (error ? 2 : 0)];
+  }
+
+  /** Whether an {@code Accept-Encoding} header admits gzip, i.e. names it without {@code q=0}. */
+  static boolean acceptsGzip(String acceptEncoding) {
+    if (acceptEncoding == null) return false;
+    for (String coding : acceptEncoding.split(",")) {
+      String[] parts = coding.split(";");
+      if (!parts[0].trim().equalsIgnoreCase("gzip")) continue;
+      for (int i = 1; i < parts.length; i++) {
+        if (parts[i].trim().matches("q=0(\\.0*)?")) return false;
+      }
+      return true;
+    }
+    return false;
+  }
+
+  private static Variant render(ITemplateEngine templateEngine, boolean logout, boolean error) {
+    Context context = new Context();
+    context.setVariables(Map.of("logout", logout, "error", error));
+    byte[] html = templateEngine.process("login", context).getBytes(StandardCharsets.UTF_8);
+    byte[] gzip = gzip(html);
+    String hash = sha256(html);
+    // Strong validators differ per content coding
+    return new Variant(html, "\"" + hash + "\"", gzip, "\"" + hash + "-gzip\"");
+  }
+
+  private static byte[] gzip(byte[] bytes) {
+    ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length);
+    try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+      gzip.write(bytes);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+    return out.toByteArray();
+  }
+
+  private static String sha256(byte[] bytes) {
+    try {
+      byte[] digest = MessageDigest.getInstance("SHA-256").digest(bytes);
+      return HexFormat.of().formatHex(digest, 0, 16);
+    } catch (NoSuchAlgorithmException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}
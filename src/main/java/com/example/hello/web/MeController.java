@@ -1,10 +1,14 @@
 package com.example.hello.web;
 
 import com.example.hello.domain.User;
+import com.example.hello.security.LoginMetrics;
+import com.example.hello.security.LoginMetrics.Stage;
 import com.example.hello.security.ProviderProfile;
 import com.example.hello.security.ProviderProfileMapper;
+import com.example.hello.security.SessionUser;
+import com.example.hello.service.AvatarCache;
+import com.example.hello.service.UserOnboarding;
 import com.example.hello.service.UserService;
-import java.util.Map;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
 import org.springframework.security.oauth2.core.user.OAuth2User;
@@ -16,9 +20,19 @@ import org.springframework.web.bind.annotation.GetMapping;
 public class MeController {
 
   private final UserService userService;
+  private final UserOnboarding userOnboarding;
+  private final AvatarCache avatarCache;
+  private final LoginMetrics metrics;
 
-  public MeController(UserService userService) {
+  public MeController(
+      UserService userService,
+      UserOnboarding userOnboarding,
+      AvatarCache avatarCache,
+      LoginMetrics metrics) {
     this.userService = userService;
+    this.userOnboarding = userOnboarding;
+    this.avatarCache = avatarCache;
+    this.metrics = metrics;
   }
 
   @GetMapping("/me")
@@ -31,40 +45,34 @@ public class MeController {
       return "redirect:/login";
     }
     String registrationId = authentication.getAuthorizedClientRegistrationId();
-    Map<String, Object> attributes = principal.getAttributes();
+    // Cookie sessions carry the mapped profile; servlet sessions the raw provider attributes
+    ProviderProfile profile =
+        principal instanceof SessionUser session
+            ? session.profile()
+            : ProviderProfileMapper.fromRegistration(registrationId, principal.getAttributes());
 
-    ProviderProfile profile;
-    if ("github".equalsIgnoreCase(registrationId)) {
-      profile = ProviderProfileMapper.fromGithub(attributes);
-    } else if ("azure".equalsIgnoreCase(registrationId)) {
-      profile = ProviderProfileMapper.fromAzure(attributes);
-    } else {
-      // Fallback minimal mapping
-      String provider = registrationId == null ? "UNKNOWN" : registrationId.toUpperCase();
-      String externalId =
-          firstNonBlank(string(attributes.get("sub")), string(attributes.get("id")));
-      String username =
-          firstNonBlank(
-              string(attributes.get("preferred_username")),
-              string(attributes.get("login")),
-              externalId);
-      String displayName = firstNonBlank(string(attributes.get("name")), username);
-      String email = string(attributes.get("email"));
-      String avatarUrl = string(attributes.get("avatar_url"));
-      profile = new ProviderProfile(provider, externalId, username, displayName, email, avatarUrl);
-    }
-
-    User user = userService.getOrCreateFromProviderProfile(profile);
+    // Reads are served from the user cache; the upsert normally happens once per login in
+    // CustomOAuth2UserService / CustomOidcUserService and only runs here for sessions whose user
+    // was never onboarded.
+    User user =
+        metrics.time(
+            Stage.LOOKUP,
+            registrationId,
+            () -> userService.findCached(profile).orElseGet(() -> userOnboarding.onboard(profile)));
     String display = firstNonBlank(user.getDisplayName(), user.getUsername());
 
     model.addAttribute("displayName", display);
-    model.addAttribute("avatarUrl", user.getAvatarUrl());
+    model.addAttribute("avatarUrl", avatarPath(user));
     model.addAttribute("user", user);
     return "me";
   }
 
-  private static String string(Object o) {
-    return o == null ? null : String.valueOf(o);
+  /** The local copy, versioned by the avatar URL so browsers may cache it for good. */
+  private String avatarPath(User user) {
+    String avatarUrl = user.getAvatarUrl();
+    return avatarCache.proxies(avatarUrl)
+        ? "/avatars/" + user.getId() + "?v=" + AvatarCache.key(avatarUrl)
+        : null;
   }
 
   private static String firstNonBlank(String... vals) {
@@ -0,0 +1,47 @@
+package com.example.hello.web;
+
+import com.example.hello.security.LoginMetrics;
+import com.example.hello.security.LoginMetrics.Stage;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.ModelAndView;
+
+/**
+ * Times view rendering as the {@link Stage#RENDER} stage: from after the handler returns ({@code
+ * postHandle}) until the response is complete. Only registered while login metrics are enabled.
+ */
+public class RenderTimingInterceptor implements HandlerInterceptor {
+
+  private static final String START = RenderTimingInterceptor.class.getName() + ".start";
+
+  private final LoginMetrics metrics;
+
+  public RenderTimingInterceptor(LoginMetrics metrics) {
+    this.metrics = metrics;
+  }
+
+  @Override
+  public void postHandle(
+      HttpServletRequest request,
+      HttpServletResponse response,
+      Object handler,
+      ModelAndView modelAndView) {
+    if (modelAndView != null) {
+      request.setAttribute(START, metrics.start());
+    }
+  }
+
+  @Override
+  public void afterCompletion(
+      HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+    if (request.getAttribute(START) instanceof Long start) {
+      String registrationId =
+          request.getUserPrincipal() instanceof OAuth2AuthenticationToken token
+              ? token.getAuthorizedClientRegistrationId()
+              : null;
+      metrics.record(Stage.RENDER, registrationId, ex == null, start);
+    }
+  }
+}
@@ -0,0 +1,58 @@
+package com.example.hello.web;
+
+import com.example.hello.service.UserExportService;
+import com.example.hello.service.UserExportService.Format;
+import jakarta.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.time.Instant;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Controller;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+
+/**
+ * {@code GET /admin/users/export?format=ndjson|csv&since=<ISO-8601 instant>}: the users changed
+ * since {@code since} (all users without it), streamed as they are read. The {@code X-Export-Until}
+ * response header is the exclusive upper bound of the export, {@code app.user-export.safety-lag}
+ * before the request, to be passed as the next {@code since}.
+ */
+@Controller
+public class UserExportController {
+
+  static final String UNTIL_HEADER = "X-Export-Until";
+
+  private final UserExportService exportService;
+
+  public UserExportController(UserExportService exportService) {
+    this.exportService = exportService;
+  }
+
+  @GetMapping("/admin/users/export")
+  public void export(
+      @RequestParam(defaultValue = "ndjson") String format,
+      @RequestParam(required = false) String since,
+      HttpServletResponse response)
+      throws IOException {
+    Format parsedFormat;
+    Instant from;
+    try {
+      parsedFormat = Format.valueOf(format.toUpperCase(Locale.ROOT));
+      from = since == null ? Instant.EPOCH : Instant.parse(since);
+    } catch (IllegalArgumentException | DateTimeParseException e) {
+      response.sendError(
+          HttpServletResponse.SC_BAD_REQUEST,
+          "format must be ndjson or csv, since an ISO-8601 instant");
+      return;
+    }
+    Instant until = exportService.until();
+    response.setContentType(parsedFormat.contentType() + ";charset=UTF-8");
+    response.setHeader(UNTIL_HEADER, until.toString());
+    response.setHeader(
+        HttpHeaders.CONTENT_DISPOSITION,
+        "attachment; filename=\"users." + parsedFormat.name().toLowerCase(Locale.ROOT) + "\"");
+    response.setHeader(HttpHeaders.CACHE_CONTROL, "no-store");
+    exportService.export(parsedFormat, from, until, response.getOutputStream());
+  }
+}
@@ -0,0 +1,91 @@
+package db.migration;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.UUID;
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+/**
+ * Computes {@code profile_hash} for the rows that existed before V3, with the fingerprint the
+ * logins compared against at the time, so the first login after the upgrade does not rewrite an
+ * unchanged profile. Works through the table {@value #BATCH} rows at a time, in id order.
+ */
+public class V4__BackfillProfileHash extends BaseJavaMigration {
+
+  private static final int BATCH = 1000;
+  private static final String SELECT =
+      "SELECT id, username, display_name, email, avatar_url FROM app_user"
+          + " WHERE profile_hash IS NULL";
+
+  @Override
+  public void migrate(Context context) throws Exception {
+    Connection connection = context.getConnection();
+    // Keyset pagination: each batch starts after the last id, so no batch rescans earlier rows
+    try (PreparedStatement first =
+            connection.prepareStatement(SELECT + " ORDER BY id LIMIT " + BATCH);
+        PreparedStatement next =
+            connection.prepareStatement(SELECT + " AND id > ? ORDER BY id LIMIT " + BATCH);
+        PreparedStatement update =
+            connection.prepareStatement("UPDATE app_user SET profile_hash = ? WHERE id = ?")) {
+      UUID lastId = null;
+      int rows;
+      do {
+        rows = 0;
+        PreparedStatement select = first;
+        if (lastId != null) {
+          next.setObject(1, lastId);
+          select = next;
+        }
+        try (ResultSet rs = select.executeQuery()) {
+          while (rs.next()) {
+            lastId = rs.getObject("id", UUID.class);
+            update.setLong(
+                1,
+                fingerprint(
+                    rs.getString("username"),
+                    rs.getString("display_name"),
+                    rs.getString("email"),
+                    rs.getString("avatar_url")));
+            update.setObject(2, lastId);
+            update.addBatch();
+            rows++;
+          }
+        }
+        if (rows > 0) {
+          update.executeBatch();
+        }
+      } while (rows == BATCH);
+    }
+  }
+
+  /**
+   * Frozen copy of {@code ProviderProfile.fingerprint()} as of V3: a migration must compute the
+   * same values whenever it runs, whatever the application code has become.
+   */
+  private static long fingerprint(String... values) throws SQLException {
+    MessageDigest sha256;
+    try {
+      sha256 = MessageDigest.getInstance("SHA-256");
+    } catch (NoSuchAlgorithmException e) {
+      throw new SQLException(e);
+    }
+    for (String value : values) {
+      if (value == null) {
+        sha256.update((byte) 0);
+      } else {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        sha256.update((byte) 1);
+        sha256.update(ByteBuffer.allocate(Integer.BYTES).putInt(bytes.length).array());
+        sha256.update(bytes);
+      }
+    }
+    return ByteBuffer.wrap(sha256.digest()).getLong();
+  }
+}
@@ -0,0 +1,2 @@
+-- Incremental user export (UserExportRepository) scans by updated_at in (updated_at, id) order
+CREATE INDEX IF NOT EXISTS idx_app_user_updated_at ON app_user (updated_at, id);
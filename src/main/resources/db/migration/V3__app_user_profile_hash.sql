@@ -0,0 +1,3 @@
+-- ProviderProfile.fingerprint() of the profile columns: logins compare it instead of each column.
+-- Filled in for existing rows by V4__BackfillProfileHash.
+ALTER TABLE app_user ADD COLUMN profile_hash BIGINT;
@@ -0,0 +1,2 @@
+-- Optimistic locking for User (@Version); the JDBC upserts increment it with every profile change
+ALTER TABLE app_user ADD COLUMN version BIGINT DEFAULT 0 NOT NULL;
@@ -0,0 +1,9 @@
+-- HyperLogLog registers of the users who logged in, per provider and UTC day (LoginAnalytics).
+-- Nodes merge their sketches into these rows, so each row covers the whole cluster.
+CREATE TABLE login_sketch (
+  provider VARCHAR(32) NOT NULL,
+  bucket_day DATE NOT NULL,
+  registers BYTEA NOT NULL,
+  updated_at TIMESTAMP WITH TIME ZONE NOT NULL,
+  PRIMARY KEY (provider, bucket_day)
+);
@@ -0,0 +1,53 @@
+package com.example.hello.actuator;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.hello.service.LoginAnalytics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+@SpringBootTest(properties = "app.admin.users=test:actuator-admin")
+@AutoConfigureMockMvc
+class ActiveUsersEndpointTest {
+
+  @Autowired MockMvc mockMvc;
+  @Autowired LoginAnalytics loginAnalytics;
+
+  @Test
+  void requiresAuthentication() throws Exception {
+    mockMvc.perform(get("/actuator/activeusers")).andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void isLimitedToAdmins() throws Exception {
+    mockMvc
+        .perform(get("/actuator/activeusers").with(login("someone-else")))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  void showsActiveUsersPerProvider() throws Exception {
+    loginAnalytics.recordLogin("ENDPOINT", "1");
+    loginAnalytics.recordLogin("ENDPOINT", "2");
+    loginAnalytics.recordLogin("ENDPOINT", "1");
+
+    mockMvc
+        .perform(get("/actuator/activeusers").with(login("actuator-admin")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.providers.ENDPOINT.daily").value(2))
+        .andExpect(jsonPath("$.providers.ENDPOINT.monthly").value(2))
+        .andExpect(jsonPath("$.providers.ENDPOINT.loginsLastHour").value(3))
+        .andExpect(jsonPath("$.all.loginsSinceStart").isNumber());
+  }
+
+  private static RequestPostProcessor login(String sub) {
+    return oauth2Login().attributes(a -> a.put("sub", sub));
+  }
+}
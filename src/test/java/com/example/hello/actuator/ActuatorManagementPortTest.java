@@ -0,0 +1,54 @@
+package com.example.hello.actuator;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalManagementPort;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+/** Actuator on its own port, as deployed: a scraper needs no login, the data endpoints do. */
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    properties = "management.server.port=0")
+@AutoConfigureObservability(tracing = false)
+class ActuatorManagementPortTest {
+
+  @LocalServerPort int port;
+  @LocalManagementPort int managementPort;
+
+  private final HttpClient client = HttpClient.newHttpClient();
+
+  @Test
+  void prometheusCanBeScrapedWithoutLogin() throws Exception {
+    HttpResponse<String> response = get(managementPort, "/actuator/prometheus");
+
+    assertThat(response.statusCode()).isEqualTo(200);
+    assertThat(response.body()).contains("jvm_memory_used_bytes");
+  }
+
+  @Test
+  void dataEndpointsAreLimitedToAdmins() throws Exception {
+    assertThat(get(managementPort, "/actuator/health").statusCode()).isEqualTo(200);
+    assertThat(get(managementPort, "/actuator/metrics").statusCode()).isEqualTo(401);
+    assertThat(get(managementPort, "/actuator/githubapi").statusCode()).isEqualTo(401);
+    assertThat(get(managementPort, "/actuator/activeusers").statusCode()).isEqualTo(401);
+  }
+
+  @Test
+  void actuatorIsNotServedOnTheApplicationPort() throws Exception {
+    // Not an endpoint there, so the application's login applies
+    assertThat(get(port, "/actuator/prometheus").statusCode()).isEqualTo(302);
+  }
+
+  private HttpResponse<String> get(int port, String path) throws Exception {
+    HttpRequest request =
+        HttpRequest.newBuilder(URI.create("http://127.0.0.1:" + port + path)).build();
+    return client.send(request, HttpResponse.BodyHandlers.ofString());
+  }
+}
@@ -0,0 +1,52 @@
+package com.example.hello.actuator;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.hello.security.LoginMetrics;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+@SpringBootTest(properties = "app.admin.users=test:actuator-admin")
+@AutoConfigureMockMvc
+@AutoConfigureObservability(tracing = false)
+class ActuatorPrometheusTest {
+
+  @Autowired MockMvc mockMvc;
+  @Autowired LoginMetrics loginMetrics;
+
+  @Test
+  void onTheApplicationPortTheScrapeIsLimitedToAdmins() throws Exception {
+    mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+    mockMvc
+        .perform(get("/actuator/prometheus").with(login("someone-else")))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  void loginStagesArePublishedAsHistograms() throws Exception {
+    loginMetrics.record(LoginMetrics.Stage.USERINFO, "github", true, loginMetrics.start());
+
+    mockMvc
+        .perform(get("/actuator/prometheus").with(login("actuator-admin")))
+        .andExpect(status().isOk())
+        .andExpect(
+            content()
+                .string(
+                    containsString(
+                        "app_login_stage_seconds_bucket{outcome=\"success\","
+                            + "registration=\"github\",stage=\"userinfo\",le=\"0.001\"}")));
+  }
+
+  private static RequestPostProcessor login(String sub) {
+    return oauth2Login().attributes(a -> a.put("sub", sub));
+  }
+}
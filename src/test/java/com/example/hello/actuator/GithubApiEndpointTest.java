@@ -0,0 +1,46 @@
+package com.example.hello.actuator;
+
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.jsonPath;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+@SpringBootTest(properties = "app.admin.users=test:actuator-admin")
+@AutoConfigureMockMvc
+class GithubApiEndpointTest {
+
+  @Autowired MockMvc mockMvc;
+
+  @Test
+  void requiresAuthentication() throws Exception {
+    mockMvc.perform(get("/actuator/githubapi")).andExpect(status().isUnauthorized());
+  }
+
+  @Test
+  void isLimitedToAdmins() throws Exception {
+    mockMvc
+        .perform(get("/actuator/githubapi").with(login("someone-else")))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  void showsTheGuardState() throws Exception {
+    mockMvc
+        .perform(get("/actuator/githubapi").with(login("actuator-admin")))
+        .andExpect(status().isOk())
+        .andExpect(jsonPath("$.circuit").value("CLOSED"))
+        .andExpect(jsonPath("$.limit").value(10))
+        .andExpect(jsonPath("$.inFlight").value(0));
+  }
+
+  private static RequestPostProcessor login(String sub) {
+    return oauth2Login().attributes(a -> a.put("sub", sub));
+  }
+}
@@ -0,0 +1,141 @@
+package com.example.hello.config;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.client.RestClientException;
+import org.springframework.web.client.RestTemplate;
+
+class ProviderHttpClientConfigTest {
+
+  private final ProviderHttpClientConfig config = new ProviderHttpClientConfig();
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private HttpServer server;
+  private PoolingHttpClientConnectionManager connectionManager;
+  private CloseableHttpClient httpClient;
+  private DeadlineClientHttpRequestFactory requestFactory;
+  private RestTemplate restTemplate;
+
+  @BeforeEach
+  void start() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/fast",
+        exchange -> {
+          byte[] body = "ok".getBytes(StandardCharsets.UTF_8);
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    // Sends a byte every 100ms: never trips the read timeout, only the total deadline
+    server.createContext(
+        "/trickle",
+        exchange -> {
+          exchange.sendResponseHeaders(200, 0);
+          try (OutputStream out = exchange.getResponseBody()) {
+            for (int i = 0; i < 100; i++) {
+              out.write('x');
+              out.flush();
+              Thread.sleep(100);
+            }
+          } catch (Exception ignored) {
+            // client went away
+          }
+        });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+
+    ProviderHttpClientProperties properties =
+        new ProviderHttpClientProperties(
+            10,
+            5,
+            Map.of("api.github.com", 8),
+            Duration.ofSeconds(1),
+            Duration.ofSeconds(2),
+            Duration.ofSeconds(1),
+            Duration.ofMillis(500),
+            Duration.ofSeconds(30),
+            Duration.ofMinutes(5));
+    connectionManager = config.providerConnectionManager(properties, registry);
+    httpClient = config.providerHttpClient(connectionManager, properties);
+    requestFactory =
+        (DeadlineClientHttpRequestFactory) config.providerRequestFactory(httpClient, properties);
+    restTemplate = new RestTemplate(requestFactory);
+  }
+
+  @AfterEach
+  void stop() throws Exception {
+    requestFactory.destroy();
+    httpClient.close();
+    server.stop(0);
+  }
+
+  @Test
+  void reusesPooledConnectionsAndPublishesPoolMetrics() {
+    assertThat(restTemplate.getForObject(url("/fast"), String.class)).isEqualTo("ok");
+    assertThat(restTemplate.getForObject(url("/fast"), String.class)).isEqualTo("ok");
+
+    assertThat(connectionManager.getTotalStats().getAvailable()).isEqualTo(1);
+    assertThat(connectionManager.getTotalStats().getMax()).isEqualTo(10);
+    assertThat(
+            registry
+                .get("httpcomponents.httpclient.pool.total.max")
+                .tag("httpclient", "provider")
+                .gauge()
+                .value())
+        .isEqualTo(10.0);
+  }
+
+  @Test
+  void slowResponseIsAbortedAtTheTotalDeadline() {
+    long start = System.nanoTime();
+
+    assertThatThrownBy(() -> restTemplate.getForObject(url("/trickle"), String.class))
+        .isInstanceOf(RestClientException.class);
+
+    assertThat(Duration.ofNanos(System.nanoTime() - start)).isLessThan(Duration.ofSeconds(3));
+  }
+
+  @Test
+  void destroyingTheFactoryStopsItsDeadlineThread() throws Exception {
+    Set<Thread> before = deadlineThreads();
+    restTemplate.getForObject(url("/fast"), String.class);
+    Set<Thread> started = deadlineThreads();
+    started.removeAll(before);
+    assertThat(started).hasSize(1);
+
+    requestFactory.destroy();
+
+    Thread timer = started.iterator().next();
+    timer.join(Duration.ofSeconds(2).toMillis());
+    assertThat(timer.isAlive()).isFalse();
+  }
+
+  private static Set<Thread> deadlineThreads() {
+    return Thread.getAllStackTraces().keySet().stream()
+        .filter(t -> t.getName().equals("provider-http-deadline"))
+        .collect(Collectors.toCollection(HashSet::new));
+  }
+
+  private String url(String path) {
+    return "http://127.0.0.1:" + server.getAddress().getPort() + path;
+  }
+}
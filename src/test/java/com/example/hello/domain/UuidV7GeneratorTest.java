@@ -0,0 +1,66 @@
+package com.example.hello.domain;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+
+class UuidV7GeneratorTest {
+
+  @Test
+  void producesVersion7WithCurrentTimestamp() {
+    long before = System.currentTimeMillis();
+    UUID id = UuidV7Generator.next();
+    long after = System.currentTimeMillis();
+
+    assertThat(id.version()).isEqualTo(7);
+    assertThat(id.variant()).isEqualTo(2);
+    // The sequence may borrow a millisecond or two when many ids were generated just before
+    assertThat(UuidV7Generator.timestampMillis(id)).isBetween(before, after + 5);
+  }
+
+  @Test
+  void isStrictlyIncreasingWithinAThread() {
+    UUID prev = UuidV7Generator.next();
+    for (int i = 0; i < 100_000; i++) {
+      UUID next = UuidV7Generator.next();
+      assertThat(next).isGreaterThan(prev);
+      prev = next;
+    }
+  }
+
+  @Test
+  void isUniqueAndOrderedAcrossConcurrentThreads() throws Exception {
+    int threads = 8;
+    int perThread = 20_000;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    try {
+      List<Callable<List<UUID>>> tasks = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        tasks.add(
+            () -> {
+              List<UUID> ids = new ArrayList<>(perThread);
+              for (int i = 0; i < perThread; i++) ids.add(UuidV7Generator.next());
+              return ids;
+            });
+      }
+      Set<UUID> all = new HashSet<>();
+      for (Future<List<UUID>> f : pool.invokeAll(tasks)) {
+        List<UUID> ids = f.get();
+        assertThat(ids).isSorted();
+        all.addAll(ids);
+      }
+      assertThat(all).hasSize(threads * perThread);
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+}
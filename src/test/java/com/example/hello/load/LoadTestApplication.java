@@ -0,0 +1,45 @@
+package com.example.hello.load;
+
+import com.example.hello.Application;
+import java.util.ArrayList;
+import java.util.List;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Boots the full application on a random port with the {@code test} client registrations pointed at
+ * an {@link OAuthProviderStub}, an isolated in-memory database and connection/fetch limits sized
+ * for {@code concurrency} clients.
+ */
+final class LoadTestApplication {
+
+  private LoadTestApplication() {}
+
+  static ConfigurableApplicationContext start(
+      OAuthProviderStub provider, String name, String profiles, int concurrency, String... extra) {
+    List<String> args =
+        new ArrayList<>(
+            List.of(
+                "--spring.profiles.active=" + profiles,
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--spring.datasource.url=jdbc:h2:mem:load-"
+                    + name
+                    + ";DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+                "--app.test-clients.github-url=" + provider.githubUrl(),
+                "--app.test-clients.github-api-url=" + provider.githubApiUrl(),
+                "--app.test-clients.azure-issuer-url=" + provider.azureIssuer(),
+                "--app.github-emails.api-base-url=" + provider.githubApiUrl(),
+                "--app.github-emails.max-concurrent-fetches=" + concurrency,
+                "--app.provider-http.max-connections=" + 4 * concurrency,
+                "--app.provider-http.max-connections-per-host=" + 4 * concurrency));
+    for (String arg : extra) {
+      if (!arg.isBlank()) args.add(arg);
+    }
+    return new SpringApplicationBuilder(Application.class).run(args.toArray(String[]::new));
+  }
+
+  static String baseUrl(ConfigurableApplicationContext app) {
+    return "http://127.0.0.1:" + app.getEnvironment().getProperty("local.server.port");
+  }
+}
@@ -0,0 +1,239 @@
+package com.example.hello.load;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntUnaryOperator;
+import java.util.stream.Collectors;
+
+/**
+ * Drives complete authorization-code logins against a running app wired to an {@link
+ * OAuthProviderStub}, from {@code concurrency} clients. One login is:
+ *
+ * <ol>
+ *   <li>{@code GET /oauth2/authorization/{registration}} on the app (302 to the provider),
+ *   <li>the provider's authorize endpoint with {@code login_hint=user-<n>} (302 back with a code),
+ *   <li>the app's callback, which redeems the code and loads the user (302 to {@code /me}),
+ *   <li>{@code GET /me} with the cookies set so far, expecting 200.
+ * </ol>
+ *
+ * Steps 1-3 are timed as the login, step 4 separately as {@code /me}.
+ */
+public final class LoginLoadDriver {
+
+  private final String appBaseUrl;
+  private final int concurrency;
+  private final HttpClient http =
+      HttpClient.newBuilder()
+          .version(HttpClient.Version.HTTP_1_1)
+          .followRedirects(HttpClient.Redirect.NEVER)
+          .connectTimeout(Duration.ofSeconds(10))
+          .build();
+
+  public LoginLoadDriver(String appBaseUrl, int concurrency) {
+    this.appBaseUrl = appBaseUrl;
+    this.concurrency = concurrency;
+  }
+
+  /**
+   * Runs {@code count} logins through {@code registrationId}; login {@code i} signs in as provider
+   * user {@code user.applyAsInt(i)}.
+   */
+  public Report run(String label, String registrationId, int count, IntUnaryOperator user)
+      throws Exception {
+    long[] logins = new long[count];
+    long[] me = new long[count];
+    Map<String, LongAdder> failures = new ConcurrentHashMap<>();
+    AtomicInteger next = new AtomicInteger();
+    ExecutorService clients = Executors.newFixedThreadPool(concurrency);
+    long start = System.nanoTime();
+    try {
+      List<Future<?>> done = new ArrayList<>();
+      for (int c = 0; c < concurrency; c++) {
+        done.add(
+            clients.submit(
+                () -> {
+                  int i;
+                  while ((i = next.getAndIncrement()) < count) {
+                    String failure =
+                        loginAndFetchMe(registrationId, user.applyAsInt(i), logins, me, i);
+                    if (failure != null) {
+                      failures.computeIfAbsent(failure, k -> new LongAdder()).increment();
+                    }
+                  }
+                  return null;
+                }));
+      }
+      for (Future<?> f : done) f.get();
+    } finally {
+      clients.shutdownNow();
+    }
+    return Report.of(label, logins, me, failures, System.nanoTime() - start);
+  }
+
+  /**
+   * Records the login and {@code /me} latencies of iteration {@code i} (-1 on failure) and returns
+   * {@code null}, or the step that failed.
+   */
+  private String loginAndFetchMe(String registrationId, int n, long[] logins, long[] me, int i) {
+    logins[i] = -1;
+    me[i] = -1;
+    // Per-login cookie jar: servlet session id, or the sealed cookies of app.session.mode=cookie
+    Map<String, String> cookies = new HashMap<>();
+    String step = "authorization";
+    try {
+      long start = System.nanoTime();
+      HttpResponse<Void> response =
+          send(appBaseUrl + "/oauth2/authorization/" + registrationId, cookies);
+      Optional<String> providerUrl = redirect(response);
+      if (providerUrl.isEmpty()) return step + " " + response.statusCode();
+
+      step = "provider";
+      response = sendRetryingStaleConnection(providerUrl.get() + "&login_hint=user-" + n);
+      Optional<String> callback = redirect(response);
+      if (callback.isEmpty()) return step + " " + response.statusCode();
+
+      step = "callback";
+      response = send(callback.get(), cookies);
+      Optional<String> target = redirect(response);
+      if (target.isEmpty() || !target.get().endsWith("/me")) {
+        return step + " " + response.statusCode() + " " + target.orElse("");
+      }
+      long loginNanos = System.nanoTime() - start;
+
+      step = "/me";
+      start = System.nanoTime();
+      response = send(appBaseUrl + "/me", cookies);
+      if (response.statusCode() != 200) return step + " " + response.statusCode();
+      me[i] = System.nanoTime() - start;
+      logins[i] = loginNanos;
+      return null;
+    } catch (Exception e) {
+      return step + " " + e.getClass().getSimpleName();
+    }
+  }
+
+  /**
+   * GET to the stub, retried once if the pooled connection turns out to be closed (the JDK server
+   * may drop an idle keep-alive connection just as it is reused), as a browser would.
+   */
+  private HttpResponse<Void> sendRetryingStaleConnection(String url) throws Exception {
+    try {
+      return send(url, new HashMap<>());
+    } catch (IOException e) {
+      return send(url, new HashMap<>());
+    }
+  }
+
+  private HttpResponse<Void> send(String url, Map<String, String> cookies) throws Exception {
+    HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(url));
+    if (!cookies.isEmpty()) {
+      request.header(
+          "Cookie",
+          cookies.entrySet().stream()
+              .map(c -> c.getKey() + "=" + c.getValue())
+              .collect(Collectors.joining("; ")));
+    }
+    HttpResponse<Void> response =
+        http.send(request.build(), HttpResponse.BodyHandlers.discarding());
+    for (String header : response.headers().allValues("Set-Cookie")) {
+      String pair = header.split(";", 2)[0];
+      int eq = pair.indexOf('=');
+      String name = pair.substring(0, eq);
+      String value = pair.substring(eq + 1);
+      if (value.isEmpty() || header.contains("Max-Age=0")) {
+        cookies.remove(name);
+      } else {
+        cookies.put(name, value);
+      }
+    }
+    return response;
+  }
+
+  private Optional<String> redirect(HttpResponse<Void> response) {
+    if (response.statusCode() != 302) return Optional.empty();
+    return response
+        .headers()
+        .firstValue("Location")
+        .map(location -> location.startsWith("/") ? appBaseUrl + location : location);
+  }
+
+  /** Throughput (completed login + {@code /me} pairs per second) and latency percentiles. */
+  public record Report(
+      String label,
+      int attempts,
+      long failures,
+      double loginsPerSecond,
+      Percentiles login,
+      Percentiles me,
+      Map<String, Long> failedSteps) {
+
+    static Report of(
+        String label,
+        long[] logins,
+        long[] me,
+        Map<String, LongAdder> failedSteps,
+        long elapsedNanos) {
+      long failures = Arrays.stream(logins).filter(l -> l < 0).count();
+      Map<String, Long> steps = new TreeMap<>();
+      failedSteps.forEach((step, count) -> steps.put(step, count.sum()));
+      return new Report(
+          label,
+          logins.length,
+          failures,
+          (logins.length - failures) / (elapsedNanos / 1e9),
+          Percentiles.of(logins),
+          Percentiles.of(me),
+          steps);
+    }
+
+    @Override
+    public String toString() {
+      return String.format(
+          "[load] %-16s attempts=%d failures=%d throughput=%.0f/s login %s | /me %s%s",
+          label,
+          attempts,
+          failures,
+          loginsPerSecond,
+          login,
+          me,
+          failedSteps.isEmpty() ? "" : " failed at " + failedSteps);
+    }
+  }
+
+  /** Latency percentiles in milliseconds over the successful samples. */
+  public record Percentiles(double p50, double p99, double p999) {
+
+    static Percentiles of(long[] nanos) {
+      long[] ok = Arrays.stream(nanos).filter(l -> l >= 0).sorted().toArray();
+      return new Percentiles(at(ok, 0.50), at(ok, 0.99), at(ok, 0.999));
+    }
+
+    private static double at(long[] sorted, double p) {
+      if (sorted.length == 0) return Double.NaN;
+      int index = (int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1);
+      return sorted[Math.max(0, index)] / 1e6;
+    }
+
+    @Override
+    public String toString() {
+      return String.format("p50=%.1fms p99=%.1fms p999=%.1fms", p50, p99, p999);
+    }
+  }
+}
@@ -0,0 +1,51 @@
+package com.example.hello.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.hello.load.LoginLoadDriver.Report;
+import java.time.Duration;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * End-to-end login load against the running application and an in-JVM {@link OAuthProviderStub}:
+ * for each registration ({@code github}, {@code azure}), onboards {@code load.users} users, then
+ * runs {@code load.logins} complete authorization-code logins, each followed by {@code /me}, from
+ * {@code load.concurrency} clients, and prints throughput with p50/p99/p999 latencies. Provider
+ * calls (token, userinfo, emails) answer after {@code load.delayMs}.
+ *
+ * <p>Excluded from the default build; run with {@code mvn -Pload test -Dtest=LoginLoadTest}. Extra
+ * Spring profiles go in {@code load.profiles}, e.g. {@code -Pvirtual-threads,load
+ * -Dload.profiles=test,virtual-threads} (Java 21) to measure the virtual-thread mode, and extra
+ * application arguments in {@code load.args}.
+ */
+@Tag("load")
+class LoginLoadTest {
+
+  private static final int USERS = Integer.getInteger("load.users", 1000);
+  private static final int LOGINS = Integer.getInteger("load.logins", 5000);
+  private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 100);
+  private static final int DELAY_MS = Integer.getInteger("load.delayMs", 50);
+  private static final String PROFILES = System.getProperty("load.profiles", "test");
+  // Extra application arguments, e.g. "--app.session.mode=cookie --app.session.key=..."
+  private static final String[] ARGS = System.getProperty("load.args", "").split("\\s+");
+
+  @Test
+  void loginsThenProfileUnderLoad() throws Exception {
+    try (OAuthProviderStub provider = new OAuthProviderStub(Duration.ofMillis(DELAY_MS));
+        ConfigurableApplicationContext app =
+            LoadTestApplication.start(provider, "logins", PROFILES, CONCURRENCY, ARGS)) {
+      LoginLoadDriver driver = new LoginLoadDriver(LoadTestApplication.baseUrl(app), CONCURRENCY);
+      for (String registration : new String[] {"github", "azure"}) {
+        Report onboarding = driver.run(registration + " onboard", registration, USERS, i -> i);
+        System.out.println(onboarding);
+        assertThat(onboarding.failures()).isZero();
+
+        Report logins = driver.run(registration, registration, LOGINS, i -> i % USERS);
+        System.out.println(logins);
+        assertThat(logins.failures()).isZero();
+      }
+    }
+  }
+}
@@ -0,0 +1,378 @@
+package com.example.hello.load;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+import com.nimbusds.jose.JOSEException;
+import com.nimbusds.jose.JWSAlgorithm;
+import com.nimbusds.jose.JWSHeader;
+import com.nimbusds.jose.crypto.RSASSASigner;
+import com.nimbusds.jose.jwk.JWKSet;
+import com.nimbusds.jose.jwk.RSAKey;
+import com.nimbusds.jose.jwk.gen.RSAKeyGenerator;
+import com.nimbusds.jwt.JWTClaimsSet;
+import com.nimbusds.jwt.SignedJWT;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * In-JVM stand-in for both login providers, for load tests and end-to-end runs without network:
+ *
+ * <ul>
+ *   <li>GitHub (OAuth2) under {@link #githubUrl()}: {@code /login/oauth/authorize}, {@code
+ *       /login/oauth/access_token}, and under {@link #githubApiUrl()} {@code /user} and {@code
+ *       /user/emails} (with ETag / 304 support).
+ *   <li>Azure (OIDC) under {@link #azureIssuer()}: discovery, JWKS, authorize, token (with an
+ *       RS256-signed ID token carrying the request nonce) and userinfo.
+ * </ul>
+ *
+ * <p>The authorize endpoints redirect straight back with a code; the user is chosen by a {@code
+ * login_hint=user-<n>} parameter (default {@code user-1}), so clients can log in as many distinct
+ * users. Token, userinfo and emails calls are answered after {@code delay} to model provider
+ * latency; discovery after {@code discoveryDelay}; authorize and JWKS are immediate.
+ */
+public final class OAuthProviderStub implements AutoCloseable {
+
+  static {
+    // Without TCP_NODELAY, Nagle + delayed ACK add ~40ms to every response on loopback
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+  }
+
+  private final HttpServer server;
+  private final Duration delay;
+  private final Duration discoveryDelay;
+  private volatile RSAKey signingKey;
+  private final AtomicInteger discoveryRequests = new AtomicInteger();
+  private final AtomicInteger jwksRequests = new AtomicInteger();
+  private final Map<String, Grant> codes = new ConcurrentHashMap<>();
+  private final Map<String, Integer> tokens = new ConcurrentHashMap<>();
+  private final Map<Integer, String> names = new ConcurrentHashMap<>();
+
+  private record Grant(int user, String nonce, String clientId) {}
+
+  public OAuthProviderStub(Duration delay) throws IOException {
+    this(delay, Duration.ZERO);
+  }
+
+  public OAuthProviderStub(Duration delay, Duration discoveryDelay) throws IOException {
+    this.delay = delay;
+    this.discoveryDelay = discoveryDelay;
+    this.signingKey = generateKey("stub-key");
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.setExecutor(Executors.newCachedThreadPool());
+
+    server.createContext("/github/login/oauth/authorize", this::authorize);
+    server.createContext("/github/login/oauth/access_token", handler(this::githubToken));
+    server.createContext("/github/api/user", handler(this::githubUser));
+    server.createContext("/github/api/user/emails", this::githubEmails);
+
+    server.createContext("/azure/v2.0/.well-known/openid-configuration", this::azureDiscovery);
+    server.createContext(
+        "/azure/discovery/v2.0/keys",
+        exchange -> {
+          jwksRequests.incrementAndGet();
+          respond(exchange, 200, new JWKSet(signingKey.toPublicJWK()).toString());
+        });
+    server.createContext("/azure/oauth2/v2.0/authorize", this::authorize);
+    server.createContext("/azure/oauth2/v2.0/token", handler(this::azureToken));
+    server.createContext("/azure/oidc/userinfo", handler(this::azureUserInfo));
+    server.start();
+  }
+
+  public String baseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  /** Base for the github.com endpoints (authorize and token). */
+  public String githubUrl() {
+    return baseUrl() + "/github";
+  }
+
+  /** Base for the api.github.com endpoints ({@code /user}, {@code /user/emails}). */
+  public String githubApiUrl() {
+    return baseUrl() + "/github/api";
+  }
+
+  /** OIDC issuer of the Azure stand-in; discovery lives under it. */
+  public String azureIssuer() {
+    return baseUrl() + "/azure/v2.0";
+  }
+
+  /** Signs ID tokens with a new key from now on; the JWKS publishes only the new key. */
+  public String rotateSigningKey() {
+    signingKey = generateKey("stub-key-" + UUID.randomUUID());
+    return signingKey.getKeyID();
+  }
+
+  public String signingKeyId() {
+    return signingKey.getKeyID();
+  }
+
+  /** Changes the display name both providers report for {@code user-<user>} from now on. */
+  public void renameUser(int user, String name) {
+    names.put(user, name);
+  }
+
+  public int discoveryRequests() {
+    return discoveryRequests.get();
+  }
+
+  public int jwksRequests() {
+    return jwksRequests.get();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  // --- Shared ---
+
+  private void authorize(HttpExchange exchange) throws IOException {
+    Map<String, String> query = parse(exchange.getRequestURI().getRawQuery());
+    String hint = query.getOrDefault("login_hint", "user-1");
+    int user = Integer.parseInt(hint.substring(hint.indexOf('-') + 1));
+    String code = UUID.randomUUID().toString();
+    codes.put(code, new Grant(user, query.get("nonce"), query.get("client_id")));
+    String redirect =
+        query.get("redirect_uri")
+            + "?code="
+            + code
+            + "&state="
+            + URLEncoder.encode(query.getOrDefault("state", ""), UTF_8);
+    exchange.getResponseHeaders().add("Location", redirect);
+    exchange.sendResponseHeaders(302, -1);
+    exchange.close();
+  }
+
+  /** Redeems a one-time code, or {@code null} if it is unknown or already used. */
+  private Grant redeem(HttpExchange exchange) throws IOException {
+    Map<String, String> form = parse(new String(exchange.getRequestBody().readAllBytes(), UTF_8));
+    return codes.remove(form.getOrDefault("code", ""));
+  }
+
+  private String issueToken(int user) {
+    String token = "at-" + UUID.randomUUID();
+    tokens.put(token, user);
+    return token;
+  }
+
+  /** The user owning the request's bearer token, or {@code null}. */
+  private Integer bearerUser(HttpExchange exchange) {
+    String auth = exchange.getRequestHeaders().getFirst("Authorization");
+    return auth == null ? null : tokens.get(auth.substring(auth.indexOf(' ') + 1));
+  }
+
+  // --- GitHub ---
+
+  private Response githubToken(HttpExchange exchange) throws IOException {
+    Grant grant = redeem(exchange);
+    if (grant == null) return Response.error(400, "invalid_grant");
+    return Response.ok(
+        "{\"access_token\":\""
+            + issueToken(grant.user())
+            + "\",\"token_type\":\"bearer\",\"scope\":\"read:user user:email\"}");
+  }
+
+  private Response githubUser(HttpExchange exchange) {
+    Integer user = bearerUser(exchange);
+    if (user == null) return Response.error(401, "bad_credentials");
+    return Response.ok(
+        "{\"id\":"
+            + user
+            + ",\"login\":\"user-"
+            + user
+            + "\",\"name\":\""
+            + name(user)
+            + "\",\"email\":null,\"avatar_url\":null}");
+  }
+
+  private void githubEmails(HttpExchange exchange) throws IOException {
+    pause();
+    Integer user = bearerUser(exchange);
+    if (user == null) {
+      respond(exchange, 401, "{\"message\":\"Bad credentials\"}");
+      return;
+    }
+    String etag = "\"emails-" + user + "\"";
+    exchange.getResponseHeaders().add("ETag", etag);
+    if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+      exchange.sendResponseHeaders(304, -1);
+      exchange.close();
+      return;
+    }
+    respond(
+        exchange,
+        200,
+        "[{\"email\":\"user-"
+            + user
+            + "@example.com\",\"primary\":true,\"verified\":true,\"visibility\":\"private\"}]");
+  }
+
+  // --- Azure (OIDC) ---
+
+  private void azureDiscovery(HttpExchange exchange) throws IOException {
+    discoveryRequests.incrementAndGet();
+    sleep(discoveryDelay);
+    String issuer = azureIssuer();
+    String base = baseUrl() + "/azure";
+    respond(
+        exchange,
+        200,
+        "{\"issuer\":\""
+            + issuer
+            + "\",\"authorization_endpoint\":\""
+            + base
+            + "/oauth2/v2.0/authorize\",\"token_endpoint\":\""
+            + base
+            + "/oauth2/v2.0/token\",\"jwks_uri\":\""
+            + base
+            + "/discovery/v2.0/keys\",\"userinfo_endpoint\":\""
+            + base
+            + "/oidc/userinfo\",\"response_types_supported\":[\"code\"],"
+            + "\"subject_types_supported\":[\"pairwise\"],"
+            + "\"id_token_signing_alg_values_supported\":[\"RS256\"],"
+            + "\"scopes_supported\":[\"openid\",\"profile\",\"email\",\"offline_access\"],"
+            + "\"token_endpoint_auth_methods_supported\":"
+            + "[\"client_secret_post\",\"client_secret_basic\"]}");
+  }
+
+  private Response azureToken(HttpExchange exchange) throws IOException {
+    Grant grant = redeem(exchange);
+    if (grant == null) return Response.error(400, "invalid_grant");
+    Instant now = Instant.now();
+    JWTClaimsSet.Builder claims =
+        new JWTClaimsSet.Builder()
+            .issuer(azureIssuer())
+            .subject(azureSubject(grant.user()))
+            .audience(grant.clientId())
+            .issueTime(Date.from(now))
+            .expirationTime(Date.from(now.plusSeconds(3600)))
+            .claim("oid", "oid-" + grant.user())
+            .claim("name", name(grant.user()))
+            .claim("preferred_username", "user-" + grant.user() + "@example.com")
+            .claim("email", "user-" + grant.user() + "@example.com");
+    if (grant.nonce() != null) claims.claim("nonce", grant.nonce());
+    RSAKey key = signingKey;
+    SignedJWT idToken =
+        new SignedJWT(
+            new JWSHeader.Builder(JWSAlgorithm.RS256).keyID(key.getKeyID()).build(),
+            claims.build());
+    try {
+      idToken.sign(new RSASSASigner(key));
+    } catch (JOSEException e) {
+      throw new IllegalStateException(e);
+    }
+    return Response.ok(
+        "{\"access_token\":\""
+            + issueToken(grant.user())
+            + "\",\"token_type\":\"Bearer\",\"expires_in\":3600,"
+            + "\"scope\":\"openid profile email\",\"id_token\":\""
+            + idToken.serialize()
+            + "\"}");
+  }
+
+  private Response azureUserInfo(HttpExchange exchange) {
+    Integer user = bearerUser(exchange);
+    if (user == null) return Response.error(401, "invalid_token");
+    return Response.ok(
+        "{\"sub\":\""
+            + azureSubject(user)
+            + "\",\"name\":\""
+            + name(user)
+            + "\",\"email\":\"user-"
+            + user
+            + "@example.com\"}");
+  }
+
+  private String name(int user) {
+    return names.getOrDefault(user, "User " + user);
+  }
+
+  private static String azureSubject(int user) {
+    return "sub-" + user;
+  }
+
+  // --- Plumbing ---
+
+  private record Response(int status, String body) {
+    static Response ok(String body) {
+      return new Response(200, body);
+    }
+
+    static Response error(int status, String error) {
+      return new Response(status, "{\"error\":\"" + error + "\"}");
+    }
+  }
+
+  private interface Endpoint {
+    Response handle(HttpExchange exchange) throws IOException;
+  }
+
+  /** A delayed JSON endpoint. */
+  private HttpHandler handler(Endpoint endpoint) {
+    return exchange -> {
+      pause();
+      Response response = endpoint.handle(exchange);
+      respond(exchange, response.status(), response.body());
+    };
+  }
+
+  private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+    byte[] bytes = body.getBytes(UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(status, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private void pause() {
+    sleep(delay);
+  }
+
+  private static void sleep(Duration duration) {
+    if (duration.isZero()) return;
+    try {
+      Thread.sleep(duration.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  private static RSAKey generateKey(String keyId) {
+    try {
+      return new RSAKeyGenerator(2048).keyID(keyId).generate();
+    } catch (JOSEException e) {
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static Map<String, String> parse(String encoded) {
+    Map<String, String> params = new HashMap<>();
+    if (encoded == null || encoded.isEmpty()) return params;
+    for (String pair : encoded.split("&")) {
+      int eq = pair.indexOf('=');
+      if (eq > 0) {
+        params.put(
+            URLDecoder.decode(pair.substring(0, eq), UTF_8),
+            URLDecoder.decode(pair.substring(eq + 1), UTF_8));
+      }
+    }
+    return params;
+  }
+}
@@ -0,0 +1,85 @@
+package com.example.hello.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Startup time with the {@code azure} registration configured by {@code issuer-uri} against an
+ * {@link OAuthProviderStub} whose discovery endpoint answers after {@code load.discoveryDelayMs}:
+ * Spring Boot's own discovery at startup ({@code app.oidc-cache.enabled=false}), then the OIDC
+ * metadata cache with an empty directory (first start), with the file written by that start, and
+ * with that file while the provider is down. Runs the {@code dev} profile so the registrations come
+ * from {@code application.yml}; an unreported boot first takes class loading out of the numbers.
+ *
+ * <p>Excluded from the default build; run with {@code mvn -Pload test -Dtest=OidcStartupTimeTest}.
+ */
+@Tag("load")
+class OidcStartupTimeTest {
+
+  private static final int DISCOVERY_DELAY_MS = Integer.getInteger("load.discoveryDelayMs", 3000);
+
+  @Test
+  void cachedDiscoveryTakesTheProviderOffTheStartupPath() throws Exception {
+    Path warmup = Files.createTempDirectory("oidc-cache-warmup");
+    Path directory = Files.createTempDirectory("oidc-cache");
+    OAuthProviderStub provider =
+        new OAuthProviderStub(Duration.ZERO, Duration.ofMillis(DISCOVERY_DELAY_MS));
+    String issuer = provider.azureIssuer();
+    try {
+      boot(provider, issuer, "warmup", cachedIn(warmup));
+
+      long discovery = boot(provider, issuer, "boot", "--app.oidc-cache.enabled=false");
+      long cold = boot(provider, issuer, "cold", cachedIn(directory));
+      long warm = boot(provider, issuer, "warm", cachedIn(directory));
+      int discoveryRequests = provider.discoveryRequests();
+      provider.close();
+      long offline = boot(provider, issuer, "offline", cachedIn(directory));
+
+      System.out.printf(
+          "%n[startup] discovery delay %dms: spring boot discovery %dms, cache first start %dms,"
+              + " cache %dms, cache with provider down %dms%n",
+          DISCOVERY_DELAY_MS, discovery, cold, warm, offline);
+      // warmup + spring boot + first start; the cached starts made no request
+      assertThat(discoveryRequests).isEqualTo(3);
+      assertThat(warm).isLessThan(discovery - DISCOVERY_DELAY_MS / 2);
+    } finally {
+      provider.close();
+    }
+  }
+
+  /** Milliseconds until the application context is up. */
+  private static long boot(
+      OAuthProviderStub provider, String issuer, String name, String... cacheArgs) {
+    long start = System.nanoTime();
+    try (ConfigurableApplicationContext app =
+        LoadTestApplication.start(
+            provider,
+            "startup-" + name,
+            "dev",
+            10,
+            concat(
+                cacheArgs,
+                // Re-enable the OAuth2 client auto-configuration the test resources switch off
+                "--spring.autoconfigure.exclude=",
+                "--spring.security.oauth2.client.provider.azure.issuer-uri=" + issuer))) {
+      return (System.nanoTime() - start) / 1_000_000;
+    }
+  }
+
+  /** The test resources turn the cache off; these turn it back on, reading from {@code dir}. */
+  private static String[] cachedIn(Path dir) {
+    return new String[] {"--app.oidc-cache.enabled=true", "--app.oidc-cache.directory=" + dir};
+  }
+
+  private static String[] concat(String[] args, String... more) {
+    return Stream.concat(Arrays.stream(args), Arrays.stream(more)).toArray(String[]::new);
+  }
+}
@@ -0,0 +1,57 @@
+package com.example.hello.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.hello.load.LoginLoadDriver.Report;
+import java.time.Duration;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/**
+ * Many tabs or client retries at once: {@code load.logins} complete logins (default 500) of one
+ * provider user that has never signed in before, from {@code load.concurrency} clients (default
+ * 200), per registration and upsert mode. Every login must succeed and onboard the same single
+ * user.
+ *
+ * <p>Excluded from the default build; run with {@code mvn -Pload test
+ * -Dtest=SameIdentityLoginStressTest}.
+ */
+@Tag("load")
+class SameIdentityLoginStressTest {
+
+  private static final int LOGINS = Integer.getInteger("load.logins", 500);
+  private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 200);
+  // Provider pool sizing; stays below the stub HttpServer's limit of 200 idle connections
+  private static final int PROVIDER_CLIENTS = 40;
+
+  @Test
+  void simultaneousFirstLoginsOfOneUserAllSucceed() throws Exception {
+    for (String mode : new String[] {"jpa", "native"}) {
+      try (OAuthProviderStub provider = new OAuthProviderStub(Duration.ofMillis(5));
+          ConfigurableApplicationContext app =
+              LoadTestApplication.start(
+                  provider,
+                  "same-identity-" + mode,
+                  "test",
+                  PROVIDER_CLIENTS,
+                  "--app.user-upsert.mode=" + mode,
+                  // Logins queue for provider connections instead of failing; only upserts may fail
+                  "--app.provider-http.connect-timeout=30s",
+                  "--app.provider-http.pool-timeout=60s",
+                  "--app.provider-http.total-timeout=60s")) {
+        LoginLoadDriver driver = new LoginLoadDriver(LoadTestApplication.baseUrl(app), CONCURRENCY);
+        for (String registration : new String[] {"github", "azure"}) {
+          Report report = driver.run(registration + " " + mode, registration, LOGINS, i -> 0);
+          System.out.println(report);
+          assertThat(report.failures()).isZero();
+        }
+        assertThat(
+                app.getBean(JdbcTemplate.class)
+                    .queryForObject("SELECT count(*) FROM app_user", Integer.class))
+            .isEqualTo(2);
+      }
+    }
+  }
+}
@@ -0,0 +1,150 @@
+package com.example.hello.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.hello.Application;
+import com.example.hello.security.CookieSecurityContextRepository;
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpHeaders;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+
+/**
+ * Streams {@code load.exportRows} users (default 2 million) from {@code /admin/users/export} over
+ * HTTP, with the JVM heap fixed by {@code -Xmx} of the {@code load} profile ({@code load.heap},
+ * default 512m) and the table in a file-based H2 database, so neither the rows nor the response has
+ * to fit in memory. H2 runs with lazy query execution, which reads the cursor straight from the
+ * {@code updated_at} index, like PostgreSQL does with a fetch size, instead of materializing the
+ * result first. Prints rows, bytes and throughput per format, and the peak heap use.
+ *
+ * <p>Excluded from the default build; run with {@code mvn -Pload test -Dtest=UserExportLoadTest}.
+ */
+@Tag("load")
+class UserExportLoadTest {
+
+  private static final int ROWS = Integer.getInteger("load.exportRows", 2_000_000);
+  private static final String SESSION_KEY = "MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=";
+
+  @Test
+  void exportsTheWholeTableWithinAFixedHeap() throws Exception {
+    Path directory = Files.createTempDirectory("user-export");
+    try (ConfigurableApplicationContext app =
+        new SpringApplicationBuilder(Application.class)
+            .run(
+                "--spring.profiles.active=test",
+                "--server.port=0",
+                "--logging.level.root=WARN",
+                "--spring.datasource.url=jdbc:h2:file:"
+                    + directory.resolve("users")
+                    + ";MODE=PostgreSQL;LAZY_QUERY_EXECUTION=1",
+                "--app.admin.users=github:export-admin",
+                "--app.session.mode=cookie",
+                "--app.session.key=" + SESSION_KEY)) {
+      seed(app.getBean(JdbcTemplate.class));
+      String cookie = adminCookie(app.getBean(CookieSecurityContextRepository.class));
+      String url = LoadTestApplication.baseUrl(app) + "/admin/users/export?format=";
+
+      resetPeakHeap();
+      export(url + "ndjson", cookie, "ndjson");
+      export(url + "csv", cookie, "csv");
+      System.out.printf(
+          "%n[export] peak heap used %d MiB of %d MiB max%n",
+          peakHeapUsed() >> 20, Runtime.getRuntime().maxMemory() >> 20);
+    }
+  }
+
+  private static void export(String url, String cookie, String format) throws Exception {
+    HttpRequest request = HttpRequest.newBuilder(URI.create(url)).header("Cookie", cookie).build();
+    long start = System.nanoTime();
+    HttpResponse<InputStream> response =
+        HttpClient.newHttpClient().send(request, HttpResponse.BodyHandlers.ofInputStream());
+    assertThat(response.statusCode()).isEqualTo(200);
+    long lines = 0;
+    long chars = 0;
+    try (BufferedReader body =
+        new BufferedReader(new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+      for (String line = body.readLine(); line != null; line = body.readLine()) {
+        lines++;
+        chars += line.length() + 1;
+      }
+    }
+    double seconds = (System.nanoTime() - start) / 1e9;
+    System.out.printf(
+        "%n[export] %-6s %d rows, %d MiB in %.1fs (%.0f rows/s)%n",
+        format, lines, chars >> 20, seconds, lines / seconds);
+    assertThat(lines).isEqualTo(format.equals("csv") ? ROWS + 1 : ROWS);
+  }
+
+  /** {@code ROWS} GitHub users, in key order so the inserts append to the indexes. */
+  private static void seed(JdbcTemplate jdbc) {
+    long start = System.nanoTime();
+    // Committed in chunks, so the seeding transaction does not have to fit in the heap either
+    for (int from = 1; from <= ROWS; from += 100_000) {
+      jdbc.update(
+          "INSERT INTO app_user (id, provider, external_id, username, display_name, email,"
+              + " avatar_url, created_at, updated_at, last_login_at)"
+              + " SELECT CAST('00000000-0000-7000-8000-' || LPAD(X, 12, '0') AS UUID), 'GITHUB',"
+              + " LPAD(X, 10, '0'), 'user-' || X, 'User ' || X, 'user-' || X || '@example.com',"
+              + " 'https://avatars.githubusercontent.com/u/' || X || '?v=4',"
+              + " TIMESTAMP WITH TIME ZONE '2024-01-01 00:00:00Z',"
+              + " DATEADD(MILLISECOND, X, TIMESTAMP WITH TIME ZONE '2024-01-01 00:00:00Z'), NULL"
+              + " FROM SYSTEM_RANGE(?, ?)",
+          from,
+          Math.min(from + 99_999, ROWS));
+    }
+    System.out.printf(
+        "%n[export] seeded %d users in %.1fs%n", ROWS, (System.nanoTime() - start) / 1e9);
+  }
+
+  /** The session cookie of a GitHub login by the configured admin. */
+  private static String adminCookie(CookieSecurityContextRepository repository) {
+    DefaultOAuth2User user =
+        new DefaultOAuth2User(
+            List.of(new SimpleGrantedAuthority("OAUTH2_USER")),
+            Map.of("id", "export-admin", "login", "export-admin", "name", "Export Admin"),
+            "id");
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    repository.saveContext(
+        new SecurityContextImpl(
+            new OAuth2AuthenticationToken(user, user.getAuthorities(), "github")),
+        new MockHttpServletRequest(),
+        response);
+    String header = response.getHeader(HttpHeaders.SET_COOKIE);
+    return header.substring(0, header.indexOf(';'));
+  }
+
+  private static void resetPeakHeap() {
+    System.gc();
+    ManagementFactory.getMemoryPoolMXBeans().forEach(MemoryPoolMXBean::resetPeakUsage);
+  }
+
+  private static long peakHeapUsed() {
+    return ManagementFactory.getMemoryPoolMXBeans().stream()
+        .filter(pool -> pool.getType() == MemoryType.HEAP)
+        .mapToLong(pool -> pool.getPeakUsage().getUsed())
+        .sum();
+  }
+}
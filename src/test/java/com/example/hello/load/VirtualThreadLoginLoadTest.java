@@ -0,0 +1,68 @@
+package com.example.hello.load;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import com.example.hello.load.LoginLoadDriver.Report;
+import java.time.Duration;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ConfigurableApplicationContext;
+
+/**
+ * Concurrent GitHub logins through Tomcat against an {@link OAuthProviderStub} that delays every
+ * provider call, on platform threads vs {@code spring.threads.virtual.enabled}. Each mode first
+ * onboards {@code load.users} users, then measures {@code load.logins} repeat logins from {@code
+ * load.concurrency} clients. The virtual-thread run is skipped below Java 21.
+ *
+ * <p>Provider latency, not CPU, has to be the bottleneck for the comparison to mean anything: keep
+ * {@code load.concurrency} above {@code load.tomcatThreads} and {@code load.delayMs} well above the
+ * per-login CPU cost (a few ms per core once warm).
+ *
+ * <p>Excluded from the default build; run with {@code mvn -Pvirtual-threads,load test} (Java 21).
+ * The {@code load} profile also traces pinned virtual threads ({@code jdk.tracePinnedThreads}).
+ */
+@Tag("load")
+class VirtualThreadLoginLoadTest {
+
+  private static final int USERS = Integer.getInteger("load.users", 1000);
+  private static final int LOGINS = Integer.getInteger("load.logins", 4000);
+  private static final int CONCURRENCY = Integer.getInteger("load.concurrency", 800);
+  private static final int DELAY_MS = Integer.getInteger("load.delayMs", 200);
+  // Platform mode only; with virtual threads Tomcat starts one virtual thread per request
+  private static final int TOMCAT_THREADS = Integer.getInteger("load.tomcatThreads", 200);
+
+  @Test
+  void comparesConcurrentLoginThroughput() throws Exception {
+    try (OAuthProviderStub provider = new OAuthProviderStub(Duration.ofMillis(DELAY_MS))) {
+      Report platform = run(provider, "platform", "test");
+      System.out.println(platform);
+      assertThat(platform.failures()).isZero();
+
+      assumeTrue(Runtime.version().feature() >= 21, "virtual threads need Java 21");
+      Report virtual = run(provider, "virtual", "test,virtual-threads");
+      System.out.println(virtual);
+      assertThat(virtual.failures()).isZero();
+      System.out.printf(
+          "[load] virtual/platform throughput: %.2fx%n",
+          virtual.loginsPerSecond() / platform.loginsPerSecond());
+    }
+  }
+
+  private static Report run(OAuthProviderStub provider, String mode, String profiles)
+      throws Exception {
+    try (ConfigurableApplicationContext app =
+        LoadTestApplication.start(
+            provider,
+            mode,
+            profiles,
+            CONCURRENCY,
+            "--server.tomcat.threads.max=" + TOMCAT_THREADS,
+            // Keeps the emails lookups on the fetch pool, whose threads this test compares
+            "--app.github-emails.concurrent=true")) {
+      LoginLoadDriver driver = new LoginLoadDriver(LoadTestApplication.baseUrl(app), CONCURRENCY);
+      driver.run(mode + " onboard", "github", USERS, i -> i); // onboard every user, and warm up
+      return driver.run(mode, "github", LOGINS, i -> i % USERS);
+    }
+  }
+}
@@ -0,0 +1,42 @@
+package com.example.hello.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.hello.security.ProviderProfile;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+
+/** V4 fills in {@code profile_hash} for rows written before the column existed. */
+class ProfileHashBackfillTest {
+
+  @Test
+  void backfillsTheFingerprintOfExistingRows() {
+    DriverManagerDataSource dataSource =
+        new DriverManagerDataSource(
+            "jdbc:h2:mem:profile-hash-backfill;DB_CLOSE_DELAY=-1;MODE=PostgreSQL", "sa", "");
+    Flyway.configure().dataSource(dataSource).target("3").load().migrate();
+    JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    // More rows than one backfill batch, some with null profile columns
+    jdbc.update(
+        "INSERT INTO app_user (id, provider, external_id, username, display_name, email,"
+            + " created_at, updated_at)"
+            + " SELECT RANDOM_UUID(), 'GITHUB', 'legacy-' || X, 'user' || X,"
+            + " CASE WHEN MOD(X, 2) = 0 THEN 'User ' || X END, NULL,"
+            + " CURRENT_TIMESTAMP, CURRENT_TIMESTAMP FROM SYSTEM_RANGE(1, 2500)");
+
+    Flyway.configure().dataSource(dataSource).load().migrate();
+
+    assertThat(
+            jdbc.queryForObject(
+                "SELECT count(*) FROM app_user WHERE profile_hash IS NULL", Integer.class))
+        .isZero();
+    ProviderProfile legacy =
+        new ProviderProfile("GITHUB", "legacy-42", "user42", "User 42", null, null);
+    assertThat(
+            jdbc.queryForObject(
+                "SELECT profile_hash FROM app_user WHERE external_id = 'legacy-42'", Long.class))
+        .isEqualTo(legacy.fingerprint());
+  }
+}
@@ -0,0 +1,157 @@
+package com.example.hello.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.hello.config.ReplicaRoutingDataSource;
+import com.example.hello.repository.UserRepository;
+import com.example.hello.security.ProviderProfile;
+import com.example.hello.service.UserService;
+import com.zaxxer.hikari.HikariDataSource;
+import jakarta.persistence.EntityManagerFactory;
+import java.sql.SQLFeatureNotSupportedException;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+/**
+ * Two in-memory H2 databases stand in for the primary and a replica that never receives the
+ * primary's writes, so where a row is found shows where the query went. A second replica is
+ * unreachable.
+ */
+@SpringBootTest(
+    properties = {
+      "spring.datasource.url=jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1;MODE=PostgreSQL",
+      "app.read-replicas.enabled=true",
+      "app.read-replicas.replicas[0].url=" + ReadReplicaRoutingTest.REPLICA_URL,
+      "app.read-replicas.replicas[0].username=sa",
+      "app.read-replicas.replicas[1].url=jdbc:h2:tcp://127.0.0.1:1/unreachable",
+      "app.read-replicas.replicas[1].username=sa",
+      "app.read-replicas.connection-timeout=250ms"
+    })
+class ReadReplicaRoutingTest {
+
+  static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1;MODE=PostgreSQL";
+
+  @Autowired UserService userService;
+  @Autowired UserRepository userRepository;
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired HikariDataSource primaryDataSource;
+  @Autowired ReplicaRoutingDataSource replicaDataSource;
+  @Autowired PlatformTransactionManager transactionManager;
+  @Autowired EntityManagerFactory entityManagerFactory;
+
+  @BeforeAll
+  static void seedReplica() {
+    Flyway.configure().dataSource(REPLICA_URL, "sa", "").load().migrate();
+    new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", ""))
+        .update(
+            "INSERT INTO app_user (id, provider, external_id, username, created_at, updated_at)"
+                + " VALUES (RANDOM_UUID(), 'GITHUB', 'replica-only', 'replica-only',"
+                + " CURRENT_TIMESTAMP, CURRENT_TIMESTAMP)");
+  }
+
+  // The test context binds a mock request to each test method; start outside of any request
+  @BeforeEach
+  @AfterEach
+  void unbindRequest() {
+    RequestContextHolder.resetRequestAttributes();
+  }
+
+  @Test
+  void readOnlyTransactionsGoToTheReplica() {
+    assertThat(inReadWrite("replica-only")).isZero();
+
+    for (int i = 0; i < 10; i++) {
+      assertThat(inReadOnly("replica-only")).isOne();
+    }
+    assertThat(userService.findCached(profile("replica-only"))).isPresent();
+    // The unreachable replica was ejected instead of failing reads
+    assertThat(replicaDataSource.healthyReplicas()).isOne();
+  }
+
+  @Test
+  void writesGoToThePrimary() {
+    userService.getOrCreateFromProviderProfile(profile("routing-write"));
+
+    assertThat(
+            new JdbcTemplate(primaryDataSource)
+                .queryForObject(
+                    "SELECT count(*) FROM app_user WHERE external_id = 'routing-write'",
+                    Integer.class))
+        .isOne();
+    assertThat(inReadOnly("routing-write")).isZero();
+  }
+
+  @Test
+  void readsAfterAWriteInTheSameRequestUseThePrimary() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    userService.getOrCreateFromProviderProfile(profile("routing-ryw"));
+    entityManagerFactory.getCache().evictAll();
+
+    assertThat(userRepository.findByProviderAndExternalId("GITHUB", "routing-ryw")).isPresent();
+
+    // Another request has not written, so it reads the lagging replica
+    entityManagerFactory.getCache().evictAll();
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    assertThat(userRepository.findByProviderAndExternalId("GITHUB", "routing-ryw")).isEmpty();
+  }
+
+  @Test
+  void readOnlyWorkServedByThePrimaryDoesNotPinTheRequest() {
+    RequestContextHolder.setRequestAttributes(
+        new ServletRequestAttributes(new MockHttpServletRequest()));
+    TransactionTemplate supports = new TransactionTemplate(transactionManager);
+    supports.setReadOnly(true);
+    supports.setPropagationBehavior(TransactionDefinition.PROPAGATION_SUPPORTS);
+
+    // Outside a transaction the connection is not marked read-only, so it comes from the primary
+    int count = supports.execute(status -> count("replica-only"));
+    assertThat(count).isZero();
+
+    assertThat(inReadOnly("replica-only")).isOne();
+  }
+
+  @Test
+  void connectionsWithCredentialsAreRoutedToo() {
+    int healthy = replicaDataSource.healthyReplicas();
+
+    // Hikari pools take their credentials from configuration only
+    assertThatThrownBy(() -> replicaDataSource.getConnection("sa", ""))
+        .isInstanceOf(SQLFeatureNotSupportedException.class);
+    assertThat(replicaDataSource.healthyReplicas()).isEqualTo(healthy);
+  }
+
+  private int inReadOnly(String externalId) {
+    TransactionTemplate tx = new TransactionTemplate(transactionManager);
+    tx.setReadOnly(true);
+    return tx.execute(status -> count(externalId));
+  }
+
+  private int inReadWrite(String externalId) {
+    return new TransactionTemplate(transactionManager).execute(status -> count(externalId));
+  }
+
+  private int count(String externalId) {
+    return jdbcTemplate.queryForObject(
+        "SELECT count(*) FROM app_user WHERE external_id = ?", Integer.class, externalId);
+  }
+
+  private static ProviderProfile profile(String externalId) {
+    return new ProviderProfile("GITHUB", externalId, externalId, null, null, null);
+  }
+}
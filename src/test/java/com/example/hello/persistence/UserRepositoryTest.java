@@ -28,6 +28,7 @@ class UserRepositoryTest {
 
     User saved = userRepository.save(u);
     assertThat(saved.getId()).isNotNull();
+    assertThat(saved.getId().version()).isEqualTo(7);
     assertThat(saved.getCreatedAt()).isNotNull();
     assertThat(saved.getUpdatedAt()).isNotNull();
 
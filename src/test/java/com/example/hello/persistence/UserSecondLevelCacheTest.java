@@ -0,0 +1,115 @@
+package com.example.hello.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.hello.domain.User;
+import com.example.hello.repository.UserRepository;
+import com.example.hello.security.ProviderProfile;
+import com.example.hello.service.UserService;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+/**
+ * Natural-id lookups of {@link User} against the second-level cache, counted in JDBC statements
+ * from Hibernate's statistics. Each repository call runs in its own session, like one per login.
+ */
+@SpringBootTest(properties = "app.user-upsert.mode=native")
+class UserSecondLevelCacheTest {
+
+  private static final int LOOKUPS = 10;
+
+  @Autowired UserRepository userRepository;
+  @Autowired UserService userService;
+  @Autowired EntityManagerFactory entityManagerFactory;
+  @Autowired MeterRegistry meterRegistry;
+
+  private Statistics statistics;
+
+  @BeforeEach
+  void setUp() {
+    statistics = entityManagerFactory.unwrap(SessionFactory.class).getStatistics();
+  }
+
+  @Test
+  void repeatedLookupsByNaturalIdSkipTheDatabase() {
+    userRepository.save(user("l2-lookup", "Octo"));
+
+    long uncached = statementsFor(() -> entityManagerFactory.getCache().evictAll());
+    long cached = statementsFor(() -> {});
+
+    assertThat(uncached).isEqualTo(LOOKUPS);
+    assertThat(cached).isZero();
+    assertThat(statistics.getNaturalIdCacheHitCount()).isEqualTo(LOOKUPS);
+    assertThat(statistics.getSecondLevelCacheHitCount()).isEqualTo(LOOKUPS);
+  }
+
+  @Test
+  void updatesThroughJpaRefreshTheCachedEntity() {
+    User user = userRepository.save(user("l2-jpa", "Before"));
+    userRepository.findByProviderAndExternalId("GITHUB", "l2-jpa").orElseThrow();
+
+    user.setDisplayName("After");
+    userRepository.save(user);
+    statistics.clear();
+
+    assertThat(userRepository.findByProviderAndExternalId("GITHUB", "l2-jpa"))
+        .get()
+        .extracting(User::getDisplayName)
+        .isEqualTo("After");
+    assertThat(statistics.getPrepareStatementCount()).isZero();
+  }
+
+  @Test
+  void jdbcUpdatesEvictTheCachedEntity() {
+    userRepository.save(user("l2-native", "Before"));
+    userRepository.findByProviderAndExternalId("GITHUB", "l2-native").orElseThrow();
+
+    userService.getOrCreateFromProviderProfile(
+        new ProviderProfile("GITHUB", "l2-native", "l2-native", "After", null, null));
+
+    assertThat(userRepository.findByProviderAndExternalId("GITHUB", "l2-native"))
+        .get()
+        .extracting(User::getDisplayName)
+        .isEqualTo("After");
+  }
+
+  @Test
+  void cacheStatisticsArePublishedAsMetrics() {
+    userRepository.save(user("l2-metrics", "Octo"));
+    userRepository.findByProviderAndExternalId("GITHUB", "l2-metrics").orElseThrow();
+
+    assertThat(
+            meterRegistry
+                .get("hibernate.second.level.cache.requests")
+                .tags("region", User.CACHE_REGION, "result", "hit")
+                .functionCounter()
+                .count())
+        .isPositive();
+    assertThat(meterRegistry.get("hibernate.cache.natural.id.requests").meters()).isNotEmpty();
+  }
+
+  /** JDBC statements issued by {@value #LOOKUPS} lookups, each after {@code beforeLookup}. */
+  private long statementsFor(Runnable beforeLookup) {
+    statistics.clear();
+    for (int i = 0; i < LOOKUPS; i++) {
+      beforeLookup.run();
+      assertThat(userRepository.findByProviderAndExternalId("GITHUB", "l2-lookup")).isPresent();
+    }
+    return statistics.getPrepareStatementCount();
+  }
+
+  private static User user(String externalId, String displayName) {
+    User u = new User();
+    u.setProvider("GITHUB");
+    u.setExternalId(externalId);
+    u.setUsername(externalId);
+    u.setDisplayName(displayName);
+    return u;
+  }
+}
@@ -0,0 +1,76 @@
+package com.example.hello.persistence;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.hello.repository.UserUpsertRepository;
+import com.example.hello.repository.UserUpsertRepository.Outcome;
+import com.example.hello.repository.UserUpsertRepository.Result;
+import com.example.hello.security.ProviderProfile;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+@JdbcTest
+@Import(UserUpsertRepository.class)
+class UserUpsertRepositoryTest {
+
+  @Autowired UserUpsertRepository upsertRepository;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Test
+  void insertsNewUserWithLastLogin() {
+    Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    Result r = upsertRepository.upsert(profile("1", "octo", "Octo"), now);
+
+    assertThat(r.outcome()).isEqualTo(Outcome.CREATED);
+    assertThat(r.user().getId()).isNotNull();
+    assertThat(r.user().getUsername()).isEqualTo("octo");
+    assertThat(r.user().getCreatedAt()).isEqualTo(now);
+    assertThat(r.user().getLastLoginAt()).isEqualTo(now);
+  }
+
+  @Test
+  void unchangedProfileLeavesRowUntouched() {
+    Instant first = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    Result created = upsertRepository.upsert(profile("2", "same", "Same"), first);
+
+    Result again = upsertRepository.upsert(profile("2", "same", "Same"), first.plusSeconds(60));
+
+    assertThat(again.outcome()).isEqualTo(Outcome.UNCHANGED);
+    assertThat(again.user().getId()).isEqualTo(created.user().getId());
+    assertThat(again.user().getUpdatedAt()).isEqualTo(first);
+    assertThat(again.user().getVersion()).isZero();
+  }
+
+  @Test
+  void changedProfileUpdatesColumnsButKeepsIdentityAndCreatedAt() {
+    Instant first = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    Instant later = first.plusSeconds(60);
+    Result created = upsertRepository.upsert(profile("3", "before", "Before"), first);
+
+    Result updated = upsertRepository.upsert(profile("3", "after", "After"), later);
+
+    assertThat(updated.outcome()).isEqualTo(Outcome.UPDATED);
+    assertThat(updated.user().getId()).isEqualTo(created.user().getId());
+    assertThat(updated.user().getUsername()).isEqualTo("after");
+    assertThat(updated.user().getDisplayName()).isEqualTo("After");
+    assertThat(updated.user().getCreatedAt()).isEqualTo(first);
+    assertThat(updated.user().getUpdatedAt()).isEqualTo(later);
+    assertThat(updated.user().getLastLoginAt()).isEqualTo(first);
+    // The returned user can be merged into JPA without a spurious optimistic-lock failure
+    assertThat(updated.user().getVersion()).isEqualTo(created.user().getVersion() + 1);
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT COUNT(*) FROM app_user WHERE external_id = '3'", Integer.class))
+        .isEqualTo(1);
+  }
+
+  private static ProviderProfile profile(String id, String username, String displayName) {
+    return new ProviderProfile("GITHUB", id, username, displayName, null, null);
+  }
+}
@@ -0,0 +1,135 @@
+package com.example.hello.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import jakarta.servlet.http.Cookie;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.context.SecurityContextImpl;
+import org.springframework.security.oauth2.client.authentication.OAuth2AuthenticationToken;
+import org.springframework.security.oauth2.core.user.DefaultOAuth2User;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+
+@SpringBootTest(
+    properties = {
+      "app.session.mode=cookie",
+      "app.session.key=MDEyMzQ1Njc4OWFiY2RlZjAxMjM0NTY3ODlhYmNkZWY=",
+      "app.admin.users=azure:oid-admin",
+    })
+@AutoConfigureMockMvc
+class CookieSessionModeTest {
+
+  @Autowired MockMvc mockMvc;
+  @Autowired CookieSecurityContextRepository repository;
+
+  @Test
+  void meIsServedFromTheCookieWithoutAnHttpSession() throws Exception {
+    Cookie session = loginCookie("7001", "Cookie Cat");
+
+    MvcResult result =
+        mockMvc
+            .perform(get("/me").cookie(session))
+            .andExpect(status().isOk())
+            .andExpect(content().string(containsString("Hello, Cookie Cat!")))
+            .andReturn();
+
+    assertThat(result.getRequest().getSession(false)).isNull();
+    // Small enough to leave room for other cookies under the 4 KB browser limit
+    assertThat(session.getValue().length()).isLessThan(400);
+  }
+
+  @Test
+  void tamperedCookieIsTreatedAsAnonymous() throws Exception {
+    String value = loginCookie("7002", "Tampered Cat").getValue();
+    Cookie tampered = new Cookie("APP_SESSION", SessionCookieCodecTest.tamper(value));
+
+    mockMvc
+        .perform(get("/me").cookie(tampered))
+        .andExpect(status().is3xxRedirection())
+        .andExpect(redirectedUrl("http://localhost/login"));
+  }
+
+  @Test
+  void authorizationRequestIsKeptInACookie() throws Exception {
+    MvcResult result =
+        mockMvc
+            .perform(get("/oauth2/authorization/github"))
+            .andExpect(status().is3xxRedirection())
+            .andReturn();
+
+    assertThat(result.getResponse().getHeaders(HttpHeaders.SET_COOKIE))
+        .anySatisfy(c -> assertThat(c).startsWith("APP_SESSION_LOGIN=").contains("SameSite=Lax"));
+    assertThat(result.getRequest().getSession(false)).isNull();
+  }
+
+  @Test
+  void logoutWithTheCookieCsrfTokenClearsTheSessionCookie() throws Exception {
+    Cookie session = loginCookie("7003", "Leaving Cat");
+    MvcResult page = mockMvc.perform(get("/me").cookie(session)).andReturn();
+    Cookie csrfCookie = page.getResponse().getCookie("XSRF-TOKEN");
+    Matcher field =
+        Pattern.compile("name=\"_csrf\" value=\"([^\"]+)\"")
+            .matcher(page.getResponse().getContentAsString());
+    assertThat(csrfCookie).isNotNull();
+    assertThat(field.find()).isTrue();
+
+    mockMvc.perform(post("/logout").cookie(session)).andExpect(status().isForbidden()); // no token
+    MvcResult result =
+        mockMvc
+            .perform(post("/logout").cookie(session, csrfCookie).param("_csrf", field.group(1)))
+            .andExpect(redirectedUrl("/login?logout"))
+            .andReturn();
+
+    assertThat(result.getResponse().getHeaders(HttpHeaders.SET_COOKIE))
+        .anySatisfy(c -> assertThat(c).startsWith("APP_SESSION=").contains("Max-Age=0"));
+  }
+
+  @Test
+  void azureAdminsAreListedByObjectIdAsInServletMode() throws Exception {
+    Cookie admin =
+        loginCookie(
+            "azure", Map.of("sub", "sub-admin", "oid", "oid-admin", "name", "Admin"), "sub");
+
+    mockMvc.perform(get("/admin/users/export").cookie(admin)).andExpect(status().isOk());
+  }
+
+  /** The cookie a GitHub login would set, built through the repository. */
+  private Cookie loginCookie(String githubId, String name) {
+    return loginCookie(
+        "github", Map.of("id", githubId, "login", "user-" + githubId, "name", name), "id");
+  }
+
+  private Cookie loginCookie(
+      String registrationId, Map<String, Object> attributes, String nameAttribute) {
+    DefaultOAuth2User user =
+        new DefaultOAuth2User(
+            List.of(new SimpleGrantedAuthority("OAUTH2_USER")), attributes, nameAttribute);
+    MockHttpServletResponse response = new MockHttpServletResponse();
+    repository.saveContext(
+        new SecurityContextImpl(
+            new OAuth2AuthenticationToken(user, user.getAuthorities(), registrationId)),
+        new MockHttpServletRequest(),
+        response);
+    String header = response.getHeader(HttpHeaders.SET_COOKIE);
+    assertThat(header).startsWith("APP_SESSION=").contains("HttpOnly", "SameSite=Lax");
+    return new Cookie(
+        "APP_SESSION", header.substring("APP_SESSION=".length(), header.indexOf(';')));
+  }
+}
@@ -0,0 +1,174 @@
+package com.example.hello.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.example.hello.service.LoginAnalytics;
+import com.example.hello.service.UserOnboarding;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.client.userinfo.OAuth2UserRequest;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+
+class CustomOAuth2UserServiceTest {
+
+  private static final Duration DELAY = Duration.ofMillis(400);
+
+  private final UserOnboarding userOnboarding = mock(UserOnboarding.class);
+  private final LoginAnalytics loginAnalytics = mock(LoginAnalytics.class);
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private GithubStub github;
+  private GithubEmailClient emailClient;
+
+  @BeforeEach
+  void startGithubStub() throws Exception {
+    github = new GithubStub(DELAY);
+  }
+
+  @AfterEach
+  void stop() {
+    if (emailClient != null) emailClient.close();
+    github.close();
+  }
+
+  @Test
+  void concurrentLookupOverlapsUserinfoAndEmails() {
+    Duration elapsed = timeLogin(service(true));
+
+    assertThat(elapsed).isLessThan(DELAY.multipliedBy(2));
+    assertThat(savedProfile().email()).isEqualTo("octo@example.com");
+  }
+
+  @Test
+  void aPublicEmailSkipsTheEmailsLookup() {
+    github.userBody =
+        "{\"id\":42,\"login\":\"octocat\",\"name\":\"Octo Cat\",\"email\":\"public@example.com\"}";
+
+    timeLogin(service(false));
+
+    assertThat(github.emailsCalls).hasValue(0);
+    assertThat(savedProfile().email()).isEqualTo("public@example.com");
+  }
+
+  @Test
+  void aPublicEmailCancelsTheConcurrentLookup() {
+    github.userBody =
+        "{\"id\":42,\"login\":\"octocat\",\"name\":\"Octo Cat\",\"email\":\"public@example.com\"}";
+    github.emailsLatency = DELAY.multipliedBy(5);
+
+    Duration elapsed = timeLogin(service(true));
+
+    // The login neither waits for /user/emails nor takes its answer
+    assertThat(elapsed).isLessThan(DELAY.multipliedBy(5));
+    assertThat(savedProfile().email()).isEqualTo("public@example.com");
+  }
+
+  @Test
+  void countsTheLoginForActiveUsers() {
+    timeLogin(service(true));
+
+    ProviderProfile profile = savedProfile();
+    verify(loginAnalytics).recordLogin("GITHUB", profile.externalId());
+  }
+
+  @Test
+  void serialLookupTakesBothRoundTrips() {
+    Duration elapsed = timeLogin(service(false));
+
+    assertThat(elapsed).isGreaterThanOrEqualTo(DELAY.multipliedBy(2));
+    assertThat(savedProfile().email()).isEqualTo("octo@example.com");
+  }
+
+  @Test
+  void timesEachLoginStage() {
+    timeLogin(service(false));
+
+    for (String stage : new String[] {"login", "userinfo", "emails", "upsert"}) {
+      assertThat(
+              registry
+                  .get(LoginMetrics.TIMER)
+                  .tags("stage", stage, "registration", "github", "outcome", "success")
+                  .timer()
+                  .count())
+          .as(stage)
+          .isEqualTo(1);
+    }
+    assertThat(stageTime("emails")).isGreaterThanOrEqualTo(DELAY);
+    assertThat(stageTime("login")).isGreaterThanOrEqualTo(DELAY.multipliedBy(2));
+  }
+
+  private Duration stageTime(String stage) {
+    return Duration.ofNanos(
+        (long)
+            registry
+                .get(LoginMetrics.TIMER)
+                .tag("stage", stage)
+                .timer()
+                .totalTime(TimeUnit.NANOSECONDS));
+  }
+
+  private CustomOAuth2UserService service(boolean concurrent) {
+    GithubEmailProperties properties =
+        new GithubEmailProperties(github.baseUrl(), 100, Duration.ofHours(1), concurrent, 4);
+    SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+    emailClient =
+        new GithubEmailClient(
+            requestFactory,
+            properties,
+            new SimpleMeterRegistry(),
+            new GithubApiGuard(GithubApiGuardTest.defaults(), new SimpleMeterRegistry()),
+            false);
+    return new CustomOAuth2UserService(
+        userOnboarding,
+        loginAnalytics,
+        emailClient,
+        properties,
+        requestFactory,
+        new LoginMetrics(registry, new LoginMetricsProperties(true)));
+  }
+
+  private Duration timeLogin(CustomOAuth2UserService service) {
+    OAuth2UserRequest request = githubRequest();
+    long start = System.nanoTime();
+    service.loadUser(request);
+    return Duration.ofNanos(System.nanoTime() - start);
+  }
+
+  private ProviderProfile savedProfile() {
+    ArgumentCaptor<ProviderProfile> profile = ArgumentCaptor.forClass(ProviderProfile.class);
+    verify(userOnboarding).onboard(profile.capture());
+    return profile.getValue();
+  }
+
+  private OAuth2UserRequest githubRequest() {
+    ClientRegistration registration =
+        ClientRegistration.withRegistrationId("github")
+            .clientId("test-client-id")
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+            .authorizationUri(github.baseUrl() + "/login/oauth/authorize")
+            .tokenUri(github.baseUrl() + "/login/oauth/access_token")
+            .userInfoUri(github.baseUrl() + "/user")
+            .userNameAttributeName("id")
+            .build();
+    OAuth2AccessToken token =
+        new OAuth2AccessToken(
+            OAuth2AccessToken.TokenType.BEARER,
+            "token",
+            Instant.now(),
+            Instant.now().plusSeconds(60),
+            Set.of("read:user", "user:email"));
+    return new OAuth2UserRequest(registration, token);
+  }
+}
@@ -0,0 +1,122 @@
+package com.example.hello.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+
+import com.example.hello.service.LoginAnalytics;
+import com.example.hello.service.UserOnboarding;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.oidc.userinfo.OidcUserRequest;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.core.OAuth2AccessToken;
+import org.springframework.security.oauth2.core.oidc.OidcIdToken;
+import org.springframework.security.oauth2.core.oidc.user.OidcUser;
+
+class CustomOidcUserServiceTest {
+
+  private final UserOnboarding userOnboarding = mock(UserOnboarding.class);
+  private final LoginAnalytics loginAnalytics = mock(LoginAnalytics.class);
+  private final List<URI> requests = new CopyOnWriteArrayList<>();
+  private HttpServer server;
+
+  @BeforeEach
+  void startUserInfo() throws Exception {
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext(
+        "/userinfo",
+        exchange -> {
+          byte[] body =
+              "{\"sub\":\"sub-7\",\"name\":\"User Seven\",\"email\":\"seven@example.com\"}"
+                  .getBytes(StandardCharsets.UTF_8);
+          exchange.getResponseHeaders().add("Content-Type", "application/json");
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    server.start();
+  }
+
+  @AfterEach
+  void stop() {
+    server.stop(0);
+  }
+
+  @Test
+  void onboardsTheUserFromIdTokenAndUserInfoThroughTheProviderClient() {
+    OidcUser user = service().loadUser(request());
+
+    assertThat(user.getSubject()).isEqualTo("sub-7");
+    assertThat(requests).singleElement().asString().endsWith("/userinfo");
+    ArgumentCaptor<ProviderProfile> profile = ArgumentCaptor.forClass(ProviderProfile.class);
+    verify(userOnboarding).onboard(profile.capture());
+    assertThat(profile.getValue().provider()).isEqualTo("AZURE");
+    assertThat(profile.getValue().externalId()).isEqualTo("oid-7");
+    // ID token claims win over userinfo; the email only comes from userinfo
+    assertThat(profile.getValue().displayName()).isEqualTo("User 7");
+    assertThat(profile.getValue().email()).isEqualTo("seven@example.com");
+    verify(loginAnalytics).recordLogin("AZURE", "oid-7");
+  }
+
+  private CustomOidcUserService service() {
+    SimpleClientHttpRequestFactory http = new SimpleClientHttpRequestFactory();
+    ClientHttpRequestFactory providerClient =
+        (uri, method) -> {
+          requests.add(uri);
+          return http.createRequest(uri, method);
+        };
+    return new CustomOidcUserService(
+        userOnboarding,
+        loginAnalytics,
+        providerClient,
+        new LoginMetrics(new SimpleMeterRegistry(), new LoginMetricsProperties(true)));
+  }
+
+  private OidcUserRequest request() {
+    String base = "http://127.0.0.1:" + server.getAddress().getPort();
+    ClientRegistration registration =
+        ClientRegistration.withRegistrationId("azure")
+            .clientId("test-azure-client-id")
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+            .scope("openid", "profile", "email")
+            .authorizationUri(base + "/authorize")
+            .tokenUri(base + "/token")
+            .userInfoUri(base + "/userinfo")
+            .userNameAttributeName("sub")
+            .build();
+    Instant now = Instant.now();
+    OAuth2AccessToken token =
+        new OAuth2AccessToken(
+            OAuth2AccessToken.TokenType.BEARER,
+            "token",
+            now,
+            now.plusSeconds(60),
+            Set.of("openid", "profile", "email"));
+    OidcIdToken idToken =
+        new OidcIdToken(
+            "id-token",
+            now,
+            now.plusSeconds(60),
+            Map.of("sub", "sub-7", "oid", "oid-7", "name", "User 7"));
+    return new OidcUserRequest(registration, token, idToken);
+  }
+}
@@ -0,0 +1,214 @@
+package com.example.hello.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpServerErrorException;
+
+/** {@link GithubApiGuard} in front of {@link GithubEmailClient}, against a faulty GitHub stub. */
+class GithubApiGuardTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private GithubStub github;
+  private GithubEmailClient client;
+  private GithubApiGuard guard;
+
+  /** The {@code app.github-api} defaults. */
+  static GithubApiProperties defaults() {
+    return new GithubApiProperties(
+        10,
+        1,
+        50,
+        Duration.ofSeconds(1),
+        0.9,
+        20,
+        10,
+        50,
+        Duration.ofSeconds(30),
+        Duration.ofMinutes(1));
+  }
+
+  @BeforeEach
+  void startGithubStub() throws Exception {
+    github = new GithubStub(Duration.ZERO);
+  }
+
+  @AfterEach
+  void stop() {
+    if (client != null) client.close();
+    github.close();
+  }
+
+  @Test
+  void slowResponsesShrinkTheLimitAndFastOnesGrowItBack() {
+    start(
+        new GithubApiProperties(
+            10,
+            1,
+            50,
+            Duration.ofMillis(50),
+            0.5,
+            20,
+            10,
+            50,
+            Duration.ofSeconds(30),
+            Duration.ofMinutes(1)));
+
+    github.emailsLatency = Duration.ofMillis(100);
+    for (int i = 0; i < 4; i++) {
+      client.fetchPrimaryEmail("42", "token");
+    }
+    assertThat(guard.snapshot().limit()).isEqualTo(1); // 10 -> 5 -> 2 -> 1 -> 1
+
+    github.emailsLatency = Duration.ZERO;
+    for (int i = 0; i < 4; i++) {
+      client.fetchPrimaryEmail("42", "token");
+    }
+    // 1 -> 2 -> 3; then a single caller no longer uses half of the limit, so it stays
+    assertThat(guard.snapshot().limit()).isEqualTo(3);
+  }
+
+  @Test
+  void callsBeyondTheLimitAreSkippedInsteadOfQueued() {
+    start(
+        new GithubApiProperties(
+            2,
+            1,
+            2,
+            Duration.ofSeconds(5),
+            0.9,
+            20,
+            10,
+            50,
+            Duration.ofSeconds(30),
+            Duration.ofMinutes(1)));
+    github.emailsLatency = Duration.ofMillis(300);
+
+    List<CompletableFuture<GithubEmailClient.Entry>> fetches = new ArrayList<>();
+    for (int i = 0; i < 6; i++) {
+      fetches.add(client.fetchAsync("token"));
+    }
+    // Skipped fetches complete at once, without a call
+    assertThat(fetches.stream().filter(f -> f.isDone() && f.join() == null)).hasSize(4);
+    fetches.forEach(CompletableFuture::join);
+
+    assertThat(github.emailsCalls).hasValue(2);
+    assertThat(registry.get(GithubApiGuard.REJECTED).tag("reason", "limit").counter().count())
+        .isEqualTo(4);
+  }
+
+  @Test
+  void failuresOpenTheCircuitAndLookupsServeTheCacheUntilATrialSucceeds() throws Exception {
+    start(
+        new GithubApiProperties(
+            10,
+            1,
+            50,
+            Duration.ofSeconds(1),
+            0.9,
+            4,
+            4,
+            50,
+            Duration.ofMillis(300),
+            Duration.ofMinutes(1)));
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("octo@example.com");
+
+    // Three failures after one success: 75% of a full window of four
+    github.emailsStatus = 502;
+    for (int i = 0; i < 3; i++) {
+      assertThatThrownBy(() -> client.fetchPrimaryEmail("42", "token"))
+          .isInstanceOf(HttpServerErrorException.class);
+    }
+    assertThat(guard.snapshot().circuit()).isEqualTo("OPEN");
+
+    int calls = github.emailsCalls.get();
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("octo@example.com");
+    assertThat(client.remember("42", client.fetchAsync("token").join()))
+        .isEqualTo("octo@example.com");
+    assertThat(client.fetchPrimaryEmail("43", "token")).isNull();
+    assertThat(github.emailsCalls).hasValue(calls);
+
+    Thread.sleep(400);
+    github.emailsStatus = 200;
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("octo@example.com");
+    assertThat(guard.snapshot().circuit()).isEqualTo("CLOSED");
+    assertThat(github.emailsCalls).hasValue(calls + 1);
+  }
+
+  @Test
+  void retryAfterOnA403PausesLookups() throws Exception {
+    start(defaults());
+    github.emailsStatus = 403;
+    github.emailsHeaders = Map.of("Retry-After", "1", "X-RateLimit-Remaining", "17");
+
+    assertThatThrownBy(() -> client.fetchPrimaryEmail("42", "token"))
+        .isInstanceOf(HttpClientErrorException.Forbidden.class);
+    assertThat(guard.snapshot().pausedUntil()).isNotNull();
+    assertThat(guard.snapshot().rateLimitRemaining()).isEqualTo(17);
+
+    github.emailsStatus = 200;
+    github.emailsHeaders = Map.of();
+    assertThat(client.fetchPrimaryEmail("42", "token")).isNull();
+    assertThat(github.emailsCalls).hasValue(1);
+    assertThat(
+            registry.get(GithubApiGuard.REJECTED).tag("reason", "rate-limited").counter().count())
+        .isEqualTo(1);
+    // A rate-limit refusal is not an outage
+    assertThat(guard.snapshot().circuit()).isEqualTo("CLOSED");
+
+    Thread.sleep(1100);
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("octo@example.com");
+    assertThat(guard.snapshot().pausedUntil()).isNull();
+  }
+
+  @Test
+  void exhaustedQuotaPausesUntilResetAtMostForTheMaximumPause() {
+    start(
+        new GithubApiProperties(
+            10,
+            1,
+            50,
+            Duration.ofSeconds(1),
+            0.9,
+            20,
+            10,
+            50,
+            Duration.ofSeconds(30),
+            Duration.ofSeconds(5)));
+    long resetInAnHour = System.currentTimeMillis() / 1000 + 3600;
+    github.emailsHeaders =
+        Map.of("X-RateLimit-Remaining", "0", "X-RateLimit-Reset", Long.toString(resetInAnHour));
+
+    // The last allowed call still succeeds
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("octo@example.com");
+
+    assertThat(guard.snapshot().pausedUntil())
+        .isBetween(Instant.now().plusSeconds(4), Instant.now().plusSeconds(5));
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("octo@example.com");
+    assertThat(github.emailsCalls).hasValue(1);
+  }
+
+  private void start(GithubApiProperties properties) {
+    guard = new GithubApiGuard(properties, registry);
+    client =
+        new GithubEmailClient(
+            new SimpleClientHttpRequestFactory(),
+            new GithubEmailProperties(github.baseUrl(), 100, Duration.ofHours(1), true, 8),
+            registry,
+            guard,
+            false);
+  }
+}
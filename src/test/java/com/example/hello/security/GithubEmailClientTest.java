@@ -0,0 +1,121 @@
+package com.example.hello.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+
+class GithubEmailClientTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+
+  private GithubStub github;
+  private GithubEmailClient client;
+
+  @BeforeEach
+  void startGithubStub() throws Exception {
+    github = new GithubStub(Duration.ZERO);
+    client =
+        new GithubEmailClient(
+            new SimpleClientHttpRequestFactory(),
+            new GithubEmailProperties(github.baseUrl() + "/", 100, Duration.ofHours(1), true, 4),
+            registry,
+            new GithubApiGuard(GithubApiGuardTest.defaults(), registry),
+            false);
+  }
+
+  @AfterEach
+  void stopGithubStub() {
+    client.close();
+    github.close();
+  }
+
+  @Test
+  void revalidatesCachedEmailWithIfNoneMatch() {
+    github.emailsBody = "[{\"email\":\"a@example.com\",\"primary\":true,\"verified\":true}]";
+
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("a@example.com");
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("a@example.com");
+
+    assertThat(github.ifNoneMatchSeen).hasSize(2);
+    assertThat(github.ifNoneMatchSeen.get(0)).isNull();
+    assertThat(github.ifNoneMatchSeen.get(1)).isNotNull();
+    assertThat(registry.get("app.github.emails.not-modified").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void changedEmailsReplaceTheCachedEntry() {
+    github.emailsBody = "[{\"email\":\"a@example.com\",\"primary\":true,\"verified\":true}]";
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("a@example.com");
+
+    github.emailsBody = "[{\"email\":\"b@example.com\",\"primary\":true,\"verified\":true}]";
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("b@example.com");
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("b@example.com");
+
+    assertThat(registry.get("app.github.emails.not-modified").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void concurrentFetchRefreshesTheCacheOnceTheUserIsKnown() {
+    GithubEmailClient.Entry fetched = client.fetchAsync("token").join();
+    assertThat(client.remember("42", fetched)).isEqualTo("octo@example.com");
+
+    assertThat(client.fetchPrimaryEmail("42", "token")).isEqualTo("octo@example.com");
+    assertThat(registry.get("app.github.emails.not-modified").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void cacheIsKeyedByGithubUser() {
+    github.emailsBody = "[{\"email\":\"a@example.com\",\"primary\":true,\"verified\":true}]";
+    client.fetchPrimaryEmail("42", "token");
+    client.fetchPrimaryEmail("43", "other-token");
+
+    assertThat(github.ifNoneMatchSeen).containsOnlyNulls();
+  }
+
+  @Test
+  void selectsPrimaryVerifiedEmail() throws Exception {
+    String body =
+        "[{\"email\":\"a@example.com\",\"primary\":false,\"verified\":true},"
+            + "{\"email\":\"b@example.com\",\"primary\":true,\"verified\":true}]";
+    assertThat(GithubEmailClient.selectEmail(stream(body))).isEqualTo("b@example.com");
+  }
+
+  @Test
+  void fallsBackToFirstVerifiedThenFirstListed() throws Exception {
+    String verified =
+        "[{\"email\":\"a@example.com\",\"primary\":true,\"verified\":false},"
+            + "{\"email\":\"b@example.com\",\"primary\":false,\"verified\":true}]";
+    assertThat(GithubEmailClient.selectEmail(stream(verified))).isEqualTo("b@example.com");
+
+    String unverified = "[{\"email\":\"a@example.com\",\"primary\":true,\"verified\":false}]";
+    assertThat(GithubEmailClient.selectEmail(stream(unverified))).isEqualTo("a@example.com");
+  }
+
+  @Test
+  void returnsNullForNonArrayOrEmptyBody() throws Exception {
+    assertThat(GithubEmailClient.selectEmail(stream("[]"))).isNull();
+    assertThat(GithubEmailClient.selectEmail(stream("{\"message\":\"x\"}"))).isNull();
+  }
+
+  @Test
+  void skipsUnknownNestedFieldsAndStopsAtThePrimaryVerifiedEntry() throws Exception {
+    // Anything after the primary verified entry is never read, not even the broken tail
+    String body =
+        "[{\"email\":\"a@example.com\",\"verified\":true,\"meta\":{\"tags\":[1,{\"x\":null}]}},"
+            + "{\"visibility\":null,\"primary\":true,\"verified\":true,\"email\":\"b@example.com\"},"
+            + "{\"email\": <truncated";
+    assertThat(GithubEmailClient.selectEmail(stream(body))).isEqualTo("b@example.com");
+  }
+
+  private static InputStream stream(String body) {
+    return new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8));
+  }
+}
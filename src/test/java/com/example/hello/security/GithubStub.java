@@ -0,0 +1,106 @@
+package com.example.hello.security;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Local stand-in for api.github.com serving {@code /user} and {@code /user/emails}, each after a
+ * configurable delay. {@code /user/emails} carries an ETag derived from its body and answers 304
+ * when {@code If-None-Match} matches. Also used by the JMH benchmarks.
+ *
+ * <p>Faults for {@code /user/emails} can be injected: extra latency, a status to answer with
+ * instead, and rate-limit headers.
+ */
+class GithubStub implements AutoCloseable {
+
+  static {
+    // Without TCP_NODELAY, Nagle + delayed ACK add ~40ms to every response on loopback
+    System.setProperty("sun.net.httpserver.nodelay", "true");
+  }
+
+  private final HttpServer server;
+  private final Duration delay;
+  final List<String> ifNoneMatchSeen = new CopyOnWriteArrayList<>();
+  volatile String userBody =
+      "{\"id\":42,\"login\":\"octocat\",\"name\":\"Octo Cat\",\"email\":null}";
+  volatile String emailsBody =
+      "[{\"email\":\"octo@example.com\",\"primary\":true,\"verified\":true}]";
+  final AtomicInteger emailsCalls = new AtomicInteger();
+  volatile Duration emailsLatency = Duration.ZERO;
+  volatile int emailsStatus = 200; // anything else is sent without a body
+  volatile Map<String, String> emailsHeaders = Map.of(); // e.g. X-RateLimit-Remaining
+
+  GithubStub(Duration delay) throws IOException {
+    this.delay = delay;
+    server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    server.createContext("/user", exchange -> respond(exchange, userBody));
+    server.createContext(
+        "/user/emails",
+        exchange -> {
+          emailsCalls.incrementAndGet();
+          sleep(emailsLatency);
+          emailsHeaders.forEach(exchange.getResponseHeaders()::add);
+          if (emailsStatus != 200) {
+            pause();
+            exchange.sendResponseHeaders(emailsStatus, -1);
+            exchange.close();
+            return;
+          }
+          String body = emailsBody;
+          String etag = "\"" + Integer.toHexString(body.hashCode()) + "\"";
+          String ifNoneMatch = exchange.getRequestHeaders().getFirst("If-None-Match");
+          ifNoneMatchSeen.add(ifNoneMatch);
+          exchange.getResponseHeaders().add("ETag", etag);
+          if (etag.equals(ifNoneMatch)) {
+            pause();
+            exchange.sendResponseHeaders(304, -1);
+            exchange.close();
+          } else {
+            respond(exchange, body);
+          }
+        });
+    server.setExecutor(Executors.newCachedThreadPool());
+    server.start();
+  }
+
+  String baseUrl() {
+    return "http://127.0.0.1:" + server.getAddress().getPort();
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+
+  private void respond(HttpExchange exchange, String body) throws IOException {
+    pause();
+    byte[] bytes = body.getBytes(StandardCharsets.UTF_8);
+    exchange.getResponseHeaders().add("Content-Type", "application/json");
+    exchange.sendResponseHeaders(200, bytes.length);
+    try (OutputStream out = exchange.getResponseBody()) {
+      out.write(bytes);
+    }
+  }
+
+  private void pause() {
+    sleep(delay);
+  }
+
+  private static void sleep(Duration duration) {
+    try {
+      Thread.sleep(duration.toMillis());
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,73 @@
+package com.example.hello.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.hello.load.LoginLoadDriver;
+import com.example.hello.load.OAuthProviderStub;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+/**
+ * Complete Azure (OIDC) logins against {@link OAuthProviderStub}: every login, not only the first
+ * {@code /me}, writes the provider's current profile to the local user.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+class OidcLoginOnboardingTest {
+
+  private static final OAuthProviderStub provider = startProvider();
+
+  @LocalServerPort int port;
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @DynamicPropertySource
+  static void provider(DynamicPropertyRegistry registry) {
+    registry.add(
+        "spring.datasource.url", () -> "jdbc:h2:mem:oidc-login;DB_CLOSE_DELAY=-1;MODE=PostgreSQL");
+    registry.add("app.test-clients.azure-issuer-url", provider::azureIssuer);
+  }
+
+  @AfterAll
+  static void stopProvider() {
+    provider.close();
+  }
+
+  @Test
+  void changedNameIsPersistedOnTheNextLogin() throws Exception {
+    LoginLoadDriver driver = new LoginLoadDriver("http://127.0.0.1:" + port, 1);
+
+    assertThat(driver.run("first", "azure", 1, i -> 7).failures()).isZero();
+    assertThat(displayName()).isEqualTo("User 7");
+
+    provider.renameUser(7, "Renamed User");
+    assertThat(driver.run("second", "azure", 1, i -> 7).failures()).isZero();
+
+    assertThat(displayName()).isEqualTo("Renamed User");
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM app_user WHERE provider = 'AZURE'", Integer.class))
+        .isOne();
+  }
+
+  private String displayName() {
+    return jdbcTemplate.queryForObject(
+        "SELECT display_name FROM app_user WHERE provider = 'AZURE' AND external_id = 'oid-7'",
+        String.class);
+  }
+
+  private static OAuthProviderStub startProvider() {
+    try {
+      return new OAuthProviderStub(Duration.ZERO);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+}
@@ -0,0 +1,240 @@
+package com.example.hello.security;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.hello.load.OAuthProviderStub;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.nimbusds.jose.jwk.JWKMatcher;
+import com.nimbusds.jose.jwk.JWKSelector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.boot.autoconfigure.security.oauth2.client.OAuth2ClientProperties;
+import org.springframework.http.client.ClientHttpRequestFactory;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.security.oauth2.jwt.Jwt;
+
+class OidcProviderCacheTest {
+
+  private static final String CLIENT_ID = "test-azure-client-id";
+
+  @TempDir Path directory;
+
+  private OAuthProviderStub provider;
+  private OidcProviderCache cache;
+
+  @BeforeEach
+  void startProvider() throws Exception {
+    provider = new OAuthProviderStub(Duration.ZERO);
+  }
+
+  @AfterEach
+  void stopProvider() {
+    if (cache != null) cache.close();
+    provider.close();
+  }
+
+  @Test
+  void firstStartFetchesDiscoveryAndKeysAndWritesTheCacheFile() throws Exception {
+    cache = cache(Duration.ofHours(24));
+
+    OidcProviderCache.Entry entry = cache.load(provider.azureIssuer());
+
+    assertThat(entry.metadata("token_endpoint")).endsWith("/azure/oauth2/v2.0/token");
+    assertThat(entry.jwks().getKeyByKeyId(provider.signingKeyId())).isNotNull();
+    assertThat(provider.discoveryRequests()).isEqualTo(1);
+    assertThat(provider.jwksRequests()).isEqualTo(1);
+    try (var files = Files.list(directory)) {
+      assertThat(files).singleElement().asString().endsWith(".json");
+    }
+  }
+
+  @Test
+  void laterStartsUseTheCacheFileWithoutTheProvider() {
+    String issuer = provider.azureIssuer();
+    OidcProviderCache first = cache(Duration.ofHours(24));
+    first.load(issuer);
+    first.close();
+    provider.close();
+
+    cache = cache(Duration.ofHours(24));
+    CachedClientRegistrationRepository registrations =
+        new CachedClientRegistrationRepository(azureClient(issuer), cache);
+
+    ClientRegistration azure = registrations.findByRegistrationId("azure");
+    assertThat(azure.getProviderDetails().getIssuerUri()).isEqualTo(issuer);
+    assertThat(azure.getProviderDetails().getAuthorizationUri())
+        .isEqualTo(issuer.replace("/v2.0", "/oauth2/v2.0/authorize"));
+    assertThat(azure.getProviderDetails().getJwkSetUri()).endsWith("/discovery/v2.0/keys");
+    assertThat(azure.getProviderDetails().getUserInfoEndpoint().getUserNameAttributeName())
+        .isEqualTo("sub");
+    assertThat(azure.getProviderDetails().getConfigurationMetadata()).containsKey("issuer");
+    assertThat(azure.getScopes()).containsExactlyInAnyOrder("openid", "profile", "email");
+  }
+
+  @Test
+  void aBlankIssuerFallsBackToStaticEndpoints() {
+    cache = cache(Duration.ofHours(24));
+    OAuth2ClientProperties properties = azureClient("");
+    properties.getProvider().get("azure").setAuthorizationUri("https://idp.example/authorize");
+    properties.getProvider().get("azure").setTokenUri("https://idp.example/token");
+    properties.getRegistration().get("azure").setAuthorizationGrantType("authorization_code");
+
+    ClientRegistration azure =
+        new CachedClientRegistrationRepository(properties, cache).findByRegistrationId("azure");
+
+    assertThat(azure.getProviderDetails().getIssuerUri()).isNull();
+    assertThat(azure.getProviderDetails().getTokenUri()).isEqualTo("https://idp.example/token");
+    assertThat(provider.discoveryRequests()).isZero();
+  }
+
+  @Test
+  void idTokensSignedWithARotatedKeyRefetchTheKeysOnce() throws Exception {
+    cache = cache(Duration.ofHours(24));
+    CachedClientRegistrationRepository registrations =
+        new CachedClientRegistrationRepository(azureClient(provider.azureIssuer()), cache);
+    var decoder =
+        new CachedIdTokenDecoderFactory(
+                cache, new ProviderIdTokenDecoderFactory(new SimpleClientHttpRequestFactory()))
+            .createDecoder(registrations.findByRegistrationId("azure"));
+
+    Jwt token = decoder.decode(idToken());
+    assertThat(token.getSubject()).isEqualTo("sub-7");
+    assertThat(provider.jwksRequests()).isEqualTo(1);
+
+    String rotated = provider.rotateSigningKey();
+    assertThat(decoder.decode(idToken()).getSubject()).isEqualTo("sub-7");
+    assertThat(provider.jwksRequests()).isEqualTo(2);
+    assertThat(cache.load(provider.azureIssuer()).jwks().getKeyByKeyId(rotated)).isNotNull();
+
+    // Unknown key ids within key-refetch-interval are not refetched again
+    JWKSelector unknown = new JWKSelector(new JWKMatcher.Builder().keyID("unknown").build());
+    assertThat(cache.keySource(provider.azureIssuer()).get(unknown, null)).isEmpty();
+    assertThat(provider.jwksRequests()).isEqualTo(2);
+  }
+
+  @Test
+  void keysOfRegistrationsWithoutAnIssuerAreFetchedThroughTheProviderClient() throws Exception {
+    cache = cache(Duration.ofHours(24));
+    List<URI> requests = new CopyOnWriteArrayList<>();
+    SimpleClientHttpRequestFactory http = new SimpleClientHttpRequestFactory();
+    ClientHttpRequestFactory providerClient =
+        (uri, method) -> {
+          requests.add(uri);
+          return http.createRequest(uri, method);
+        };
+    ClientRegistration azure =
+        ClientRegistration.withRegistrationId("azure")
+            .clientId(CLIENT_ID)
+            .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+            .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+            .authorizationUri(provider.baseUrl() + "/azure/oauth2/v2.0/authorize")
+            .tokenUri(provider.baseUrl() + "/azure/oauth2/v2.0/token")
+            .jwkSetUri(provider.baseUrl() + "/azure/discovery/v2.0/keys")
+            .build();
+
+    Jwt token =
+        new CachedIdTokenDecoderFactory(cache, new ProviderIdTokenDecoderFactory(providerClient))
+            .createDecoder(azure)
+            .decode(idToken());
+
+    assertThat(token.getSubject()).isEqualTo("sub-7");
+    assertThat(requests).singleElement().asString().endsWith("/azure/discovery/v2.0/keys");
+  }
+
+  @Test
+  void staleCopiesAreRefreshedInTheBackground() throws Exception {
+    cache = cache(Duration.ofMillis(200));
+    CountDownLatch refreshed = new CountDownLatch(1);
+    cache.onRefresh(refreshed::countDown);
+
+    cache.load(provider.azureIssuer());
+
+    assertThat(refreshed.await(5, TimeUnit.SECONDS)).isTrue();
+    assertThat(provider.discoveryRequests()).isGreaterThanOrEqualTo(2);
+  }
+
+  @Test
+  void metadataOfAnotherIssuerIsRejected() {
+    cache = cache(Duration.ofHours(24));
+
+    assertThatThrownBy(() -> cache.load(provider.azureIssuer() + "/"))
+        .isInstanceOf(IllegalStateException.class)
+        .hasMessageContaining("did not match the requested issuer");
+  }
+
+  private OidcProviderCache cache(Duration ttl) {
+    return new OidcProviderCache(
+        new SimpleClientHttpRequestFactory(),
+        new OidcProviderCacheProperties(
+            true, directory.toString(), ttl, Duration.ofSeconds(1), Duration.ofHours(1)),
+        new SimpleMeterRegistry());
+  }
+
+  private static OAuth2ClientProperties azureClient(String issuer) {
+    OAuth2ClientProperties properties = new OAuth2ClientProperties();
+    OAuth2ClientProperties.Registration registration = new OAuth2ClientProperties.Registration();
+    registration.setClientId(CLIENT_ID);
+    registration.setClientSecret("test-azure-secret");
+    registration.setProvider("azure");
+    registration.setScope(Set.of("openid", "profile", "email"));
+    registration.setRedirectUri("{baseUrl}/login/oauth2/code/{registrationId}");
+    properties.getRegistration().put("azure", registration);
+    OAuth2ClientProperties.Provider azure = new OAuth2ClientProperties.Provider();
+    azure.setIssuerUri(issuer);
+    properties.getProvider().put("azure", azure);
+    return properties;
+  }
+
+  /** An ID token for provider user 7, obtained through the stub's authorize and token endpoints. */
+  private String idToken() throws Exception {
+    // A client per request: the stub server may close a kept-alive connection as it is reused
+    String base = provider.baseUrl() + "/azure/oauth2/v2.0";
+    String location =
+        HttpClient.newHttpClient()
+            .send(
+                HttpRequest.newBuilder(
+                        URI.create(
+                            base
+                                + "/authorize?client_id="
+                                + CLIENT_ID
+                                + "&redirect_uri=http://localhost/cb&login_hint=user-7"))
+                    .build(),
+                HttpResponse.BodyHandlers.discarding())
+            .headers()
+            .firstValue("Location")
+            .orElseThrow();
+    String code = location.substring(location.indexOf("code=") + 5, location.indexOf('&'));
+    String body =
+        HttpClient.newHttpClient()
+            .send(
+                HttpRequest.newBuilder(URI.create(base + "/token"))
+                    .header("Content-Type", "application/x-www-form-urlencoded")
+                    .POST(
+                        HttpRequest.BodyPublishers.ofString(
+                            "grant_type=authorization_code&code=" + URLEncoder.encode(code, UTF_8)))
+                    .build(),
+                HttpResponse.BodyHandlers.ofString())
+            .body();
+    return new ObjectMapper().readTree(body).get("id_token").asText();
+  }
+}
@@ -0,0 +1,36 @@
+package com.example.hello.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import org.junit.jupiter.api.Test;
+
+class ProviderProfileFingerprintTest {
+
+  @Test
+  void coversTheProfileColumnsButNotTheKey() {
+    ProviderProfile profile = profile("octocat", "The Octocat", "octo@example.com", null);
+
+    assertThat(profile.fingerprint())
+        .isEqualTo(profile("octocat", "The Octocat", "octo@example.com", null).fingerprint());
+    assertThat(
+            new ProviderProfile(
+                    "AZURE", "other", "octocat", "The Octocat", "octo@example.com", null)
+                .fingerprint())
+        .isEqualTo(profile.fingerprint());
+    assertThat(profile("octocat", "The Octocat", "octo@example.com", "https://a").fingerprint())
+        .isNotEqualTo(profile.fingerprint());
+  }
+
+  @Test
+  void distinguishesNullEmptyAndShiftedValues() {
+    assertThat(profile("a", null, null, null).fingerprint())
+        .isNotEqualTo(profile("a", "", null, null).fingerprint());
+    assertThat(profile("ab", "c", null, null).fingerprint())
+        .isNotEqualTo(profile("a", "bc", null, null).fingerprint());
+  }
+
+  private static ProviderProfile profile(
+      String username, String displayName, String email, String avatarUrl) {
+    return new ProviderProfile("GITHUB", "1", username, displayName, email, avatarUrl);
+  }
+}
@@ -0,0 +1,63 @@
+package com.example.hello.security;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+
+class SessionCookieCodecTest {
+
+  private final SessionCookieCodec codec = new SessionCookieCodec(new byte[32]);
+
+  @Test
+  void sealedValuesRoundTripAndDifferEachTime() {
+    byte[] plaintext = "hello".getBytes(StandardCharsets.UTF_8);
+
+    String first = codec.seal(plaintext, "test");
+    String second = codec.seal(plaintext, "test");
+
+    assertThat(first).isNotEqualTo(second);
+    assertThat(codec.open(first, "test")).isEqualTo(plaintext);
+  }
+
+  @Test
+  void rejectsTamperedForeignOrMalformedValues() {
+    String sealed = codec.seal("hello".getBytes(StandardCharsets.UTF_8), "test");
+    assertThat(codec.open(tamper(sealed), "test")).isNull();
+    assertThat(codec.open(sealed, "other-purpose")).isNull();
+    assertThat(new SessionCookieCodec(new byte[16]).open(sealed, "test")).isNull();
+    assertThat(codec.open("not base64!", "test")).isNull();
+    assertThat(codec.open("", "test")).isNull();
+  }
+
+  /** Flips one character in the middle, well inside the ciphertext. */
+  static String tamper(String sealed) {
+    int i = sealed.length() / 2;
+    char c = sealed.charAt(i);
+    return sealed.substring(0, i) + (c == 'A' ? 'B' : 'A') + sealed.substring(i + 1);
+  }
+
+  @Test
+  void requiresAKeyOfAnAesSize() {
+    assertThatThrownBy(() -> new SessionCookieCodec(new byte[20]))
+        .isInstanceOf(IllegalArgumentException.class);
+    assertThatThrownBy(() -> SessionCookieCodec.fromBase64(""))
+        .isInstanceOf(IllegalStateException.class);
+  }
+
+  @Test
+  void sessionUserRoundTripsThroughItsBinaryForm() {
+    SessionUser user =
+        new SessionUser(
+            "github",
+            UUID.randomUUID(),
+            new ProviderProfile("GITHUB", "42", "octocat", "Octo Cat", null, "https://a/x.png"),
+            Instant.ofEpochSecond(1_900_000_000L));
+
+    assertThat(SessionUser.fromBytes(user.toBytes())).isEqualTo(user);
+    assertThat(SessionUser.fromBytes(new byte[] {9})).isNull();
+  }
+}
@@ -0,0 +1,174 @@
+package com.example.hello.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.util.unit.DataSize;
+
+/** {@link AvatarCache} against a local image host serving {@code /<name>} with a fixed size. */
+class AvatarCacheTest {
+
+  private static final int IMAGE_SIZE = 10_000;
+
+  @TempDir Path directory;
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final AtomicInteger fetches = new AtomicInteger();
+  private volatile String contentType = "image/png";
+  private HttpServer images;
+
+  @BeforeEach
+  void startImageHost() throws IOException {
+    images = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+    images.createContext(
+        "/",
+        exchange -> {
+          fetches.incrementAndGet();
+          sleep(100); // long enough for concurrent misses to overlap
+          byte[] body = new byte[IMAGE_SIZE];
+          body[0] = (byte) exchange.getRequestURI().getPath().hashCode();
+          exchange.getResponseHeaders().add("Content-Type", contentType);
+          exchange.sendResponseHeaders(200, body.length);
+          try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+          }
+        });
+    images.setExecutor(Executors.newCachedThreadPool());
+    images.start();
+  }
+
+  @AfterEach
+  void stopImageHost() {
+    images.stop(0);
+  }
+
+  @Test
+  void concurrentMissesShareOneFetch() throws Exception {
+    AvatarCache cache = cache(DataSize.ofMegabytes(1));
+    ExecutorService pool = Executors.newFixedThreadPool(20);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<Optional<AvatarCache.Avatar>>> gets = new ArrayList<>();
+      for (int i = 0; i < 20; i++) {
+        gets.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  return cache.get(url("a"));
+                }));
+      }
+      start.countDown();
+      for (Future<Optional<AvatarCache.Avatar>> get : gets) {
+        assertThat(get.get()).get().extracting(AvatarCache.Avatar::size).isEqualTo(10_000L);
+      }
+    } finally {
+      pool.shutdownNow();
+    }
+    assertThat(fetches).hasValue(1);
+    assertThat(cache.get(url("a"))).isPresent();
+    assertThat(fetches).hasValue(1);
+  }
+
+  @Test
+  void evictsTheLeastRecentlyUsedFileBeyondTheSizeBound() {
+    AvatarCache cache = cache(DataSize.ofBytes(2 * IMAGE_SIZE + IMAGE_SIZE / 2));
+    Path a = cache.get(url("a")).orElseThrow().file();
+    Path b = cache.get(url("b")).orElseThrow().file();
+    cache.get(url("a")); // a is now more recent than b
+
+    Path c = cache.get(url("c")).orElseThrow().file();
+
+    assertThat(a).exists();
+    assertThat(b).doesNotExist();
+    assertThat(c).exists();
+    assertThat(registry.get("app.avatar.cache.evictions").counter().count()).isOne();
+    assertThat(registry.get("app.avatar.cache.size").gauge().value()).isEqualTo(2 * IMAGE_SIZE);
+  }
+
+  @Test
+  void aNewInstanceServesTheFilesOnDisk() {
+    cache(DataSize.ofMegabytes(1)).get(url("a"));
+
+    AvatarCache restarted = cache(DataSize.ofMegabytes(1));
+
+    assertThat(restarted.get(url("a"))).isPresent();
+    assertThat(fetches).hasValue(1);
+  }
+
+  @Test
+  void onlyImagesFromAllowedHostsAreFetched() {
+    AvatarCache cache = cache(DataSize.ofMegabytes(1));
+
+    assertThat(cache.proxies("http://example.com/a.png")).isFalse();
+    assertThat(cache.get("http://example.com/a.png")).isEmpty();
+    assertThat(cache.get("file:///etc/passwd")).isEmpty();
+
+    contentType = "image/svg+xml";
+    assertThat(cache.get(url("svg"))).isEmpty();
+    // The failure is remembered for failure-ttl
+    contentType = "image/png";
+    assertThat(cache.get(url("svg"))).isEmpty();
+    assertThat(fetches).hasValue(1);
+    assertThat(directory).isEmptyDirectory();
+  }
+
+  @Test
+  void imagesOverTheSizeLimitAreNotKept() {
+    AvatarCache cache =
+        new AvatarCache(
+            new SimpleClientHttpRequestFactory(),
+            new AvatarCacheProperties(
+                directory.toString(),
+                DataSize.ofMegabytes(1),
+                DataSize.ofBytes(IMAGE_SIZE - 1),
+                List.of("127.0.0.1"),
+                Duration.ofMinutes(1)),
+            registry);
+
+    assertThat(cache.get(url("big"))).isEmpty();
+    assertThat(directory).isEmptyDirectory();
+  }
+
+  private AvatarCache cache(DataSize maximumSize) {
+    return new AvatarCache(
+        new SimpleClientHttpRequestFactory(),
+        new AvatarCacheProperties(
+            directory.toString(),
+            maximumSize,
+            DataSize.ofMegabytes(1),
+            List.of("127.0.0.1"),
+            Duration.ofMinutes(1)),
+        registry);
+  }
+
+  private String url(String name) {
+    return "http://127.0.0.1:" + images.getAddress().getPort() + "/" + name;
+  }
+
+  private static void sleep(long millis) {
+    try {
+      Thread.sleep(millis);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+}
@@ -0,0 +1,61 @@
+package com.example.hello.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+class HyperLogLogTest {
+
+  @Test
+  void estimatesWithinAFewPercent() {
+    for (int n : new int[] {10, 1_000, 100_000, 1_000_000}) {
+      HyperLogLog sketch = new HyperLogLog();
+      for (int i = 0; i < n; i++) {
+        sketch.add(HyperLogLog.hash("GITHUB:" + i));
+      }
+      assertThat((double) HyperLogLog.estimate(List.of(sketch)))
+          .as("%d users", n)
+          .isCloseTo(n, within(Math.max(1, n * 0.03)));
+    }
+  }
+
+  @Test
+  void repeatedUsersAreCountedOnce() {
+    HyperLogLog sketch = new HyperLogLog();
+    int changed = 0;
+    for (int round = 0; round < 10; round++) {
+      for (int i = 0; i < 1_000; i++) {
+        if (sketch.add(HyperLogLog.hash("GITHUB:" + i))) changed++;
+      }
+    }
+
+    assertThat((double) HyperLogLog.estimate(List.of(sketch))).isCloseTo(1_000, within(30.0));
+    // Only the first round raised registers
+    assertThat(changed).isLessThanOrEqualTo(1_000);
+  }
+
+  @Test
+  void unionOfSketchesCountsOverlapOnce() {
+    HyperLogLog monday = new HyperLogLog();
+    HyperLogLog tuesday = new HyperLogLog();
+    for (int i = 0; i < 20_000; i++) monday.add(HyperLogLog.hash("GITHUB:" + i));
+    for (int i = 10_000; i < 30_000; i++) tuesday.add(HyperLogLog.hash("GITHUB:" + i));
+
+    assertThat((double) HyperLogLog.estimate(List.of(monday, tuesday)))
+        .isCloseTo(30_000, within(900.0));
+
+    HyperLogLog merged = new HyperLogLog();
+    merged.merge(monday.toBytes());
+    merged.merge(tuesday.toBytes());
+    assertThat(HyperLogLog.estimate(List.of(merged)))
+        .isEqualTo(HyperLogLog.estimate(List.of(monday, tuesday)));
+  }
+
+  @Test
+  void emptySketchEstimatesZero() {
+    assertThat(HyperLogLog.estimate(List.of(new HyperLogLog()))).isZero();
+    assertThat(HyperLogLog.estimate(List.of())).isZero();
+  }
+}
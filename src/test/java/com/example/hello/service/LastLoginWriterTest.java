@@ -0,0 +1,127 @@
+package com.example.hello.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.UUID;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.JdbcTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+@JdbcTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED) // the writer flushes on its own thread
+class LastLoginWriterTest {
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private LastLoginWriter writer;
+
+  @AfterEach
+  void close() {
+    if (writer != null) writer.close();
+  }
+
+  @Test
+  void coalescesRepeatedLoginsIntoOneRowUpdate() {
+    writer = writer(500, Duration.ofHours(1), 100, Duration.ZERO);
+    UUID id = insertUser("coalesce");
+    Instant t1 = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    Instant t3 = t1.plusSeconds(3);
+
+    writer.record(id, t1);
+    writer.record(id, t3);
+    writer.record(id, t1.plusSeconds(1));
+    writer.flush();
+
+    assertThat(lastLoginOf(id)).isEqualTo(t3);
+    assertThat(registry.get("app.lastlogin.batch.size").summary().totalAmount()).isEqualTo(1.0);
+    assertThat(registry.get("app.lastlogin.coalesced").counter().count()).isEqualTo(2.0);
+    assertThat(registry.get("app.lastlogin.queue.depth").gauge().value()).isZero();
+  }
+
+  @Test
+  void fullBatchIsFlushedWithoutWaitingForTheTimer() throws InterruptedException {
+    writer = writer(2, Duration.ofHours(1), 100, Duration.ZERO);
+    UUID a = insertUser("batch-a");
+    UUID b = insertUser("batch-b");
+    Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    writer.record(a, now);
+    writer.record(b, now);
+
+    long deadline = System.nanoTime() + Duration.ofSeconds(5).toNanos();
+    while (lastLoginOf(b) == null && System.nanoTime() < deadline) {
+      Thread.sleep(10);
+    }
+    assertThat(lastLoginOf(a)).isEqualTo(now);
+    assertThat(lastLoginOf(b)).isEqualTo(now);
+  }
+
+  @Test
+  void fullQueueFallsBackToInlineWrite() {
+    writer = writer(500, Duration.ofHours(1), 1, Duration.ZERO);
+    UUID queued = insertUser("queued");
+    UUID inline = insertUser("inline");
+    Instant now = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    writer.record(queued, now);
+    writer.record(inline, now);
+
+    assertThat(lastLoginOf(queued)).isNull();
+    assertThat(lastLoginOf(inline)).isEqualTo(now);
+    assertThat(registry.get("app.lastlogin.overflow").counter().count()).isEqualTo(1.0);
+  }
+
+  @Test
+  void olderTimestampNeverOverwritesNewerOne() {
+    writer = writer(500, Duration.ofHours(1), 100, Duration.ZERO);
+    UUID id = insertUser("ordering");
+    Instant newer = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+
+    writer.record(id, newer);
+    writer.flush();
+    writer.record(id, newer.minusSeconds(60));
+    writer.flush();
+
+    assertThat(lastLoginOf(id)).isEqualTo(newer);
+  }
+
+  private LastLoginWriter writer(
+      int batchSize, Duration interval, int capacity, Duration offerTimeout) {
+    return new LastLoginWriter(
+        jdbcTemplate,
+        new LastLoginProperties(batchSize, interval, capacity, offerTimeout),
+        registry);
+  }
+
+  private UUID insertUser(String externalId) {
+    UUID id = UUID.randomUUID();
+    OffsetDateTime now = OffsetDateTime.now(ZoneOffset.UTC);
+    jdbcTemplate.update(
+        "INSERT INTO app_user (id, provider, external_id, username, created_at, updated_at)"
+            + " VALUES (?, 'GITHUB', ?, ?, ?, ?)",
+        id,
+        externalId,
+        externalId,
+        now,
+        now);
+    return id;
+  }
+
+  private Instant lastLoginOf(UUID id) {
+    OffsetDateTime at =
+        jdbcTemplate.queryForObject(
+            "SELECT last_login_at FROM app_user WHERE id = ?", OffsetDateTime.class, id);
+    return at == null ? null : at.toInstant();
+  }
+}
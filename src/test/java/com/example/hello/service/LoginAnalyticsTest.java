@@ -0,0 +1,214 @@
+package com.example.hello.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+import com.example.hello.repository.LoginSketchRepository;
+import com.example.hello.service.LoginAnalytics.ActiveUsers;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+
+/**
+ * Instances are created by hand on a settable clock, each standing in for one node or one run of
+ * the application, against the shared test database.
+ */
+@SpringBootTest
+class LoginAnalyticsTest {
+
+  private static final Instant NOON = Instant.parse("2026-03-15T12:00:00Z");
+
+  @Autowired LoginSketchRepository repository;
+  @Autowired PlatformTransactionManager transactionManager;
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  private final SettableClock clock = new SettableClock(NOON);
+  private final List<LoginAnalytics> nodes = new ArrayList<>();
+
+  @BeforeEach
+  @AfterEach
+  void clean() {
+    nodes.forEach(LoginAnalytics::close);
+    nodes.clear();
+    jdbcTemplate.update("DELETE FROM login_sketch WHERE provider LIKE 'TEST-%'");
+  }
+
+  @Test
+  void countsDailyWeeklyAndMonthlyActives() {
+    LoginAnalytics analytics = node();
+    clock.set(NOON.minus(Duration.ofDays(20)));
+    logins(analytics, "TEST-A", 0, 3_000);
+    clock.set(NOON.minus(Duration.ofDays(3)));
+    logins(analytics, "TEST-A", 2_000, 4_000);
+    clock.set(NOON);
+    logins(analytics, "TEST-A", 3_500, 4_500);
+    logins(analytics, "TEST-A", 3_500, 4_500);
+
+    ActiveUsers users = analytics.activeUsers().providers().get("TEST-A");
+    assertThat((double) users.daily()).isCloseTo(1_000, within(30.0));
+    assertThat((double) users.weekly()).isCloseTo(2_500, within(75.0));
+    assertThat((double) users.monthly()).isCloseTo(4_500, within(135.0));
+  }
+
+  @Test
+  void snapshotsSurviveARestart() {
+    LoginAnalytics before = node();
+    logins(before, "TEST-B", 0, 2_000);
+    before.snapshot();
+    long daily = before.activeUsers().providers().get("TEST-B").daily();
+
+    LoginAnalytics after = node();
+
+    ActiveUsers restored = after.activeUsers().providers().get("TEST-B");
+    assertThat(restored.daily()).isEqualTo(daily);
+    assertThat(restored.loginsSinceStart()).isZero();
+  }
+
+  @Test
+  void nodesMergeTheirSketchesIntoOneRow() {
+    LoginAnalytics first = node();
+    LoginAnalytics second = node();
+    logins(first, "TEST-C", 0, 2_000);
+    logins(second, "TEST-C", 1_000, 3_000);
+
+    first.snapshot();
+    second.snapshot();
+    first.snapshot();
+
+    for (LoginAnalytics node : List.of(first, second)) {
+      assertThat((double) node.activeUsers().providers().get("TEST-C").daily())
+          .isCloseTo(3_000, within(90.0));
+    }
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM login_sketch WHERE provider = 'TEST-C'", Integer.class))
+        .isOne();
+  }
+
+  @Test
+  void dropsDaysPastTheRetention() {
+    LoginAnalytics analytics = node();
+    clock.set(NOON.minus(Duration.ofDays(40)));
+    logins(analytics, "TEST-D", 0, 100);
+    analytics.snapshot();
+
+    clock.set(NOON);
+    analytics.snapshot();
+
+    assertThat(analytics.activeUsers().providers().get("TEST-D").monthly()).isZero();
+    assertThat(
+            jdbcTemplate.queryForObject(
+                "SELECT count(*) FROM login_sketch WHERE provider = 'TEST-D'", Integer.class))
+        .isZero();
+  }
+
+  @Test
+  void loginRatesCoverTheLastMinuteAndHour() {
+    LoginAnalytics analytics = node();
+    logins(analytics, "TEST-E", 0, 3);
+    clock.set(NOON.plus(Duration.ofMinutes(1)));
+    logins(analytics, "TEST-E", 0, 2);
+
+    ActiveUsers users = analytics.activeUsers().providers().get("TEST-E");
+    assertThat(users.loginsLastMinute()).isEqualTo(2);
+    assertThat(users.loginsLastHour()).isEqualTo(5);
+
+    clock.set(NOON.plus(Duration.ofMinutes(61)));
+    users = analytics.activeUsers().providers().get("TEST-E");
+    assertThat(users.loginsLastHour()).isZero();
+    assertThat(users.loginsSinceStart()).isEqualTo(5);
+  }
+
+  @Test
+  void concurrentLoginsAreAllCounted() throws Exception {
+    LoginAnalytics analytics = node();
+    int threads = 8;
+    int perThread = 20_000;
+    ExecutorService pool = Executors.newFixedThreadPool(threads);
+    CountDownLatch start = new CountDownLatch(1);
+    try {
+      List<Future<?>> results = new ArrayList<>();
+      for (int t = 0; t < threads; t++) {
+        results.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  for (int i = 0; i < perThread; i++) {
+                    analytics.recordLogin("TEST-F", "user-" + i % 10_000);
+                  }
+                  return null;
+                }));
+      }
+      start.countDown();
+      for (Future<?> result : results) result.get();
+    } finally {
+      pool.shutdownNow();
+    }
+
+    ActiveUsers users = analytics.activeUsers().providers().get("TEST-F");
+    assertThat(users.loginsSinceStart()).isEqualTo((long) threads * perThread);
+    assertThat(users.loginsLastMinute()).isEqualTo((long) threads * perThread);
+    assertThat((double) users.daily()).isCloseTo(10_000, within(300.0));
+  }
+
+  private LoginAnalytics node() {
+    LoginAnalytics node =
+        new LoginAnalytics(
+            repository,
+            transactionManager,
+            new LoginAnalyticsProperties(Duration.ofHours(1), Duration.ofDays(35)),
+            new SimpleMeterRegistry(),
+            clock);
+    nodes.add(node);
+    return node;
+  }
+
+  private static void logins(LoginAnalytics analytics, String provider, int from, int to) {
+    for (int i = from; i < to; i++) {
+      analytics.recordLogin(provider, "user-" + i);
+    }
+  }
+
+  private static final class SettableClock extends Clock {
+    private volatile Instant now;
+
+    SettableClock(Instant now) {
+      this.now = now;
+    }
+
+    void set(Instant now) {
+      this.now = now;
+    }
+
+    @Override
+    public Instant instant() {
+      return now;
+    }
+
+    @Override
+    public ZoneId getZone() {
+      return ZoneOffset.UTC;
+    }
+
+    @Override
+    public Clock withZone(ZoneId zone) {
+      throw new UnsupportedOperationException();
+    }
+  }
+}
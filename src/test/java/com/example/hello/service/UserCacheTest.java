@@ -0,0 +1,94 @@
+package com.example.hello.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.hello.domain.User;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+class UserCacheTest {
+
+  private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+  private final UserCache cache =
+      new UserCache(new UserCacheProperties(100, Duration.ofMinutes(5)), registry);
+
+  @Test
+  void missIsLoadedOnceThenServedFromCache() {
+    AtomicInteger loads = new AtomicInteger();
+    User loaded = user("GITHUB", "1");
+
+    User first =
+        cache.get(
+            "GITHUB",
+            "1",
+            k -> {
+              loads.incrementAndGet();
+              return loaded;
+            });
+    User second =
+        cache.get(
+            "GITHUB",
+            "1",
+            k -> {
+              loads.incrementAndGet();
+              return loaded;
+            });
+
+    assertThat(first).isSameAs(loaded);
+    assertThat(second).isSameAs(loaded);
+    assertThat(loads).hasValue(1);
+    assertThat(
+            registry
+                .get("cache.gets")
+                .tag("cache", "users")
+                .tag("result", "hit")
+                .functionCounter()
+                .count())
+        .isEqualTo(1.0);
+    assertThat(
+            registry
+                .get("cache.gets")
+                .tag("cache", "users")
+                .tag("result", "miss")
+                .functionCounter()
+                .count())
+        .isEqualTo(1.0);
+  }
+
+  @Test
+  void absentUsersAreNotCached() {
+    AtomicInteger loads = new AtomicInteger();
+    for (int i = 0; i < 3; i++) {
+      User u =
+          cache.get(
+              "AZURE",
+              "missing",
+              k -> {
+                loads.incrementAndGet();
+                return null;
+              });
+      assertThat(u).isNull();
+    }
+    assertThat(loads).hasValue(3);
+  }
+
+  @Test
+  void putAfterCommitWithoutTransactionPutsImmediately() {
+    User u = user("AZURE", "abc");
+    cache.putAfterCommit(u);
+    assertThat(cache.get("AZURE", "abc", k -> null)).isSameAs(u);
+
+    cache.evict("AZURE", "abc");
+    assertThat(cache.get("AZURE", "abc", k -> null)).isNull();
+  }
+
+  private static User user(String provider, String externalId) {
+    User u = new User();
+    u.setProvider(provider);
+    u.setExternalId(externalId);
+    u.setUsername(externalId);
+    return u;
+  }
+}
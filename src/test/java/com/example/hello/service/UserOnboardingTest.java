@@ -0,0 +1,94 @@
+package com.example.hello.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+import com.example.hello.domain.User;
+import com.example.hello.security.ProviderProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.IntFunction;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+/** Simultaneous first logins of one provider user, released together from a latch. */
+@SpringBootTest
+class UserOnboardingTest {
+
+  private static final int LOGINS = 200;
+
+  @Autowired UserOnboarding userOnboarding;
+  @Autowired JdbcTemplate jdbcTemplate;
+  @Autowired MeterRegistry meterRegistry;
+
+  @Test
+  void identicalLoginsShareOneUpsert() throws Exception {
+    double shared = meterRegistry.counter("app.user.upsert.shared").count();
+
+    List<User> users = loginConcurrently(i -> profile("onboard-same", "Octo"));
+
+    assertThat(ids(users)).hasSize(1);
+    assertThat(rows("onboard-same")).isOne();
+    assertThat(meterRegistry.counter("app.user.upsert.shared").count()).isGreaterThan(shared);
+  }
+
+  @Test
+  void differingProfilesOfOneUserAllSucceed() throws Exception {
+    // Logins with the other profile do not take the first one's result; they write their own
+    List<User> users = loginConcurrently(i -> profile("onboard-race", "Octo " + (i % 2)));
+
+    assertThat(ids(users)).hasSize(1);
+    assertThat(rows("onboard-race")).isOne();
+    for (int i = 0; i < LOGINS; i++) {
+      assertThat(users.get(i).getDisplayName()).isEqualTo("Octo " + (i % 2));
+    }
+  }
+
+  /** The user each login returned, in the order of {@code profiles}. */
+  private List<User> loginConcurrently(IntFunction<ProviderProfile> profiles) throws Exception {
+    ExecutorService pool = Executors.newFixedThreadPool(LOGINS);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<User>> logins = new ArrayList<>();
+      for (int i = 0; i < LOGINS; i++) {
+        ProviderProfile profile = profiles.apply(i);
+        logins.add(
+            pool.submit(
+                () -> {
+                  start.await();
+                  return userOnboarding.onboard(profile);
+                }));
+      }
+      start.countDown();
+      List<User> users = new ArrayList<>();
+      for (Future<User> login : logins) {
+        users.add(login.get());
+      }
+      return users;
+    } finally {
+      pool.shutdownNow();
+    }
+  }
+
+  private static Set<UUID> ids(List<User> users) {
+    return users.stream().map(User::getId).collect(Collectors.toSet());
+  }
+
+  private int rows(String externalId) {
+    return jdbcTemplate.queryForObject(
+        "SELECT count(*) FROM app_user WHERE external_id = ?", Integer.class, externalId);
+  }
+
+  private static ProviderProfile profile(String externalId, String displayName) {
+    return new ProviderProfile("GITHUB", externalId, externalId, displayName, null, null);
+  }
+}
@@ -0,0 +1,110 @@
+package com.example.hello.service;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+import com.example.hello.config.HibernateCacheConfig;
+import com.example.hello.config.HibernateCacheProperties;
+import com.example.hello.domain.User;
+import com.example.hello.repository.UserRepository;
+import com.example.hello.repository.UserUpsertRepository;
+import com.example.hello.security.ProviderProfile;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import java.util.stream.Stream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+/** Bulk onboarding in chunks of two, each chunk committed on its own. */
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@Import({
+  UserService.class,
+  UserUpsertRepository.class,
+  UserCache.class,
+  LastLoginWriter.class,
+  SimpleMeterRegistry.class,
+  HibernateCacheConfig.class
+})
+@EnableConfigurationProperties({
+  UserCacheProperties.class,
+  LastLoginProperties.class,
+  UserUpsertProperties.class,
+  HibernateCacheProperties.class
+})
+@TestPropertySource(properties = "app.user-upsert.bulk-chunk-size=2")
+class UserServiceBulkUpsertTest {
+
+  @Autowired UserRepository userRepository;
+  @Autowired UserService userService;
+
+  @Test
+  void countsCreatedUpdatedUnchangedAndDuplicateProfiles() {
+    userService.getOrCreateFromProviderProfile(profile("bulk-1", "Same"));
+    userService.getOrCreateFromProviderProfile(profile("bulk-2", "Before"));
+    User cached = userService.findCached(profile("bulk-2", "Before")).orElseThrow();
+
+    UserService.BulkUpsertResult result =
+        userService.bulkUpsert(
+            Stream.of(
+                profile("bulk-1", "Same"),
+                profile("bulk-2", "After"),
+                profile("bulk-3", "New"),
+                profile("bulk-3", "Newer"), // same chunk as the first bulk-3: replaces it
+                profile("bulk-4", "New")));
+
+    assertThat(result).isEqualTo(new UserService.BulkUpsertResult(2, 1, 1, 1, 2));
+    User created = userRepository.findByProviderAndExternalId("GITHUB", "bulk-3").orElseThrow();
+    assertThat(created.getDisplayName()).isEqualTo("Newer");
+    assertThat(created.getId()).isNotNull();
+    assertThat(created.getLastLoginAt()).isNull();
+    assertThat(userRepository.findByProviderAndExternalId("GITHUB", "bulk-2"))
+        .get()
+        .extracting(User::getDisplayName)
+        .isEqualTo("After");
+    // The updated user was evicted, so the next read sees the new profile
+    assertThat(userService.findCached(profile("bulk-2", "After")).orElseThrow())
+        .isNotSameAs(cached)
+        .extracting(User::getDisplayName)
+        .isEqualTo("After");
+  }
+
+  @Test
+  void runningTheSameInputAgainChangesNothing() {
+    userService.bulkUpsert(Stream.of(profile("again-1", "A"), profile("again-2", "B")));
+
+    UserService.BulkUpsertResult again =
+        userService.bulkUpsert(Stream.of(profile("again-1", "A"), profile("again-2", "B")));
+
+    assertThat(again).isEqualTo(new UserService.BulkUpsertResult(0, 0, 2, 0, 1));
+  }
+
+  @Test
+  void chunksBeforeAFailingOneStayCommitted() {
+    ProviderProfile invalid = new ProviderProfile("GITHUB", "fail-3", null, null, null, null);
+
+    assertThatThrownBy(
+            () ->
+                userService.bulkUpsert(
+                    Stream.of(
+                        profile("fail-1", "One"),
+                        profile("fail-2", "Two"),
+                        invalid,
+                        profile("fail-4", "Four"))))
+        .isInstanceOf(DataIntegrityViolationException.class);
+
+    assertThat(userRepository.findByProviderAndExternalId("GITHUB", "fail-2")).isPresent();
+    assertThat(userRepository.findByProviderAndExternalId("GITHUB", "fail-4")).isEmpty();
+  }
+
+  private static ProviderProfile profile(String externalId, String displayName) {
+    return new ProviderProfile(
+        "GITHUB", externalId, "user-" + externalId, displayName, externalId + "@example.com", null);
+  }
+}
@@ -0,0 +1,7 @@
+package com.example.hello.service;
+
+import org.springframework.test.context.TestPropertySource;
+
+/** Runs the UserService scenarios against the native upsert path. */
+@TestPropertySource(properties = "app.user-upsert.mode=native")
+class UserServiceNativeUpsertTest extends UserServiceTest {}
@@ -2,23 +2,50 @@ package com.example.hello.service;
 
 import static org.assertj.core.api.Assertions.assertThat;
 
+import com.example.hello.config.HibernateCacheConfig;
+import com.example.hello.config.HibernateCacheProperties;
 import com.example.hello.domain.User;
 import com.example.hello.repository.UserRepository;
+import com.example.hello.repository.UserUpsertRepository;
 import com.example.hello.security.ProviderProfile;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.persistence.EntityManager;
 import java.time.Instant;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
 
 @DataJpaTest
-@Import(UserService.class)
+@Import({
+  UserService.class,
+  UserUpsertRepository.class,
+  UserCache.class,
+  LastLoginWriter.class,
+  SimpleMeterRegistry.class,
+  HibernateCacheConfig.class
+})
+@EnableConfigurationProperties({
+  UserCacheProperties.class,
+  LastLoginProperties.class,
+  UserUpsertProperties.class,
+  HibernateCacheProperties.class
+})
 class UserServiceTest {
 
   @Autowired UserRepository userRepository;
 
   @Autowired UserService userService;
 
+  @Autowired MeterRegistry meterRegistry;
+
+  @Autowired JdbcTemplate jdbcTemplate;
+
+  @Autowired EntityManager entityManager;
+
   @Test
   void createsNewUserAndSetsTimestamps() {
     ProviderProfile profile =
@@ -59,4 +86,52 @@ class UserServiceTest {
     assertThat(updated.getLastLoginAt()).isAfter(firstLogin);
     assertThat(updated.getUpdatedAt()).isAfterOrEqualTo(created.getUpdatedAt());
   }
+
+  @Test
+  void findCachedNeverOnboardsUnknownUsers() {
+    ProviderProfile profile = new ProviderProfile("GITHUB", "404", "ghost", null, null, null);
+    assertThat(userService.findCached(profile)).isEmpty();
+    assertThat(userRepository.findByProviderAndExternalId("GITHUB", "404")).isEmpty();
+  }
+
+  @Test
+  void findCachedServesRepeatedReadsFromCache() {
+    ProviderProfile profile =
+        new ProviderProfile("GITHUB", "7", "cached", "Cached User", null, null);
+    userService.getOrCreateFromProviderProfile(profile);
+
+    User first = userService.findCached(profile).orElseThrow();
+    User second = userService.findCached(profile).orElseThrow();
+    assertThat(second).isSameAs(first);
+  }
+
+  @Test
+  void profileChangesAreDecidedByTheStoredFingerprint() {
+    ProviderProfile profile =
+        new ProviderProfile("GITHUB", "hash-1", "hasher", "Hash One", null, null);
+    userService.getOrCreateFromProviderProfile(profile);
+    assertThat(storedHash("hash-1")).isEqualTo(profile.fingerprint());
+    double unchanged = upserts("unchanged");
+    double updated = upserts("updated");
+
+    userService.getOrCreateFromProviderProfile(profile);
+    assertThat(upserts("unchanged")).isEqualTo(unchanged + 1);
+
+    ProviderProfile renamed =
+        new ProviderProfile("GITHUB", "hash-1", "hasher", "Hash Two", null, null);
+    User user = userService.getOrCreateFromProviderProfile(renamed);
+    assertThat(upserts("updated")).isEqualTo(updated + 1);
+    assertThat(user.getDisplayName()).isEqualTo("Hash Two");
+    assertThat(storedHash("hash-1")).isEqualTo(renamed.fingerprint());
+  }
+
+  private long storedHash(String externalId) {
+    entityManager.flush();
+    return jdbcTemplate.queryForObject(
+        "SELECT profile_hash FROM app_user WHERE external_id = ?", Long.class, externalId);
+  }
+
+  private double upserts(String outcome) {
+    return meterRegistry.get("app.user.upsert").tag("outcome", outcome).counter().count();
+  }
 }
@@ -0,0 +1,149 @@
+package com.example.hello.web;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.hello.domain.User;
+import com.example.hello.repository.UserRepository;
+import com.example.hello.service.AvatarCache;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.UUID;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+import org.springframework.test.web.servlet.MockMvc;
+
+/** Serves an avatar the cache picked up from its directory at startup, so nothing is fetched. */
+@SpringBootTest
+@AutoConfigureMockMvc
+class AvatarControllerTest {
+
+  private static final String AVATAR_URL = "https://avatars.githubusercontent.com/u/7?v=4";
+  private static final String KEY = AvatarCache.key(AVATAR_URL);
+  private static final byte[] IMAGE = new byte[100_000];
+  private static final Path DIRECTORY;
+
+  static {
+    new Random(7).nextBytes(IMAGE);
+    try {
+      DIRECTORY = Files.createTempDirectory("avatars");
+      Files.write(DIRECTORY.resolve(KEY + ".png"), IMAGE);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  @DynamicPropertySource
+  static void avatarDirectory(DynamicPropertyRegistry registry) {
+    registry.add("app.avatar-cache.directory", DIRECTORY::toString);
+  }
+
+  @Autowired MockMvc mockMvc;
+  @Autowired UserRepository userRepository;
+
+  private UUID userId;
+
+  @BeforeEach
+  void saveUser() {
+    User user =
+        userRepository
+            .findByProviderAndExternalId("TEST", "avatar-7")
+            .orElseGet(
+                () -> {
+                  User u = new User();
+                  u.setProvider("TEST");
+                  u.setExternalId("avatar-7");
+                  u.setUsername("avatar-7");
+                  u.setAvatarUrl(AVATAR_URL);
+                  return userRepository.save(u);
+                });
+    userId = user.getId();
+  }
+
+  @Test
+  void versionedRequestsMayBeCachedForAYear() throws Exception {
+    mockMvc
+        .perform(get("/avatars/{id}", userId).param("v", KEY).with(oauth2Login()))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Content-Type", "image/png"))
+        .andExpect(header().string("Cache-Control", "private, max-age=31536000, immutable"))
+        .andExpect(header().string("ETag", "\"" + KEY + "\""))
+        .andExpect(content().bytes(IMAGE));
+  }
+
+  @Test
+  void unversionedRequestsRevalidate() throws Exception {
+    mockMvc
+        .perform(get("/avatars/{id}", userId).with(oauth2Login()))
+        .andExpect(status().isOk())
+        .andExpect(header().string("Cache-Control", "private, no-cache"));
+
+    mockMvc
+        .perform(
+            get("/avatars/{id}", userId)
+                .header("If-None-Match", "\"" + KEY + "\"")
+                .with(oauth2Login()))
+        .andExpect(status().isNotModified())
+        .andExpect(content().bytes(new byte[0]));
+  }
+
+  @Test
+  void tomcatIsHandedTheFileForSendfile() throws Exception {
+    mockMvc
+        .perform(
+            get("/avatars/{id}", userId)
+                .requestAttr(AvatarController.SENDFILE_SUPPORTED, true)
+                .with(oauth2Login()))
+        .andExpect(status().isOk())
+        .andExpect(header().longValue("Content-Length", IMAGE.length))
+        .andExpect(
+            request()
+                .attribute(
+                    AvatarController.SENDFILE_FILENAME,
+                    DIRECTORY.resolve(KEY + ".png").toAbsolutePath().toString()))
+        .andExpect(request().attribute(AvatarController.SENDFILE_END, (long) IMAGE.length))
+        .andExpect(content().bytes(new byte[0]));
+  }
+
+  @Test
+  void unknownUsersAndUnproxiedAvatarsAreNotFound() throws Exception {
+    mockMvc
+        .perform(get("/avatars/{id}", UUID.randomUUID()).with(oauth2Login()))
+        .andExpect(status().isNotFound());
+  }
+
+  @Test
+  void requiresAuthentication() throws Exception {
+    mockMvc.perform(get("/avatars/{id}", userId)).andExpect(status().is3xxRedirection());
+  }
+
+  @Test
+  void mePageLinksTheLocalCopy() throws Exception {
+    mockMvc
+        .perform(
+            get("/me")
+                .with(
+                    oauth2Login()
+                        .attributes(
+                            attrs -> {
+                              attrs.put("sub", "avatar-7");
+                              attrs.put("avatar_url", AVATAR_URL);
+                            })))
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString("src=\"/avatars/" + userId + "?v=" + KEY)))
+        .andExpect(header().string("Content-Security-Policy", containsString("img-src 'self';")));
+  }
+}
@@ -0,0 +1,96 @@
+package com.example.hello.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.io.ByteArrayInputStream;
+import java.util.zip.GZIPInputStream;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.web.servlet.MockMvc;
+
+@WebMvcTest(controllers = LoginController.class)
+@AutoConfigureMockMvc(addFilters = false)
+class LoginControllerCachingTest {
+
+  @Autowired MockMvc mockMvc;
+
+  @Test
+  void servesAStrongETagAndRevalidates() throws Exception {
+    MockHttpServletResponse page =
+        mockMvc
+            .perform(get("/login"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Cache-Control", "no-cache"))
+            .andExpect(header().string("Vary", "Accept-Encoding"))
+            .andExpect(header().doesNotExist("Content-Encoding"))
+            .andReturn()
+            .getResponse();
+    String etag = page.getHeader("ETag");
+    assertThat(etag).startsWith("\"").doesNotStartWith("W/");
+
+    mockMvc
+        .perform(get("/").header("If-None-Match", etag))
+        .andExpect(status().isNotModified())
+        .andExpect(header().string("ETag", etag))
+        .andExpect(content().bytes(new byte[0]));
+  }
+
+  @Test
+  void eachFlagCombinationIsItsOwnVariant() throws Exception {
+    String plain = etag("/login");
+    String logout = etag("/login?logout");
+    String error = etag("/login?error");
+    String both = etag("/login?logout&error");
+
+    assertThat(new String[] {plain, logout, error, both}).doesNotHaveDuplicates();
+    mockMvc.perform(get("/login?logout").header("If-None-Match", plain)).andExpect(status().isOk());
+  }
+
+  @Test
+  void gzipsForClientsThatAcceptIt() throws Exception {
+    MockHttpServletResponse plain = mockMvc.perform(get("/login?error")).andReturn().getResponse();
+    MockHttpServletResponse gzip =
+        mockMvc
+            .perform(get("/login?error").header("Accept-Encoding", "br, gzip;q=0.8"))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Encoding", "gzip"))
+            .andReturn()
+            .getResponse();
+
+    assertThat(gunzip(gzip.getContentAsByteArray())).isEqualTo(plain.getContentAsByteArray());
+    assertThat(gzip.getHeader("ETag")).isNotEqualTo(plain.getHeader("ETag"));
+    mockMvc
+        .perform(
+            get("/login?error")
+                .header("Accept-Encoding", "gzip")
+                .header("If-None-Match", gzip.getHeader("ETag")))
+        .andExpect(status().isNotModified());
+  }
+
+  @Test
+  void gzipWithQualityZeroIsRefused() {
+    assertThat(LoginPage.acceptsGzip("gzip, deflate")).isTrue();
+    assertThat(LoginPage.acceptsGzip("GZIP;q=1")).isTrue();
+    assertThat(LoginPage.acceptsGzip("gzip;q=0")).isFalse();
+    assertThat(LoginPage.acceptsGzip("gzip; q=0.0, identity")).isFalse();
+    assertThat(LoginPage.acceptsGzip("x-gzip, br")).isFalse();
+    assertThat(LoginPage.acceptsGzip(null)).isFalse();
+  }
+
+  private String etag(String uri) throws Exception {
+    return mockMvc.perform(get(uri)).andReturn().getResponse().getHeader("ETag");
+  }
+
+  private static byte[] gunzip(byte[] bytes) throws Exception {
+    try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      return in.readAllBytes();
+    }
+  }
+}
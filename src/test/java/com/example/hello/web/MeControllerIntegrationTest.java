@@ -1,11 +1,16 @@
 package com.example.hello.web;
 
+import static org.assertj.core.api.Assertions.assertThat;
 import static org.hamcrest.Matchers.containsString;
 import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import com.example.hello.domain.User;
+import com.example.hello.repository.UserRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import java.time.Instant;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
@@ -18,6 +23,10 @@ class MeControllerIntegrationTest {
 
   @Autowired MockMvc mockMvc;
 
+  @Autowired UserRepository userRepository;
+
+  @Autowired MeterRegistry meterRegistry;
+
   @Test
   void mePageRendersForAuthenticatedGithubUser() throws Exception {
     mockMvc
@@ -37,4 +46,53 @@ class MeControllerIntegrationTest {
         .andExpect(content().string(containsString("Hello, Octo Cat!")))
         .andExpect(content().string(containsString("name=\"_csrf\"")));
   }
+
+  @Test
+  void repeatedMeRequestsDoNotWriteTheUser() throws Exception {
+    getMe("cache-me", "Cached Cat");
+    Instant firstLastLogin = lastLoginOf("cache-me");
+
+    getMe("cache-me", "Cached Cat");
+    getMe("cache-me", "Cached Cat");
+
+    assertThat(lastLoginOf("cache-me")).isEqualTo(firstLastLogin);
+  }
+
+  @Test
+  void lookupAndRenderingAreTimed() throws Exception {
+    getMe("timed-me", "Timed Cat");
+
+    for (String stage : new String[] {"lookup", "render"}) {
+      assertThat(
+              meterRegistry
+                  .get("app.login.stage")
+                  .tags("stage", stage, "registration", "test", "outcome", "success")
+                  .timer()
+                  .count())
+          .as(stage)
+          .isPositive();
+    }
+  }
+
+  private void getMe(String id, String name) throws Exception {
+    mockMvc
+        .perform(
+            get("/me")
+                .with(
+                    oauth2Login()
+                        .attributes(
+                            attrs -> {
+                              attrs.put("sub", id);
+                              attrs.put("name", name);
+                            })))
+        .andExpect(status().isOk())
+        .andExpect(content().string(containsString("Hello, " + name + "!")));
+  }
+
+  private Instant lastLoginOf(String externalId) {
+    return userRepository
+        .findByProviderAndExternalId("TEST", externalId)
+        .map(User::getLastLoginAt)
+        .orElseThrow();
+  }
 }
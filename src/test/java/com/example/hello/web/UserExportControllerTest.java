@@ -0,0 +1,240 @@
+package com.example.hello.web;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.oauth2Login;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import com.example.hello.repository.UserUpsertRepository;
+import com.example.hello.security.ProviderProfile;
+import com.example.hello.service.LastLoginWriter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.oauth2.client.registration.ClientRegistration;
+import org.springframework.security.oauth2.core.AuthorizationGrantType;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+@SpringBootTest(
+    properties = {
+      "app.admin.users=test:export-admin,azure:oid-admin",
+      "app.user-export.safety-lag=1s"
+    })
+@AutoConfigureMockMvc
+class UserExportControllerTest {
+
+  private static final Instant JAN_2001 = Instant.parse("2001-01-01T00:00:00Z");
+
+  @Autowired MockMvc mockMvc;
+  @Autowired UserUpsertRepository upsertRepository;
+  @Autowired LastLoginWriter lastLoginWriter;
+
+  private final ObjectMapper objectMapper = new ObjectMapper();
+
+  @Test
+  void anonymousRequestsAreSentToLogin() throws Exception {
+    mockMvc.perform(get("/admin/users/export")).andExpect(status().is3xxRedirection());
+  }
+
+  @Test
+  void usersNotListedAsAdminsAreForbidden() throws Exception {
+    mockMvc
+        .perform(get("/admin/users/export").with(login("someone-else")))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  void azureAdminsAreListedByObjectId() throws Exception {
+    mockMvc
+        .perform(get("/admin/users/export").with(azureLogin("sub-admin", "oid-admin")))
+        .andExpect(status().isOk());
+    // The sub claim is not the key, so listing it grants nothing
+    mockMvc
+        .perform(get("/admin/users/export").with(azureLogin("oid-admin", "oid-other")))
+        .andExpect(status().isForbidden());
+  }
+
+  @Test
+  void exportsNdjsonOldestChangeFirst() throws Exception {
+    upsertRepository.upsert(profile("ndjson-2", "Second"), JAN_2001.plusSeconds(2));
+    upsertRepository.upsert(profile("ndjson-1", "First"), JAN_2001.plusSeconds(1));
+
+    MockHttpServletResponse response =
+        mockMvc
+            .perform(
+                get("/admin/users/export")
+                    .param("since", JAN_2001.toString())
+                    .with(login("export-admin")))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Type", "application/x-ndjson;charset=UTF-8"))
+            .andExpect(header().exists("X-Export-Until"))
+            .andReturn()
+            .getResponse();
+
+    List<JsonNode> rows = response.getContentAsString().lines().map(this::json).toList();
+    List<String> ids =
+        rows.stream()
+            .map(r -> r.get("external_id").asText())
+            .filter(id -> id.startsWith("ndjson-"))
+            .toList();
+    assertThat(ids).containsExactly("ndjson-1", "ndjson-2");
+    JsonNode first =
+        rows.stream()
+            .filter(r -> r.get("external_id").asText().equals("ndjson-1"))
+            .findFirst()
+            .orElseThrow();
+    assertThat(first.get("display_name").asText()).isEqualTo("First");
+    assertThat(first.get("updated_at").asText()).isEqualTo("2001-01-01T00:00:01Z");
+    assertThat(first.get("avatar_url").isNull()).isTrue();
+  }
+
+  @Test
+  void exportsCsvWithQuotedValues() throws Exception {
+    upsertRepository.upsert(profile("csv-1", "Cat, \"The\" Octo"), JAN_2001.plusSeconds(3));
+
+    String csv =
+        mockMvc
+            .perform(get("/admin/users/export?format=csv").with(login("export-admin")))
+            .andExpect(status().isOk())
+            .andExpect(header().string("Content-Type", "text/csv;charset=UTF-8"))
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    assertThat(csv)
+        .startsWith(
+            "id,provider,external_id,username,display_name,email,avatar_url,created_at,"
+                + "updated_at,last_login_at\r\n")
+        .contains(",GITHUB,csv-1,user-csv-1,\"Cat, \"\"The\"\" Octo\",csv-1@example.com,,");
+  }
+
+  @Test
+  void theUntilHeaderIsTheNextIncrementalSince() throws Exception {
+    upsertRepository.upsert(profile("inc-old", "Old"), JAN_2001.plusSeconds(4));
+    String until =
+        mockMvc
+            .perform(get("/admin/users/export").with(login("export-admin")))
+            .andReturn()
+            .getResponse()
+            .getHeader("X-Export-Until");
+    // A change right at the bound belongs to the next export
+    upsertRepository.upsert(profile("inc-new", "New"), Instant.parse(until));
+
+    String next =
+        mockMvc
+            .perform(get("/admin/users/export").param("since", until).with(login("export-admin")))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    assertThat(next).contains("inc-new").doesNotContain("inc-old");
+  }
+
+  @Test
+  void aChangeCommittedAfterAnExportIsInTheNextOne() throws Exception {
+    // Stamped before the first export starts, committed only after it has finished
+    Instant stamped = Instant.now().minusMillis(500);
+    String until =
+        mockMvc
+            .perform(get("/admin/users/export").with(login("export-admin")))
+            .andReturn()
+            .getResponse()
+            .getHeader("X-Export-Until");
+    upsertRepository.upsert(profile("late-commit", "Late"), stamped);
+
+    assertThat(Instant.parse(until)).isBefore(stamped);
+    Thread.sleep(1_000); // until the next export's bound has passed the change
+    String next =
+        mockMvc
+            .perform(get("/admin/users/export").param("since", until).with(login("export-admin")))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    assertThat(next).contains("late-commit");
+  }
+
+  @Test
+  void aUserWhoOnlyLoggedInIsInTheNextExport() throws Exception {
+    UUID id = upsertRepository.upsert(profile("login-only", "Login"), JAN_2001).user().getId();
+    String until =
+        mockMvc
+            .perform(get("/admin/users/export").with(login("export-admin")))
+            .andReturn()
+            .getResponse()
+            .getHeader("X-Export-Until");
+
+    Instant login = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+    lastLoginWriter.record(id, login);
+    lastLoginWriter.flush();
+    Thread.sleep(1_000); // until the next export's bound has passed the write
+    String next =
+        mockMvc
+            .perform(get("/admin/users/export").param("since", until).with(login("export-admin")))
+            .andExpect(status().isOk())
+            .andReturn()
+            .getResponse()
+            .getContentAsString();
+
+    JsonNode row =
+        next.lines()
+            .map(this::json)
+            .filter(r -> r.get("external_id").asText().equals("login-only"))
+            .findFirst()
+            .orElseThrow();
+    assertThat(Instant.parse(row.get("last_login_at").asText())).isEqualTo(login);
+  }
+
+  @Test
+  void rejectsUnknownFormatsAndMalformedSince() throws Exception {
+    mockMvc
+        .perform(get("/admin/users/export?format=xml").with(login("export-admin")))
+        .andExpect(status().isBadRequest());
+    mockMvc
+        .perform(get("/admin/users/export?since=yesterday").with(login("export-admin")))
+        .andExpect(status().isBadRequest());
+  }
+
+  private static RequestPostProcessor login(String sub) {
+    return oauth2Login().attributes(a -> a.put("sub", sub));
+  }
+
+  private static RequestPostProcessor azureLogin(String sub, String oid) {
+    return oauth2Login()
+        .clientRegistration(
+            ClientRegistration.withRegistrationId("azure")
+                .authorizationGrantType(AuthorizationGrantType.AUTHORIZATION_CODE)
+                .clientId("client")
+                .redirectUri("{baseUrl}/login/oauth2/code/{registrationId}")
+                .authorizationUri("https://login.example.com/authorize")
+                .tokenUri("https://login.example.com/token")
+                .build())
+        .attributes(a -> a.putAll(Map.of("sub", sub, "oid", oid)));
+  }
+
+  private static ProviderProfile profile(String externalId, String displayName) {
+    return new ProviderProfile(
+        "GITHUB", externalId, "user-" + externalId, displayName, externalId + "@example.com", null);
+  }
+
+  private JsonNode json(String line) {
+    try {
+      return objectMapper.readTree(line);
+    } catch (Exception e) {
+      throw new IllegalStateException(e);
+    }
+  }
+}